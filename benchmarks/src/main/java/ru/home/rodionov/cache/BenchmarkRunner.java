@@ -0,0 +1,37 @@
+package ru.home.rodionov.cache;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs benchmarks with 1, 2, 4 and 8 threads and writes results of every thread count
+ * as JSON to results/threads-N.json.
+ * <p>
+ * Arguments: regular expression of benchmarks to run (all by default) and directory of results ("results" by default).
+ * For other options of JMH use {@code java -cp benchmarks.jar org.openjdk.jmh.Main}.
+ */
+public class BenchmarkRunner {
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : ".*Benchmark.*";
+        File results = new File(args.length > 1 ? args[1] : "results");
+        if (!results.isDirectory() && !results.mkdirs()) {
+            throw new IllegalArgumentException("Can't create directory " + results);
+        }
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(results, "threads-" + threads + ".json").getPath())
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ru.home.rodionov.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Throughput and latency of get and put of the caches storing the data in RAM.
+ * The cache is filled by all keys before measurement, so get is measured on hits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+    private static final long TTL = TimeUnit.HOURS.toMillis(1);
+
+    @Param({"RAMCache", "IndexedRAMCache", "ConcurrentRAMCache", "OffHeapCache", "TwoLevelCache"})
+    public String cache;
+
+    @Param({"LRU", "LFU"})
+    public String algorithm;
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"16", "1024"})
+    public int valueSize;
+
+    @Param({KeySequence.UNIFORM, KeySequence.ZIPFIAN})
+    public String distribution;
+
+    private Cache target;
+    private boolean trimmed;
+    private Object[] keys;
+    private int[] sequence;
+    private byte[] value;
+
+    /**
+     * Position of the thread in the key sequence
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+
+        @Setup
+        public void setUp() {
+            position = ThreadLocalRandom.current().nextInt();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Supplier<CacheAlgorithm> algorithms = "LFU".equals(algorithm) ? LFUAlgorithm::new : LRUAlgorithm::new;
+        switch (cache) {
+            case "RAMCache":
+                target = new RAMCache(algorithms.get(), TTL);
+                trimmed = true;
+                break;
+            case "IndexedRAMCache":
+                target = new IndexedRAMCache(algorithms.get(), TTL);
+                break;
+            case "ConcurrentRAMCache":
+                target = new ConcurrentRAMCache(algorithms, TTL, Runtime.getRuntime().availableProcessors(), size);
+                break;
+            case "OffHeapCache":
+                target = new OffHeapCache((long) size * (valueSize + 128) * 2, TTL, Codecs.STRING, Codecs.BYTES);
+                break;
+            case "TwoLevelCache":
+                target = new TwoLevelCache(new IndexedRAMCache(algorithms.get(), TTL),
+                        new IndexedRAMCache(algorithms.get(), TTL), Math.max(1, size / 10), size);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown cache " + cache);
+        }
+        keys = new Object[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "key_" + i;
+        }
+        sequence = KeySequence.generate(distribution, size, 42);
+        value = new byte[valueSize];
+        for (Object key : keys) {
+            target.add(key, value);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (target instanceof OffHeapCache) {
+            ((OffHeapCache) target).close();
+        }
+    }
+
+    @Benchmark
+    public Object get(Cursor cursor) {
+        Object key = keys[sequence[cursor.position++ & (sequence.length - 1)]];
+        return target.get(key);
+    }
+
+    @Benchmark
+    public void put(Cursor cursor) {
+        Object key = keys[sequence[cursor.position++ & (sequence.length - 1)]];
+        target.add(key, value);
+        if (trimmed && target.size() > size) {
+            // RAMCache doesn't replace elements with the same key
+            target.removeLast();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ru.home.rodionov.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency of get and put of the caches storing the data in files.
+ * {@link FileCache} rewrites the whole file by every operation, so only small sizes are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class FileCacheBenchmark {
+    private static final long TTL = TimeUnit.HOURS.toMillis(1);
+
+    @Param({"FileCache", "LogFileCache", "MappedFileCache", "TwoLevelCache"})
+    public String cache;
+
+    @Param({"LRU", "LFU"})
+    public String algorithm;
+
+    @Param({"100", "1000"})
+    public int size;
+
+    @Param({"16", "1024"})
+    public int valueSize;
+
+    @Param({KeySequence.UNIFORM, KeySequence.ZIPFIAN})
+    public String distribution;
+
+    private Cache target;
+    private File directory;
+    private Object[] keys;
+    private int[] sequence;
+    private byte[] value;
+
+    /**
+     * Position of the thread in the key sequence
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+
+        @Setup
+        public void setUp() {
+            position = ThreadLocalRandom.current().nextInt();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("cache-benchmark").toFile();
+        String file = new File(directory, "cache.fc").getPath();
+        CacheAlgorithm cacheAlgorithm = "LFU".equals(algorithm) ? new LFUAlgorithm() : new LRUAlgorithm();
+        switch (cache) {
+            case "FileCache":
+                target = new FileCache(file, cacheAlgorithm, TTL, Codecs.STRING, Codecs.BYTES);
+                break;
+            case "LogFileCache":
+                target = new LogFileCache(directory.getPath(), cacheAlgorithm, TTL, Codecs.STRING, Codecs.BYTES);
+                break;
+            case "MappedFileCache":
+                target = new MappedFileCache(file, cacheAlgorithm, TTL, Codecs.STRING, Codecs.BYTES);
+                break;
+            case "TwoLevelCache":
+                target = new TwoLevelCache(new RAMCache(cacheAlgorithm, TTL),
+                        new FileCache(file, "LFU".equals(algorithm) ? new LFUAlgorithm() : new LRUAlgorithm(), TTL,
+                                Codecs.STRING, Codecs.BYTES),
+                        Math.max(1, size / 10), size);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown cache " + cache);
+        }
+        keys = new Object[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "key_" + i;
+        }
+        sequence = KeySequence.generate(distribution, size, 42);
+        value = new byte[valueSize];
+        for (Object key : keys) {
+            target.add(key, value);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (target instanceof LogFileCache) {
+            ((LogFileCache) target).close();
+        } else if (target instanceof MappedFileCache) {
+            ((MappedFileCache) target).close();
+        }
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public Object get(Cursor cursor) {
+        Object key = keys[sequence[cursor.position++ & (sequence.length - 1)]];
+        return target.get(key);
+    }
+
+    @Benchmark
+    public void put(Cursor cursor) {
+        Object key = keys[sequence[cursor.position++ & (sequence.length - 1)]];
+        target.add(key, value);
+        if (target instanceof FileCache && target.size() > size) {
+            // FileCache doesn't replace elements with the same key
+            target.removeLast();
+        }
+    }
+}
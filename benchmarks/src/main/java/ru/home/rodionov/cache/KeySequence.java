@@ -0,0 +1,76 @@
+package ru.home.rodionov.cache;
+
+import java.util.Random;
+
+/**
+ * Precomputed sequence of key indexes, so generation of keys is not measured by benchmarks
+ */
+final class KeySequence {
+    static final String UNIFORM = "uniform";
+    static final String ZIPFIAN = "zipfian";
+    private static final int LENGTH = 1 << 16;
+    private static final double ZIPFIAN_EXPONENT = 0.99;
+
+    private KeySequence() {
+    }
+
+    /**
+     * @param distribution - {@link #UNIFORM} or {@link #ZIPFIAN}
+     * @param size         - count of distinct keys
+     * @param seed         - seed of the random generator
+     * @return indexes of keys from 0 to size - 1, length of the sequence is a power of two
+     */
+    static int[] generate(String distribution, int size, long seed) {
+        Random random = new Random(seed);
+        int[] sequence = new int[LENGTH];
+        if (UNIFORM.equals(distribution)) {
+            for (int i = 0; i < LENGTH; i++) {
+                sequence[i] = random.nextInt(size);
+            }
+        } else if (ZIPFIAN.equals(distribution)) {
+            double[] cumulative = new double[size];
+            double sum = 0;
+            for (int rank = 0; rank < size; rank++) {
+                sum += 1 / Math.pow(rank + 1, ZIPFIAN_EXPONENT);
+                cumulative[rank] = sum;
+            }
+            // popular ranks are scattered over keys, so they are not the first inserted ones
+            int[] keyOfRank = permutation(size, random);
+            for (int i = 0; i < LENGTH; i++) {
+                int rank = search(cumulative, random.nextDouble() * sum);
+                sequence[i] = keyOfRank[rank];
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown distribution " + distribution);
+        }
+        return sequence;
+    }
+
+    private static int[] permutation(int size, Random random) {
+        int[] permutation = new int[size];
+        for (int i = 0; i < size; i++) {
+            permutation[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = swap;
+        }
+        return permutation;
+    }
+
+    private static int search(double[] cumulative, double value) {
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulative[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
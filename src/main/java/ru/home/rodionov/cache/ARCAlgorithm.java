@@ -0,0 +1,222 @@
+package ru.home.rodionov.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Implementation of "adaptive replacement cache" algorithm.
+ * Elements seen once are kept in the recent list, elements seen at least twice in the frequent list,
+ * both lists are ordered from the least recently used element. Keys of displaced elements are remembered
+ * in ghost lists of the same capacity: a new element with a key from the recent ghosts increases the target
+ * size of the recent list, a key from the frequent ghosts decreases it, so the split between recency
+ * and frequency follows the workload. The displaced element is the least recently used one
+ * of the recent list if it exceeds the target, otherwise of the frequent list.
+ * <p>
+ * For caches based on {@link CacheList} every operation takes constant time and the displaced element
+ * is chosen by {@link #victim(CacheList)}. In the first level of {@link TwoLevelCache} the ghosts are
+ * the keys demoted to the second level, so their promotion back adapts the target.
+ * {@link RAMCache} reports added and removed elements as well, so a hit only moves the element between lists
+ * and {@link RAMCache#removeLast()} removes the element chosen by {@link #victim(LinkedList)}.
+ * {@link FileCache} rereads its elements from the file on every operation and doesn't support the algorithm.
+ * <p>
+ * Instance of the algorithm keeps lists of one cache and must not be shared between caches.
+ */
+public class ARCAlgorithm extends CacheAlgorithm {
+
+    private final int capacity;
+    private final LinkedHashMap<Object, Object> recent = new LinkedHashMap<>();
+    private final LinkedHashMap<Object, Object> frequent = new LinkedHashMap<>();
+    private final Set<Object> recentGhosts = new LinkedHashSet<>();
+    private final Set<Object> frequentGhosts = new LinkedHashSet<>();
+    private int recentTarget;
+
+    /**
+     * @param capacity - max size of the cache using this algorithm, also the max count of keys in every ghost list
+     */
+    public ARCAlgorithm(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Moves element to the frequent list and to the beginning of the cache
+     *
+     * @param source  - {@link LinkedList} for changing
+     * @param element - element for shifting
+     * @return shifted {@link LinkedList}
+     */
+    @Override
+    public LinkedList<CacheObject> shift(LinkedList<CacheObject> source, CacheObject element) {
+        hit(element.getKey(), element);
+        source.removeFirstOccurrence(element);
+        source.addFirst(element);
+        return source;
+    }
+
+    /**
+     * @param source  - {@link LinkedList} for changing
+     * @param element - added element
+     */
+    @Override
+    void inserted(LinkedList<CacheObject> source, CacheObject element) {
+        admit(element.getKey(), element);
+    }
+
+    /**
+     * Key of the removed element is remembered as a ghost if the element is the one to displace
+     *
+     * @param source  - {@link LinkedList} for changing
+     * @param element - element to remove
+     */
+    @Override
+    void removed(LinkedList<CacheObject> source, CacheObject element) {
+        forget(element.getKey(), element, element == victim(source));
+    }
+
+    /**
+     * @param source - cleared {@link LinkedList}
+     */
+    @Override
+    void cleared(LinkedList<CacheObject> source) {
+        reset();
+    }
+
+    /**
+     * @param source - {@link LinkedList} of the elements
+     * @return the least recently used element of the recent list if it exceeds the target,
+     * otherwise of the frequent list
+     */
+    @Override
+    CacheObject victim(LinkedList<CacheObject> source) {
+        Map<Object, Object> from = victimIsRecent() ? recent : frequent;
+        return from.isEmpty() ? source.peekLast() : (CacheObject) from.values().iterator().next();
+    }
+
+    /**
+     * Moves node to the frequent list and to the beginning of the cache
+     *
+     * @param source - {@link CacheList} for changing
+     * @param node   - node of the element for shifting
+     */
+    @Override
+    void shift(CacheList source, CacheList.Node node) {
+        hit(node.getElement().getKey(), node);
+        source.moveToFront(node);
+    }
+
+    /**
+     * @param source - {@link CacheList} for changing
+     * @param node   - added node
+     */
+    @Override
+    void inserted(CacheList source, CacheList.Node node) {
+        admit(node.getElement().getKey(), node);
+    }
+
+    /**
+     * Key of the removed node is remembered as a ghost if the node is the one to displace
+     *
+     * @param source - {@link CacheList} for changing
+     * @param node   - node to remove
+     */
+    @Override
+    void removed(CacheList source, CacheList.Node node) {
+        forget(node.getElement().getKey(), node, node == victim(source));
+    }
+
+    /**
+     * @param source - cleared {@link CacheList}
+     */
+    @Override
+    void cleared(CacheList source) {
+        reset();
+    }
+
+    /**
+     * @param source - {@link CacheList} of the elements
+     * @return the least recently used node of the recent list if it exceeds the target,
+     * otherwise of the frequent list
+     */
+    @Override
+    CacheList.Node victim(CacheList source) {
+        Map<Object, Object> from = victimIsRecent() ? recent : frequent;
+        return from.isEmpty() ? source.last() : (CacheList.Node) from.values().iterator().next();
+    }
+
+    /**
+     * @return current target count of elements seen once, from 0 to the capacity
+     */
+    public int getRecentTarget() {
+        return recentTarget;
+    }
+
+    /**
+     * Adds new element to the recent list, element with a ghost key goes to the frequent list
+     * and moves the target towards the list its key was displaced from
+     */
+    private void admit(Object key, Object value) {
+        if (recentGhosts.contains(key)) {
+            recentTarget = Math.min(capacity, recentTarget + Math.max(1, frequentGhosts.size() / recentGhosts.size()));
+            recentGhosts.remove(key);
+            frequent.put(key, value);
+        } else if (frequentGhosts.contains(key)) {
+            recentTarget = Math.max(0, recentTarget - Math.max(1, recentGhosts.size() / frequentGhosts.size()));
+            frequentGhosts.remove(key);
+            frequent.put(key, value);
+        } else {
+            recent.put(key, value);
+        }
+    }
+
+    /**
+     * Moves found element to the end of the frequent list
+     */
+    private void hit(Object key, Object value) {
+        recent.remove(key);
+        frequent.remove(key);
+        frequent.put(key, value);
+    }
+
+    /**
+     * Removes element from its list, the key is remembered as a ghost of that list if the element is displaced
+     */
+    private void forget(Object key, Object value, boolean displaced) {
+        if (recent.remove(key, value)) {
+            if (displaced) {
+                remember(recentGhosts, key);
+            }
+        } else if (frequent.remove(key, value) && displaced) {
+            remember(frequentGhosts, key);
+        }
+    }
+
+    private void reset() {
+        recent.clear();
+        frequent.clear();
+        recentGhosts.clear();
+        frequentGhosts.clear();
+        recentTarget = 0;
+    }
+
+    private boolean victimIsRecent() {
+        return !recent.isEmpty() && (recent.size() > recentTarget || frequent.isEmpty());
+    }
+
+    /**
+     * Remembers the key of displaced element, the oldest ghost is forgotten if the list exceeds the capacity
+     */
+    private void remember(Set<Object> ghosts, Object key) {
+        ghosts.add(key);
+        if (ghosts.size() > capacity) {
+            Iterator<Object> it = ghosts.iterator();
+            it.next();
+            it.remove();
+        }
+    }
+}
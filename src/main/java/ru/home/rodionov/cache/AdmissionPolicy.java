@@ -0,0 +1,21 @@
+package ru.home.rodionov.cache;
+
+/**
+ * Admission policy decides whether a new element may displace an element of the cache level
+ */
+public abstract class AdmissionPolicy {
+
+    /**
+     * Registers an access to the key
+     *
+     * @param key - key of the element
+     */
+    abstract void record(Object key);
+
+    /**
+     * @param candidateKey - key of the element which is going to be added
+     * @param victimKey    - key of the element which is going to be displaced
+     * @return true if the candidate should be added instead of the victim
+     */
+    abstract boolean admit(Object candidateKey, Object victimKey);
+}
@@ -0,0 +1,65 @@
+package ru.home.rodionov.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of {@link BloomFilteredCache}: requests answered by the filter without the level
+ * and requests passed to the level for absent keys.
+ * Reported by {@link CacheStats} for the level wrapped by the filter.
+ */
+public class BloomFilterStats {
+    final LongAdder skipped = new LongAdder();
+    final LongAdder passed = new LongAdder();
+    final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * Immutable copy of the filter statistics
+     */
+    public static class Snapshot {
+        private final long skipped;
+        private final long passed;
+        private final long falsePositives;
+
+        private Snapshot(BloomFilterStats stats) {
+            this.skipped = stats.skipped.sum();
+            this.passed = stats.passed.sum();
+            this.falsePositives = stats.falsePositives.sum();
+        }
+
+        /**
+         * @return keys found absent by the filter without requesting the level
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * @return keys passed to the level
+         */
+        public long getPassed() {
+            return passed;
+        }
+
+        /**
+         * @return keys passed to the level but not found in it
+         */
+        public long getFalsePositives() {
+            return falsePositives;
+        }
+
+        /**
+         * @return share of requests for absent keys passed to the level or 0 if there were no such requests
+         */
+        public double getFalsePositiveRate() {
+            long misses = skipped + falsePositives;
+            return misses == 0 ? 0 : (double) falsePositives / misses;
+        }
+    }
+
+    /**
+     * @return copy of the counters
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+}
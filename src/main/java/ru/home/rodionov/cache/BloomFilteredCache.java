@@ -0,0 +1,242 @@
+package ru.home.rodionov.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wraps any {@link Cache}, usually the second level storing the data in a file, and keeps
+ * a counting Bloom filter of its keys, so requests of keys absent for sure return without the level.
+ * Keys are counted before they come to the level and discounted when the level returns removed elements
+ * or reports expired and evicted ones to its removal listeners, so the filter never hides present keys.
+ * Keys added several times or removed by {@link #removeAll(Collection)} stay counted and only
+ * raise the false positive rate, which is counted by {@link BloomFilterStats}.
+ * <p>
+ * Usage: {@code new TwoLevelCache(firstLevel, new BloomFilteredCache(fileCache, 10000, 0.01), 100, 10000)}
+ */
+public class BloomFilteredCache extends Cache {
+    private Cache level;
+    private CountingBloomFilter filter;
+    private BloomFilterStats stats = new BloomFilterStats();
+
+    /**
+     * @param level             - any implementation of {@link Cache}, elements it already has are counted
+     * @param expectedSize      - expected count of elements in the level
+     * @param falsePositiveRate - probability to request the level for absent key
+     */
+    @SuppressWarnings("unchecked")
+    public BloomFilteredCache(Cache level, int expectedSize, double falsePositiveRate) {
+        if (expectedSize < 1) {
+            throw new IllegalArgumentException("Expected size must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+        this.level = level;
+        this.filter = new CountingBloomFilter(expectedSize, falsePositiveRate);
+        LinkedList<CacheObject> actual = level.removeNotActual();
+        if (actual == null && level.size() > 0) {
+            throw new IllegalArgumentException("Level must be empty or list its actual elements");
+        }
+        if (actual != null) {
+            for (CacheObject element : actual) {
+                filter.add(element.getKey());
+            }
+        }
+        level.addRemovalListener((element, cause) -> {
+            filter.remove(element.getKey());
+            notifyRemoval(element, cause);
+        });
+    }
+
+    /**
+     * Create new element with key-value and adds it to the level
+     *
+     * @param key   - key
+     * @param value - value
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void add(Object key, Object value) {
+        filter.add(key);
+        level.add(key, value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void addFirst(CacheObject element) {
+        filter.add(element.getKey());
+        level.addFirst(element);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void addLast(CacheObject element) {
+        filter.add(element.getKey());
+        level.addLast(element);
+    }
+
+    /**
+     * Clears the level and the filter
+     */
+    @Override
+    public void clear() {
+        level.clear();
+        filter.clear();
+    }
+
+    @Override
+    public CacheObject removeFirst() {
+        CacheObject element = level.removeFirst();
+        filter.remove(element.getKey());
+        return element;
+    }
+
+    @Override
+    public CacheObject removeLast() {
+        CacheObject element = level.removeLast();
+        filter.remove(element.getKey());
+        return element;
+    }
+
+    @Override
+    public int size() {
+        return level.size();
+    }
+
+    /**
+     * @param key - key
+     * @return value by key or null if not exists, the level is not requested if the filter has no key
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object get(Object key) {
+        if (!filter.mightContain(key)) {
+            stats.skipped.increment();
+            return null;
+        }
+        stats.passed.increment();
+        Object value = level.get(key);
+        if (value == null) {
+            stats.falsePositives.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Requests the level once for keys the filter may have
+     *
+     * @param keys - keys
+     * @return found values by keys in the order of keys, missing keys are absent
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map getAll(Collection keys) {
+        List<Object> candidates = candidates(keys);
+        if (candidates.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        stats.passed.add(candidates.size());
+        Map values = level.getAll(candidates);
+        stats.falsePositives.add(candidates.size() - values.size());
+        return values;
+    }
+
+    /**
+     * Removes elements of keys the filter may have, removed keys stay counted by the filter
+     *
+     * @param keys - keys
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void removeAll(Collection keys) {
+        List<Object> candidates = candidates(keys);
+        if (!candidates.isEmpty()) {
+            level.removeAll(candidates);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    List addAllFirst(List elements, int maxSize) {
+        for (CacheObject element : (List<CacheObject>) elements) {
+            filter.add(element.getKey());
+        }
+        List<CacheObject> removed = level.addAllFirst(elements, maxSize);
+        for (CacheObject element : removed) {
+            filter.remove(element.getKey());
+        }
+        return removed;
+    }
+
+    /**
+     * method for removeLast all old elements, expired elements are discounted by the removal listener of the level
+     *
+     * @return actual elements of the level or null
+     */
+    @Override
+    public LinkedList removeNotActual() {
+        return level.removeNotActual();
+    }
+
+    /**
+     * @param key - key of the element
+     * @return index of the value or -1 if this cache does not contain the element
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int indexOf(Object key) {
+        return filter.mightContain(key) ? level.indexOf(key) : -1;
+    }
+
+    /**
+     * @param key - key
+     * @return value of the removed element or null, the level is not requested if the filter has no key
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object remove(Object key) {
+        if (!filter.mightContain(key)) {
+            return null;
+        }
+        Object value = level.remove(key);
+        if (value != null) {
+            filter.remove(key);
+        }
+        return value;
+    }
+
+    /**
+     * @return counters of requests answered by the filter
+     */
+    public BloomFilterStats.Snapshot getFilterSnapshot() {
+        return stats.snapshot();
+    }
+
+    @Override
+    BloomFilterStats getFilterStats() {
+        return stats;
+    }
+
+    @Override
+    CompressionStats getCompressionStats() {
+        return level.getCompressionStats();
+    }
+
+    /**
+     * @return keys the filter may have, other keys are counted as skipped
+     */
+    private List<Object> candidates(Collection<Object> keys) {
+        List<Object> candidates = new ArrayList<>();
+        for (Object key : keys) {
+            if (filter.mightContain(key)) {
+                candidates.add(key);
+            }
+        }
+        stats.skipped.add(keys.size() - candidates.size());
+        return candidates;
+    }
+}
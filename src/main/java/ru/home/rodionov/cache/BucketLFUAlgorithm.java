@@ -0,0 +1,236 @@
+package ru.home.rodionov.cache;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.Map;
+
+/**
+ * Implementation of "least frequently used" algorithm with access counters.
+ * Elements are ordered by access count from the most used to the least used one,
+ * elements with the same count form a bucket ordered from the most recently used.
+ * The last element of the cache is always the least frequently used one.
+ * <p>
+ * For caches based on {@link CacheList} every operation takes constant time
+ * (insertion of element with carried count walks the buckets chain only).
+ * Counters are halved after every {@code agingPeriod} accesses, so old hot elements don't stay forever.
+ * <p>
+ * Instance of the algorithm keeps buckets of one cache and must not be shared between caches.
+ */
+public class BucketLFUAlgorithm extends CacheAlgorithm {
+
+    private final Map<Integer, Bucket> buckets = new HashMap<>();
+    private final int agingPeriod;
+    private Bucket lowest;
+    private int accesses;
+
+    /**
+     * Elements with the same access count
+     */
+    private static class Bucket {
+        private final int frequency;
+        private CacheList.Node head;
+        private int count;
+        private Bucket higher;
+        private Bucket lower;
+
+        private Bucket(int frequency) {
+            this.frequency = frequency;
+        }
+    }
+
+    /**
+     * Algorithm without aging
+     */
+    public BucketLFUAlgorithm() {
+        this(0);
+    }
+
+    /**
+     * @param agingPeriod - accesses count between halving of counters, 0 to disable aging
+     */
+    public BucketLFUAlgorithm(int agingPeriod) {
+        if (agingPeriod < 0) {
+            throw new IllegalArgumentException("Aging period must not be negative");
+        }
+        this.agingPeriod = agingPeriod;
+    }
+
+    /**
+     * @param source  - {@link LinkedList} for changing
+     * @param element - element for shifting
+     * @return shifted {@link LinkedList}
+     */
+    @Override
+    public LinkedList<CacheObject> shift(LinkedList<CacheObject> source, CacheObject element) {
+        if (!source.remove(element)) {
+            return source;
+        }
+        int frequency = Math.max(element.getFrequency(), 1) + 1;
+        element.setFrequency(frequency);
+        ListIterator<CacheObject> it = source.listIterator();
+        while (it.hasNext()) {
+            if (it.next().getFrequency() <= frequency) {
+                it.previous();
+                break;
+            }
+        }
+        it.add(element);
+        if (agingPeriod > 0 && ++accesses >= agingPeriod) {
+            accesses = 0;
+            for (CacheObject obj : source) {
+                obj.setFrequency(Math.max(obj.getFrequency() / 2, 1));
+            }
+        }
+        return source;
+    }
+
+    /**
+     * Moves node to the beginning of the bucket of incremented count
+     *
+     * @param source - {@link CacheList} for changing
+     * @param node   - node of the element for shifting
+     */
+    @Override
+    void shift(CacheList source, CacheList.Node node) {
+        int frequency = node.getElement().getFrequency();
+        Bucket bucket = buckets.get(frequency);
+        Bucket higher = bucket.higher;
+        if (bucket.head != node) {
+            source.unlink(node);
+            source.insertBefore(node, bucket.head);
+        }
+        leave(bucket, node);
+        if (higher != null && higher.frequency == frequency + 1) {
+            source.unlink(node);
+            source.insertBefore(node, higher.head);
+            higher.head = node;
+            higher.count++;
+        } else {
+            Bucket incremented = new Bucket(frequency + 1);
+            incremented.head = node;
+            incremented.count = 1;
+            link(incremented, higher, bucket.count == 0 ? bucket.lower : bucket);
+        }
+        node.getElement().setFrequency(frequency + 1);
+        if (agingPeriod > 0 && ++accesses >= agingPeriod) {
+            accesses = 0;
+            age(source);
+        }
+    }
+
+    /**
+     * Moves added node to the beginning of the bucket of its count
+     *
+     * @param source - {@link CacheList} for changing
+     * @param node   - added node
+     */
+    @Override
+    void inserted(CacheList source, CacheList.Node node) {
+        int frequency = Math.max(node.getElement().getFrequency(), 1);
+        node.getElement().setFrequency(frequency);
+        source.unlink(node);
+        Bucket bucket = buckets.get(frequency);
+        if (bucket != null) {
+            source.insertBefore(node, bucket.head);
+            bucket.head = node;
+            bucket.count++;
+            return;
+        }
+        Bucket lower = null;
+        Bucket higher = lowest;
+        while (higher != null && higher.frequency < frequency) {
+            lower = higher;
+            higher = higher.higher;
+        }
+        if (lower == null) {
+            source.addLast(node);
+        } else {
+            source.insertBefore(node, lower.head);
+        }
+        bucket = new Bucket(frequency);
+        bucket.head = node;
+        bucket.count = 1;
+        link(bucket, higher, lower);
+    }
+
+    /**
+     * @param source - {@link CacheList} for changing
+     * @param node   - node to remove
+     */
+    @Override
+    void removed(CacheList source, CacheList.Node node) {
+        leave(buckets.get(node.getElement().getFrequency()), node);
+    }
+
+    /**
+     * @param source - cleared {@link CacheList}
+     */
+    @Override
+    void cleared(CacheList source) {
+        buckets.clear();
+        lowest = null;
+        accesses = 0;
+    }
+
+    /**
+     * Removes node from the bucket, empty bucket is unlinked from the chain
+     */
+    private void leave(Bucket bucket, CacheList.Node node) {
+        if (bucket.head == node) {
+            bucket.head = node.next;
+        }
+        if (--bucket.count == 0) {
+            unlink(bucket);
+        }
+    }
+
+    private void link(Bucket bucket, Bucket higher, Bucket lower) {
+        bucket.higher = higher;
+        bucket.lower = lower;
+        if (higher != null) {
+            higher.lower = bucket;
+        }
+        if (lower != null) {
+            lower.higher = bucket;
+        } else {
+            lowest = bucket;
+        }
+        buckets.put(bucket.frequency, bucket);
+    }
+
+    private void unlink(Bucket bucket) {
+        if (bucket.higher != null) {
+            bucket.higher.lower = bucket.lower;
+        }
+        if (bucket.lower != null) {
+            bucket.lower.higher = bucket.higher;
+        } else {
+            lowest = bucket.higher;
+        }
+        buckets.remove(bucket.frequency);
+    }
+
+    /**
+     * Halves all counters and rebuilds buckets, the order of elements is kept
+     */
+    private void age(CacheList source) {
+        buckets.clear();
+        lowest = null;
+        Bucket higher = null;
+        for (CacheList.Node node : source) {
+            CacheObject element = node.getElement();
+            int frequency = Math.max(element.getFrequency() / 2, 1);
+            element.setFrequency(frequency);
+            if (higher != null && higher.frequency == frequency) {
+                higher.count++;
+            } else {
+                Bucket bucket = new Bucket(frequency);
+                bucket.head = node;
+                bucket.count = 1;
+                link(bucket, higher, null);
+                higher = bucket;
+            }
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package ru.home.rodionov.cache;
 
-import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Cache data structure
  */
-public abstract class Cache<K extends Object & Serializable, V extends Object & Serializable> {
+public abstract class Cache<K, V> {
+
+    private final List<RemovalListener<K, V>> removalListeners = new CopyOnWriteArrayList<>();
 
     abstract void add(K key, V value);
 
@@ -27,4 +34,118 @@ public abstract class Cache<K extends Object & Serializable, V extends Object &
     abstract LinkedList removeNotActual();
 
     abstract int indexOf(K key);
+
+    abstract V remove(K key);
+
+    /**
+     * Create new element with key-value and its own storage time and appends it to the end of this cache
+     *
+     * @param key   - key
+     * @param value - value
+     * @param TTL   - storage time of this element in milliseconds, it is kept when the element moves between caches
+     */
+    public void add(K key, V value, long TTL) {
+        addLast(new CacheObject<>(key, value, TTL));
+    }
+
+    /**
+     * Finds values of several keys, implementations storing the data in files do it by one pass
+     *
+     * @param keys - keys
+     * @return found values by keys in the order of keys, missing keys are absent
+     */
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> values = new LinkedHashMap<>();
+        for (K key : keys) {
+            V value = get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Adds several elements as {@link #add(Object, Object)} does, implementations storing the data in files
+     * do it by one pass
+     *
+     * @param entries - keys and values
+     */
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            add(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Removes elements of several keys, implementations storing the data in files do it by one pass
+     *
+     * @param keys - keys
+     */
+    public void removeAll(Collection<? extends K> keys) {
+        for (K key : keys) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Inserts elements in the beginning one by one, so the last of them becomes the first,
+     * then removes the last elements while the size exceeds max size
+     *
+     * @param elements - elements to insert
+     * @param maxSize  - max size of this cache
+     * @return removed elements
+     */
+    List<CacheObject> addAllFirst(List<CacheObject> elements, int maxSize) {
+        for (CacheObject element : elements) {
+            addFirst(element);
+        }
+        List<CacheObject> removed = new ArrayList<>();
+        for (int size = size(); size > maxSize; size--) {
+            removed.add(removeLast());
+        }
+        return removed;
+    }
+
+    /**
+     * @return statistics of {@link CompressingCodec} of values or null if this cache doesn't compress them
+     */
+    CompressionStats getCompressionStats() {
+        return null;
+    }
+
+    /**
+     * @return statistics of {@link BloomFilteredCache} or null if this cache is not filtered
+     */
+    BloomFilterStats getFilterStats() {
+        return null;
+    }
+
+    /**
+     * Adds listener of elements expired or evicted by this cache
+     *
+     * @param listener - any implementation of {@link RemovalListener}
+     */
+    public void addRemovalListener(RemovalListener<K, V> listener) {
+        removalListeners.add(listener);
+    }
+
+    /**
+     * @return true if somebody listens to removed elements
+     */
+    boolean hasRemovalListeners() {
+        return !removalListeners.isEmpty();
+    }
+
+    /**
+     * Passes the element removed by this cache to listeners
+     *
+     * @param element - removed element
+     * @param cause   - reason of removing
+     */
+    void notifyRemoval(CacheObject<K, V> element, RemovalCause cause) {
+        for (RemovalListener<K, V> listener : removalListeners) {
+            listener.onRemoval(element, cause);
+        }
+    }
 }
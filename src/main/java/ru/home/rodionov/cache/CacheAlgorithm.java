@@ -12,4 +12,85 @@ public abstract class CacheAlgorithm {
      * @return - changed  {@link LinkedList} of {@link CacheObject}
      */
     abstract LinkedList<CacheObject> shift(LinkedList<CacheObject> source, CacheObject key);
+
+    /**
+     * Same displacement as {@link #shift(LinkedList, CacheObject)} for caches based on {@link CacheList},
+     * must not scan the list
+     *
+     * @param source - {@link CacheList} for changing
+     * @param node   - node of the element for shifting
+     */
+    abstract void shift(CacheList source, CacheList.Node node);
+
+    /**
+     * Called by caches based on {@link LinkedList} which report their elements, after the element is added
+     *
+     * @param source  - {@link LinkedList} for changing
+     * @param element - added element
+     */
+    void inserted(LinkedList<CacheObject> source, CacheObject element) {
+    }
+
+    /**
+     * Called by caches based on {@link LinkedList} which report their elements, before the element is removed
+     *
+     * @param source  - {@link LinkedList} for changing
+     * @param element - element to remove
+     */
+    void removed(LinkedList<CacheObject> source, CacheObject element) {
+    }
+
+    /**
+     * Called by caches based on {@link LinkedList} which report their elements, after the list is cleared
+     *
+     * @param source - cleared {@link LinkedList}
+     */
+    void cleared(LinkedList<CacheObject> source) {
+    }
+
+    /**
+     * Called by caches based on {@link LinkedList} which report their elements, to choose the element to displace
+     *
+     * @param source - {@link LinkedList} of the elements
+     * @return element to remove, the last element by default, or null if the list is empty
+     */
+    CacheObject victim(LinkedList<CacheObject> source) {
+        return source.peekLast();
+    }
+
+    /**
+     * Called by caches based on {@link CacheList} after the node is added to the list
+     *
+     * @param source - {@link CacheList} for changing
+     * @param node   - added node
+     */
+    void inserted(CacheList source, CacheList.Node node) {
+    }
+
+    /**
+     * Called by caches based on {@link CacheList} before the node is removed from the list
+     *
+     * @param source - {@link CacheList} for changing
+     * @param node   - node to remove
+     */
+    void removed(CacheList source, CacheList.Node node) {
+    }
+
+    /**
+     * Called by caches based on {@link CacheList} after the list is cleared
+     *
+     * @param source - cleared {@link CacheList}
+     */
+    void cleared(CacheList source) {
+    }
+
+    /**
+     * Called by caches based on {@link CacheList} to choose the element to displace
+     *
+     * @param source - {@link CacheList} of the elements
+     * @return node to remove, the last node by default, or null if the list is empty
+     */
+    CacheList.Node victim(CacheList source) {
+        return source.last();
+    }
 }
@@ -0,0 +1,211 @@
+package ru.home.rodionov.cache;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Intrusive doubly linked list of {@link CacheObject} nodes.
+ * Unlike {@link java.util.LinkedList} the caller keeps a reference to the node,
+ * so unlinking and moving an element does not require a scan of the list.
+ */
+class CacheList implements Iterable<CacheList.Node> {
+
+    private Node head;
+    private Node tail;
+    private int size;
+
+    /**
+     * Element of {@link CacheList}, can also be linked into a bucket of {@link TimingWheel}
+     */
+    static class Node {
+        CacheObject element;
+        Node prev;
+        Node next;
+        boolean linked;
+        Node timerPrev;
+        Node timerNext;
+
+        Node(CacheObject element) {
+            this.element = element;
+        }
+
+        CacheObject getElement() {
+            return element;
+        }
+    }
+
+    /**
+     * @return first node or null if the list is empty
+     */
+    Node first() {
+        return head;
+    }
+
+    /**
+     * @return last node or null if the list is empty
+     */
+    Node last() {
+        return tail;
+    }
+
+    /**
+     * @return nodes count in this list
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Inserts node in the beginning of this list
+     *
+     * @param node - unlinked node
+     */
+    void addFirst(Node node) {
+        node.prev = null;
+        node.next = head;
+        if (head == null) {
+            tail = node;
+        } else {
+            head.prev = node;
+        }
+        head = node;
+        node.linked = true;
+        size++;
+    }
+
+    /**
+     * Appends node to the end of this list
+     *
+     * @param node - unlinked node
+     */
+    void addLast(Node node) {
+        node.next = null;
+        node.prev = tail;
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+        node.linked = true;
+        size++;
+    }
+
+    /**
+     * Inserts node right before the anchor
+     *
+     * @param node   - unlinked node
+     * @param anchor - linked node of this list
+     */
+    void insertBefore(Node node, Node anchor) {
+        if (anchor == head) {
+            addFirst(node);
+            return;
+        }
+        node.prev = anchor.prev;
+        node.next = anchor;
+        anchor.prev.next = node;
+        anchor.prev = node;
+        node.linked = true;
+        size++;
+    }
+
+    /**
+     * Removes node from this list
+     *
+     * @param node - linked node of this list
+     */
+    void unlink(Node node) {
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+        node.linked = false;
+        size--;
+    }
+
+    /**
+     * Moves node to the beginning of this list
+     *
+     * @param node - linked node of this list
+     */
+    void moveToFront(Node node) {
+        if (node != head) {
+            unlink(node);
+            addFirst(node);
+        }
+    }
+
+    /**
+     * Swaps node with its previous neighbour
+     *
+     * @param node - linked node of this list
+     */
+    void moveBackward(Node node) {
+        Node prev = node.prev;
+        if (prev != null) {
+            unlink(node);
+            insertBefore(node, prev);
+        }
+    }
+
+    /**
+     * Unlinks all nodes
+     */
+    void clear() {
+        Node node = head;
+        while (node != null) {
+            Node next = node.next;
+            node.prev = null;
+            node.next = null;
+            node.linked = false;
+            node = next;
+        }
+        head = null;
+        tail = null;
+        size = 0;
+    }
+
+    /**
+     * Iterator from the first node to the last one, supports {@link Iterator#remove()}
+     */
+    @Override
+    public Iterator<Node> iterator() {
+        return new Iterator<Node>() {
+            private Node next = head;
+            private Node current;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Node next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                current = next;
+                next = next.next;
+                return current;
+            }
+
+            @Override
+            public void remove() {
+                if (current == null) {
+                    throw new IllegalStateException();
+                }
+                unlink(current);
+                current = null;
+            }
+        };
+    }
+}
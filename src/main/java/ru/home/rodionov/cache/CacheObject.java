@@ -8,11 +8,13 @@ import java.io.Serializable;
  * @param <K> - parametric key
  * @param <V> - parametric value
  */
-public class CacheObject<K extends Object & Serializable, V extends Object & Serializable> implements Serializable {
+public class CacheObject<K, V> implements Serializable {
     private static final long serialVersionUID = 20160704L;
     private K key;
     private V value;
     private long endOfLife;
+    private int frequency;
+    private transient long weight;
 
     /**
      * @param key   - key
@@ -25,6 +27,21 @@ public class CacheObject<K extends Object & Serializable, V extends Object & Ser
         endOfLife = System.currentTimeMillis() + TTL;
     }
 
+    /**
+     * Restores element read from storage
+     *
+     * @param key       - key
+     * @param value     - value
+     * @param endOfLife - expiration time in milliseconds since epoch
+     * @param frequency - access count
+     */
+    CacheObject(K key, V value, long endOfLife, int frequency) {
+        this.key = key;
+        this.value = value;
+        this.endOfLife = endOfLife;
+        this.frequency = frequency;
+    }
+
     public long getEndOfLife() {
         return endOfLife;
     }
@@ -36,5 +53,28 @@ public class CacheObject<K extends Object & Serializable, V extends Object & Ser
     public V getValue() {
         return value;
     }
+
+    /**
+     * @return access count kept by frequency based {@link CacheAlgorithm}
+     */
+    int getFrequency() {
+        return frequency;
+    }
+
+    void setFrequency(int frequency) {
+        this.frequency = frequency;
+    }
+
+    /**
+     * @return weight given by {@link Weigher} when the element came to a level limited by weight
+     * or 0 if it is not weighed yet
+     */
+    long getWeight() {
+        return weight;
+    }
+
+    void setWeight(long weight) {
+        this.weight = weight;
+    }
 }
 
@@ -0,0 +1,175 @@
+package ru.home.rodionov.cache;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Statistics of {@link TwoLevelCache}: hits, misses, evictions, expirations, promotions, demotions
+ * and latencies of get and put of every level. Recording is lock-free, so statistics are always on.
+ * <p>
+ * Request to the cache is counted as a hit of the first level that has the element
+ * and as misses of the levels checked before it, a miss of the cache is a miss of the second level.
+ */
+public class CacheStats implements CacheStatsMXBean {
+    private static final String DOMAIN = "ru.home.rodionov.cache";
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+
+    final LevelStats window;
+    final LevelStats firstLevel = new LevelStats();
+    final LevelStats secondLevel = new LevelStats();
+
+    /**
+     * Immutable copy of the statistics
+     */
+    public static class Snapshot {
+        private final LevelStats.Snapshot window;
+        private final LevelStats.Snapshot firstLevel;
+        private final LevelStats.Snapshot secondLevel;
+
+        private Snapshot(CacheStats stats) {
+            this.window = stats.window == null ? null : stats.window.snapshot();
+            this.firstLevel = stats.firstLevel.snapshot();
+            this.secondLevel = stats.secondLevel.snapshot();
+        }
+
+        /**
+         * @return statistics of the admission window or null if the cache has no window
+         */
+        public LevelStats.Snapshot getWindow() {
+            return window;
+        }
+
+        public LevelStats.Snapshot getFirstLevel() {
+            return firstLevel;
+        }
+
+        public LevelStats.Snapshot getSecondLevel() {
+            return secondLevel;
+        }
+
+        /**
+         * @return requests served by any level
+         */
+        public long getHits() {
+            long hits = firstLevel.getHits() + secondLevel.getHits();
+            return window == null ? hits : hits + window.getHits();
+        }
+
+        /**
+         * @return requests not served by any level
+         */
+        public long getMisses() {
+            return secondLevel.getMisses();
+        }
+
+        /**
+         * @return share of hits in all requests or 0 if there were no requests
+         */
+        public double getHitRate() {
+            long requests = getHits() + getMisses();
+            return requests == 0 ? 0 : (double) getHits() / requests;
+        }
+    }
+
+    /**
+     * @param window - true if the cache has the admission window
+     */
+    CacheStats(boolean window) {
+        this.window = window ? new LevelStats() : null;
+    }
+
+    /**
+     * @return copy of all counters and latencies
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Registers these statistics in the platform MBean server
+     *
+     * @param name - name of the cache, unique in the JVM
+     * @return name of the registered MBean, can be used to unregister it
+     * @throws JMException if the name is taken or invalid
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=CacheStats,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public double getHitRate() {
+        return snapshot().getHitRate();
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Snapshot snapshot = snapshot();
+        Map<String, Long> counters = new LinkedHashMap<>();
+        if (snapshot.window != null) {
+            putCounters(counters, "window", snapshot.window);
+        }
+        putCounters(counters, "firstLevel", snapshot.firstLevel);
+        putCounters(counters, "secondLevel", snapshot.secondLevel);
+        return counters;
+    }
+
+    @Override
+    public Map<String, Double> getLatencies() {
+        Snapshot snapshot = snapshot();
+        Map<String, Double> latencies = new LinkedHashMap<>();
+        if (snapshot.window != null) {
+            putLatencies(latencies, "window.get", snapshot.window.getGetLatency());
+            putLatencies(latencies, "window.put", snapshot.window.getPutLatency());
+        }
+        putLatencies(latencies, "firstLevel.get", snapshot.firstLevel.getGetLatency());
+        putLatencies(latencies, "firstLevel.put", snapshot.firstLevel.getPutLatency());
+        putLatencies(latencies, "secondLevel.get", snapshot.secondLevel.getGetLatency());
+        putLatencies(latencies, "secondLevel.put", snapshot.secondLevel.getPutLatency());
+        return latencies;
+    }
+
+    @Override
+    public void reset() {
+        if (window != null) {
+            window.reset();
+        }
+        firstLevel.reset();
+        secondLevel.reset();
+    }
+
+    private static void putCounters(Map<String, Long> counters, String level, LevelStats.Snapshot stats) {
+        counters.put(level + ".hits", stats.getHits());
+        counters.put(level + ".misses", stats.getMisses());
+        counters.put(level + ".evictions", stats.getEvictions());
+        counters.put(level + ".expirations", stats.getExpirations());
+        counters.put(level + ".promotions", stats.getPromotions());
+        counters.put(level + ".demotions", stats.getDemotions());
+        counters.put(level + ".weight", stats.getWeight());
+        CompressionStats.Snapshot compression = stats.getCompression();
+        if (compression != null) {
+            counters.put(level + ".compression.rawBytes", compression.getRawBytes());
+            counters.put(level + ".compression.storedBytes", compression.getStoredBytes());
+            counters.put(level + ".compression.compressTime", compression.getCompressTime());
+            counters.put(level + ".compression.decompressTime", compression.getDecompressTime());
+        }
+        BloomFilterStats.Snapshot filter = stats.getFilter();
+        if (filter != null) {
+            counters.put(level + ".filter.skipped", filter.getSkipped());
+            counters.put(level + ".filter.passed", filter.getPassed());
+            counters.put(level + ".filter.falsePositives", filter.getFalsePositives());
+        }
+    }
+
+    private static void putLatencies(Map<String, Double> latencies, String operation, LatencyHistogram.Snapshot histogram) {
+        latencies.put(operation + ".mean", histogram.getMean() / 1000);
+        for (double percentile : PERCENTILES) {
+            String suffix = percentile == (long) percentile ? String.valueOf((long) percentile) : String.valueOf(percentile);
+            latencies.put(operation + ".p" + suffix, histogram.getPercentile(percentile) / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ru.home.rodionov.cache;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link CacheStats}
+ */
+public interface CacheStatsMXBean {
+
+    /**
+     * @return share of requests served by any level
+     */
+    double getHitRate();
+
+    /**
+     * @return counters of levels by names like "firstLevel.hits"
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * @return mean and percentiles of latencies in microseconds by names like "secondLevel.get.p99"
+     */
+    Map<String, Double> getLatencies();
+
+    /**
+     * Forgets all counters and latencies
+     */
+    void reset();
+}
@@ -0,0 +1,433 @@
+package ru.home.rodionov.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation cache data structure with CLOCK displacement, store the data in RAM.
+ * Elements are kept in a circular array of slots, every slot has a reference bit.
+ * {@link #get(Object)} doesn't take the lock and doesn't change any order: it only sets the reference bit
+ * of the found slot by a lazy write. When the cache is full the hand sweeps the slots under the lock,
+ * clears reference bits it passes and displaces the first element not referenced since the previous pass.
+ * <p>
+ * With CLOCK-Pro elements are added as cold, cold element referenced again becomes hot
+ * and hot elements are displaced only after they are demoted to cold by the hot hand, so a scan of
+ * new elements displaces other new elements instead of the hot ones. Keys of displaced cold elements
+ * are remembered for a test period: adding such key again makes the element hot at once and increases
+ * the target count of cold elements, forgotten key decreases it.
+ * <p>
+ * Elements are ordered as the hand reaches them from the most recently passed one,
+ * so {@link #removeLast()} removes the element chosen by the hand.
+ * Get racing with displacement of the same element may miss it.
+ */
+public class ClockCache extends Cache {
+    private static final byte EMPTY = 0;
+    private static final byte COLD = 1;
+    private static final byte HOT = 2;
+
+    private Map<Object, Integer> index = new ConcurrentHashMap<>();
+    private AtomicReferenceArray<CacheObject> slots;
+    private AtomicIntegerArray referenced;
+    private byte[] status;
+    private int[] free;
+    private int freeCount;
+    private int hand;
+    private int hotHand;
+    private int size;
+    private int hotCount;
+    private int coldTarget;
+    private Set<Object> testKeys;
+    private long nextExpiry = Long.MAX_VALUE;
+
+    private int maxSize;
+    private boolean pro;
+    private ReentrantLock lock = new ReentrantLock();
+    private long TTL;
+
+    /**
+     * Cache with CLOCK displacement
+     *
+     * @param TTL     - storage time for elements in milliseconds
+     * @param maxSize - max size of this cache, count of slots
+     */
+    public ClockCache(long TTL, int maxSize) {
+        this(TTL, maxSize, false);
+    }
+
+    /**
+     * @param TTL     - storage time for elements in milliseconds
+     * @param maxSize - max size of this cache, count of slots
+     * @param pro     - true for CLOCK-Pro displacement resistant to scans
+     */
+    public ClockCache(long TTL, int maxSize, boolean pro) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Max size must be positive");
+        }
+        this.TTL = TTL;
+        this.maxSize = maxSize;
+        this.pro = pro;
+        this.slots = new AtomicReferenceArray<>(maxSize);
+        this.referenced = new AtomicIntegerArray(maxSize);
+        this.status = new byte[maxSize];
+        this.free = new int[maxSize];
+        this.testKeys = new LinkedHashSet<>();
+        reset();
+    }
+
+    /**
+     * Create new element with key-value and adds it to this cache
+     *
+     * @param key   - key
+     * @param value - value
+     */
+    @Override
+    public void add(Object key, Object value) {
+        addLast(new CacheObject(key, value, TTL));
+    }
+
+    /**
+     * Adds element, the order is kept by the hand, so it is the same as {@link #addLast(CacheObject)}
+     *
+     * @param element - the element to add
+     */
+    @Override
+    public void addFirst(CacheObject element) {
+        addLast(element);
+    }
+
+    /**
+     * Adds element to a free slot or to the slot of displaced element, replaces previous element with the same key
+     *
+     * @param element - the element to add
+     */
+    @Override
+    public void addLast(CacheObject element) {
+        try {
+            lock.lock();
+            Integer previous = index.get(element.getKey());
+            if (previous != null) {
+                slots.set(previous, element);
+                referenced.lazySet(previous, 1);
+            } else {
+                if (freeCount == 0) {
+                    int victim = sweep();
+                    CacheObject displaced = removeSlot(victim, true);
+                    boolean expired = displaced.getEndOfLife() < System.currentTimeMillis();
+                    notifyRemoval(displaced, expired ? RemovalCause.EXPIRED : RemovalCause.EVICTED);
+                }
+                int slot = free[--freeCount];
+                status[slot] = pro && testKeys.remove(element.getKey()) ? admitTested() : COLD;
+                if (status[slot] == HOT) {
+                    hotCount++;
+                }
+                referenced.set(slot, 0);
+                slots.set(slot, element);
+                index.put(element.getKey(), slot);
+                size++;
+            }
+            nextExpiry = Math.min(nextExpiry, element.getEndOfLife());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Clears the cache, remembered keys of CLOCK-Pro are forgotten too
+     */
+    @Override
+    public void clear() {
+        try {
+            lock.lock();
+            index.clear();
+            for (int i = 0; i < maxSize; i++) {
+                slots.set(i, null);
+                referenced.set(i, 0);
+                status[i] = EMPTY;
+            }
+            testKeys.clear();
+            reset();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the element most recently passed by the hand
+     *
+     * @return removed element
+     */
+    @Override
+    public CacheObject removeFirst() {
+        try {
+            lock.lock();
+            if (size == 0) {
+                throw new NoSuchElementException();
+            }
+            int slot = hand;
+            do {
+                slot = slot == 0 ? maxSize - 1 : slot - 1;
+            } while (status[slot] == EMPTY);
+            return removeSlot(slot, false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the element chosen by the hand, as displacement of full cache does
+     *
+     * @return removed element
+     */
+    @Override
+    public CacheObject removeLast() {
+        try {
+            lock.lock();
+            if (size == 0) {
+                throw new NoSuchElementException();
+            }
+            return removeSlot(sweep(), true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return elements count in this cache
+     */
+    @Override
+    public int size() {
+        removeNotActual();
+        return size;
+    }
+
+    /**
+     * Finds the element without the lock and marks it as referenced
+     *
+     * @param key - key
+     * @return value by key or null if not exists
+     */
+    @Override
+    public Object get(Object key) {
+        Integer slot = index.get(key);
+        if (slot == null) {
+            return null;
+        }
+        CacheObject element = slots.get(slot);
+        if (element == null || !key.equals(element.getKey()) || element.getEndOfLife() < System.currentTimeMillis()) {
+            return null;
+        }
+        if (referenced.get(slot) == 0) {
+            referenced.lazySet(slot, 1);
+        }
+        return element.getValue();
+    }
+
+    /**
+     * method for removeLast all old elements
+     *
+     * @return null, elements are not copied to a list
+     */
+    @Override
+    public LinkedList removeNotActual() {
+        try {
+            lock.lock();
+            long now = System.currentTimeMillis();
+            if (now <= nextExpiry) {
+                return null;
+            }
+            long next = Long.MAX_VALUE;
+            for (int i = 0; i < maxSize; i++) {
+                CacheObject element = slots.get(i);
+                if (element == null) {
+                    continue;
+                }
+                if (element.getEndOfLife() < now) {
+                    notifyRemoval(removeSlot(i, false), RemovalCause.EXPIRED);
+                } else {
+                    next = Math.min(next, element.getEndOfLife());
+                }
+            }
+            nextExpiry = next;
+        } finally {
+            lock.unlock();
+        }
+        return null;
+    }
+
+    /**
+     * Removes element by key
+     *
+     * @param key - key
+     * @return value of the removed element or null if this cache does not contain actual element
+     */
+    @Override
+    public Object remove(Object key) {
+        try {
+            lock.lock();
+            Integer slot = index.get(key);
+            if (slot == null) {
+                return null;
+            }
+            CacheObject element = removeSlot(slot, false);
+            return element.getEndOfLife() < System.currentTimeMillis() ? null : element.getValue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param key - key of the element
+     * @return count of elements passed by the hand after the element or -1 if this cache does not contain it
+     */
+    @Override
+    public int indexOf(Object key) {
+        try {
+            lock.lock();
+            Integer target = index.get(key);
+            if (target == null) {
+                return -1;
+            }
+            int i = 0;
+            int slot = hand;
+            do {
+                slot = slot == 0 ? maxSize - 1 : slot - 1;
+                if (slot == target) {
+                    return i;
+                }
+                if (status[slot] != EMPTY) {
+                    i++;
+                }
+            } while (true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the hand to the element to displace, must be called under lock on not empty cache.
+     * Expired element is displaced at once, referenced elements get the second chance.
+     *
+     * @return slot of the element to displace
+     */
+    private int sweep() {
+        long now = System.currentTimeMillis();
+        while (true) {
+            if (pro && hotCount == size) {
+                demoteHot();
+            }
+            int slot = hand;
+            hand = hand + 1 == maxSize ? 0 : hand + 1;
+            CacheObject element = slots.get(slot);
+            if (element == null) {
+                continue;
+            }
+            if (element.getEndOfLife() < now) {
+                return slot;
+            }
+            if (pro && status[slot] == HOT) {
+                continue;
+            }
+            if (referenced.get(slot) == 0) {
+                return slot;
+            }
+            referenced.set(slot, 0);
+            if (pro) {
+                promote(slot);
+            }
+        }
+    }
+
+    /**
+     * Makes referenced cold element hot, the hot hand demotes a hot element if there are too many of them
+     */
+    private void promote(int slot) {
+        if (hotCount > 0 && hotCount >= maxSize - coldTarget) {
+            demoteHot();
+        }
+        if (hotCount < maxSize - coldTarget) {
+            status[slot] = HOT;
+            hotCount++;
+        }
+    }
+
+    /**
+     * Moves the hot hand to the first hot element not referenced since its previous pass and makes it cold,
+     * must be called when there are hot elements
+     */
+    private void demoteHot() {
+        while (true) {
+            int slot = hotHand;
+            hotHand = hotHand + 1 == maxSize ? 0 : hotHand + 1;
+            if (status[slot] != HOT) {
+                continue;
+            }
+            if (referenced.get(slot) == 0) {
+                status[slot] = COLD;
+                hotCount--;
+                return;
+            }
+            referenced.set(slot, 0);
+        }
+    }
+
+    /**
+     * Key displaced recently is added again, so cold elements are displaced too early
+     *
+     * @return status of the new element
+     */
+    private byte admitTested() {
+        coldTarget = Math.min(coldTarget + 1, Math.max(1, maxSize - 1));
+        return hotCount < maxSize - coldTarget ? HOT : COLD;
+    }
+
+    /**
+     * Frees the slot, must be called under lock
+     *
+     * @param slot      - occupied slot
+     * @param displaced - true if the element is displaced by the hand, so CLOCK-Pro remembers its key
+     * @return element of the slot
+     */
+    private CacheObject removeSlot(int slot, boolean displaced) {
+        CacheObject element = slots.get(slot);
+        if (displaced && pro && status[slot] == COLD) {
+            testKeys.add(element.getKey());
+            if (testKeys.size() > maxSize) {
+                Iterator<Object> it = testKeys.iterator();
+                it.next();
+                it.remove();
+                coldTarget = Math.max(1, coldTarget - 1);
+            }
+        }
+        if (status[slot] == HOT) {
+            hotCount--;
+        }
+        status[slot] = EMPTY;
+        slots.set(slot, null);
+        referenced.set(slot, 0);
+        index.remove(element.getKey(), slot);
+        free[freeCount++] = slot;
+        size--;
+        return element;
+    }
+
+    private void reset() {
+        for (int i = 0; i < maxSize; i++) {
+            free[i] = maxSize - 1 - i;
+        }
+        freeCount = maxSize;
+        hand = 0;
+        hotHand = 0;
+        size = 0;
+        hotCount = 0;
+        coldTarget = Math.max(1, maxSize / 2);
+        nextExpiry = Long.MAX_VALUE;
+    }
+}
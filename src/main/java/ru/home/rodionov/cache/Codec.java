@@ -0,0 +1,50 @@
+package ru.home.rodionov.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Binary format of keys or values stored by caches based on files.
+ * Built-in codecs are in {@link Codecs}.
+ *
+ * @param <T> - type of encoded objects
+ */
+public abstract class Codec<T> {
+
+    /**
+     * @param value - object to write, may be null only if the codec supports it
+     * @param out   - destination
+     */
+    public abstract void write(T value, DataOutput out) throws IOException;
+
+    /**
+     * @param in - source
+     * @return read object
+     */
+    public abstract T read(DataInput in) throws IOException;
+
+    /**
+     * @param value - object to encode
+     * @return object as bytes
+     */
+    byte[] encode(T value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        write(value, output);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param bytes - object encoded by {@link #encode(Object)}
+     * @return decoded object
+     */
+    T decode(byte[] bytes) throws IOException {
+        return read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+}
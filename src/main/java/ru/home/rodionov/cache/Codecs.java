@@ -0,0 +1,288 @@
+package ru.home.rodionov.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Built-in implementations of {@link Codec}
+ */
+public final class Codecs {
+
+    /**
+     * UTF-8 bytes with length prefix
+     */
+    public static final Codec<String> STRING = new Codec<String>() {
+        @Override
+        public void write(String value, DataOutput out) throws IOException {
+            BYTES.write(value.getBytes(StandardCharsets.UTF_8), out);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return new String(BYTES.read(in), StandardCharsets.UTF_8);
+        }
+    };
+
+    /**
+     * Bytes with length prefix
+     */
+    public static final Codec<byte[]> BYTES = new Codec<byte[]>() {
+        @Override
+        public void write(byte[] value, DataOutput out) throws IOException {
+            writeLength(value.length, out);
+            out.write(value);
+        }
+
+        @Override
+        public byte[] read(DataInput in) throws IOException {
+            byte[] value = new byte[readLength(in)];
+            in.readFully(value);
+            return value;
+        }
+    };
+
+    public static final Codec<Long> LONG = new Codec<Long>() {
+        @Override
+        public void write(Long value, DataOutput out) throws IOException {
+            out.writeLong(value);
+        }
+
+        @Override
+        public Long read(DataInput in) throws IOException {
+            return in.readLong();
+        }
+    };
+
+    public static final Codec<Integer> INTEGER = new Codec<Integer>() {
+        @Override
+        public void write(Integer value, DataOutput out) throws IOException {
+            out.writeInt(value);
+        }
+
+        @Override
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+
+    public static final Codec<Short> SHORT = new Codec<Short>() {
+        @Override
+        public void write(Short value, DataOutput out) throws IOException {
+            out.writeShort(value);
+        }
+
+        @Override
+        public Short read(DataInput in) throws IOException {
+            return in.readShort();
+        }
+    };
+
+    public static final Codec<Byte> BYTE = new Codec<Byte>() {
+        @Override
+        public void write(Byte value, DataOutput out) throws IOException {
+            out.writeByte(value);
+        }
+
+        @Override
+        public Byte read(DataInput in) throws IOException {
+            return in.readByte();
+        }
+    };
+
+    public static final Codec<Double> DOUBLE = new Codec<Double>() {
+        @Override
+        public void write(Double value, DataOutput out) throws IOException {
+            out.writeDouble(value);
+        }
+
+        @Override
+        public Double read(DataInput in) throws IOException {
+            return in.readDouble();
+        }
+    };
+
+    public static final Codec<Float> FLOAT = new Codec<Float>() {
+        @Override
+        public void write(Float value, DataOutput out) throws IOException {
+            out.writeFloat(value);
+        }
+
+        @Override
+        public Float read(DataInput in) throws IOException {
+            return in.readFloat();
+        }
+    };
+
+    public static final Codec<Boolean> BOOLEAN = new Codec<Boolean>() {
+        @Override
+        public void write(Boolean value, DataOutput out) throws IOException {
+            out.writeBoolean(value);
+        }
+
+        @Override
+        public Boolean read(DataInput in) throws IOException {
+            return in.readBoolean();
+        }
+    };
+
+    public static final Codec<Character> CHARACTER = new Codec<Character>() {
+        @Override
+        public void write(Character value, DataOutput out) throws IOException {
+            out.writeChar(value);
+        }
+
+        @Override
+        public Character read(DataInput in) throws IOException {
+            return in.readChar();
+        }
+    };
+
+    /**
+     * Java serialization, object must implement {@link java.io.Serializable}
+     */
+    public static final Codec<Object> SERIALIZABLE = new Codec<Object>() {
+        @Override
+        public void write(Object value, DataOutput out) throws IOException {
+            BYTES.write(Serialization.toBytes(value), out);
+        }
+
+        @Override
+        public Object read(DataInput in) throws IOException {
+            return Serialization.fromBytes(BYTES.read(in));
+        }
+    };
+
+    /**
+     * Codec for any object: null, {@link String}, byte[] and boxed primitives are written by built-in codecs
+     * after one byte of the type tag, other objects by Java serialization.
+     * Used by caches when codec is not set.
+     */
+    public static final Codec<Object> DEFAULT = new Codec<Object>() {
+        private final Codec[] codecs = {null, STRING, BYTES, LONG, INTEGER, SHORT, BYTE, DOUBLE, FLOAT, BOOLEAN, CHARACTER};
+        private final Class[] types = {null, String.class, byte[].class, Long.class, Integer.class, Short.class,
+                Byte.class, Double.class, Float.class, Boolean.class, Character.class};
+        private final int serializableTag = codecs.length;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void write(Object value, DataOutput out) throws IOException {
+            if (value == null) {
+                out.writeByte(0);
+                return;
+            }
+            for (int tag = 1; tag < types.length; tag++) {
+                if (types[tag] == value.getClass()) {
+                    out.writeByte(tag);
+                    codecs[tag].write(value, out);
+                    return;
+                }
+            }
+            out.writeByte(serializableTag);
+            SERIALIZABLE.write(value, out);
+        }
+
+        @Override
+        public Object read(DataInput in) throws IOException {
+            int tag = in.readUnsignedByte();
+            if (tag == 0) {
+                return null;
+            }
+            if (tag == serializableTag) {
+                return SERIALIZABLE.read(in);
+            }
+            if (tag > serializableTag) {
+                throw new IOException("Unknown type tag " + tag);
+            }
+            return codecs[tag].read(in);
+        }
+    };
+
+    private Codecs() {
+    }
+
+    /**
+     * @param element - codec of list elements
+     * @param <E>     - type of list elements
+     * @return codec of the list as the length and the elements
+     */
+    public static <E> Codec<List<E>> list(Codec<E> element) {
+        return new Codec<List<E>>() {
+            @Override
+            public void write(List<E> value, DataOutput out) throws IOException {
+                writeLength(value.size(), out);
+                for (E e : value) {
+                    element.write(e, out);
+                }
+            }
+
+            @Override
+            public List<E> read(DataInput in) throws IOException {
+                int size = readLength(in);
+                List<E> value = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    value.add(element.read(in));
+                }
+                return value;
+            }
+        };
+    }
+
+    /**
+     * @param key   - codec of map keys
+     * @param value - codec of map values
+     * @param <K>   - type of map keys
+     * @param <V>   - type of map values
+     * @return codec of the map as the size and pairs of key and value, order of pairs is kept
+     */
+    public static <K, V> Codec<Map<K, V>> map(Codec<K> key, Codec<V> value) {
+        return new Codec<Map<K, V>>() {
+            @Override
+            public void write(Map<K, V> map, DataOutput out) throws IOException {
+                writeLength(map.size(), out);
+                for (Map.Entry<K, V> e : map.entrySet()) {
+                    key.write(e.getKey(), out);
+                    value.write(e.getValue(), out);
+                }
+            }
+
+            @Override
+            public Map<K, V> read(DataInput in) throws IOException {
+                int size = readLength(in);
+                Map<K, V> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(key.read(in), value.read(in));
+                }
+                return map;
+            }
+        };
+    }
+
+    /**
+     * Writes non-negative length as variable-length integer, 7 bits per byte
+     */
+    static void writeLength(int length, DataOutput out) throws IOException {
+        while ((length & ~0x7f) != 0) {
+            out.writeByte((length & 0x7f) | 0x80);
+            length >>>= 7;
+        }
+        out.writeByte(length);
+    }
+
+    static int readLength(DataInput in) throws IOException {
+        int length = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            length |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return length;
+            }
+        }
+        throw new IOException("Malformed length");
+    }
+}
@@ -0,0 +1,155 @@
+package ru.home.rodionov.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Codec compressing objects encoded by another codec with {@link Deflater}.
+ * Objects encoded to fewer bytes than the threshold and objects not reduced by compression are stored raw,
+ * one byte of the flag tells how the object is stored, so the threshold and the level can be changed
+ * for existing files. Bytes and CPU time are counted by {@link CompressionStats}.
+ * Every thread reuses its own {@link Deflater} and {@link Inflater}, so native buffers are not allocated per value.
+ * <p>
+ * Usually wraps the codec of values of the second level, for example
+ * {@code new FileCache(path, algorithm, TTL, Codecs.DEFAULT, new CompressingCodec<>(Codecs.DEFAULT))}.
+ *
+ * @param <T> - type of encoded objects
+ */
+public class CompressingCodec<T> extends Codec<T> {
+    private static final int DEFAULT_THRESHOLD = 512;
+    private static final int RAW = 0;
+    private static final int DEFLATED = 1;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+
+    private final Codec<T> codec;
+    private final int threshold;
+    private final CompressionStats stats = new CompressionStats();
+    private final ThreadLocal<Deflater> deflaters;
+
+    /**
+     * Codec with default compression level compressing objects of 512 bytes and more
+     *
+     * @param codec - codec of the objects
+     */
+    public CompressingCodec(Codec<T> codec) {
+        this(codec, Deflater.DEFAULT_COMPRESSION, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param codec     - codec of the objects
+     * @param level     - compression level from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     *                  or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param threshold - min count of encoded bytes to compress
+     */
+    public CompressingCodec(Codec<T> codec, int level, int threshold) {
+        if ((level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        }
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative");
+        }
+        this.codec = codec;
+        this.threshold = threshold;
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level));
+    }
+
+    @Override
+    public void write(T value, DataOutput out) throws IOException {
+        byte[] raw = codec.encode(value);
+        stats.rawBytes.add(raw.length);
+        if (raw.length >= threshold) {
+            long start = cpuTime();
+            byte[] deflated = deflate(raw);
+            stats.compressTime.add(cpuTime() - start);
+            if (deflated.length < raw.length) {
+                out.writeByte(DEFLATED);
+                Codecs.writeLength(raw.length, out);
+                Codecs.BYTES.write(deflated, out);
+                stats.storedBytes.add(deflated.length);
+                stats.compressedValues.increment();
+                return;
+            }
+        }
+        out.writeByte(RAW);
+        Codecs.BYTES.write(raw, out);
+        stats.storedBytes.add(raw.length);
+        stats.rawValues.increment();
+    }
+
+    @Override
+    public T read(DataInput in) throws IOException {
+        int flag = in.readUnsignedByte();
+        if (flag == RAW) {
+            return codec.decode(Codecs.BYTES.read(in));
+        }
+        if (flag != DEFLATED) {
+            throw new IOException("Unknown compression flag " + flag);
+        }
+        int length = Codecs.readLength(in);
+        byte[] deflated = Codecs.BYTES.read(in);
+        long start = cpuTime();
+        byte[] raw = inflate(deflated, length);
+        stats.decompressTime.add(cpuTime() - start);
+        return codec.decode(raw);
+    }
+
+    /**
+     * @return counters of this codec
+     */
+    public CompressionStats getStats() {
+        return stats;
+    }
+
+    private byte[] deflate(byte[] raw) {
+        Deflater deflater = deflaters.get();
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    private static byte[] inflate(byte[] deflated, int length) throws IOException {
+        Inflater inflater = INFLATERS.get();
+        try {
+            inflater.setInput(deflated);
+            byte[] raw = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                int count = inflater.inflate(raw, offset, length - offset);
+                if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Compressed value is damaged");
+                }
+                offset += count;
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Compressed value is damaged", e);
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    /**
+     * @return CPU time of the current thread in nanoseconds or elapsed time if it is not supported
+     */
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled()
+                ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+}
@@ -0,0 +1,101 @@
+package ru.home.rodionov.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of {@link CompressingCodec}: bytes before and after compression and CPU time spent on it.
+ * Reported by {@link CacheStats} for the level storing values by the codec.
+ */
+public class CompressionStats {
+    final LongAdder rawBytes = new LongAdder();
+    final LongAdder storedBytes = new LongAdder();
+    final LongAdder compressedValues = new LongAdder();
+    final LongAdder rawValues = new LongAdder();
+    final LongAdder compressTime = new LongAdder();
+    final LongAdder decompressTime = new LongAdder();
+
+    /**
+     * Immutable copy of the compression statistics
+     */
+    public static class Snapshot {
+        private final long rawBytes;
+        private final long storedBytes;
+        private final long compressedValues;
+        private final long rawValues;
+        private final long compressTime;
+        private final long decompressTime;
+
+        private Snapshot(CompressionStats stats) {
+            this.rawBytes = stats.rawBytes.sum();
+            this.storedBytes = stats.storedBytes.sum();
+            this.compressedValues = stats.compressedValues.sum();
+            this.rawValues = stats.rawValues.sum();
+            this.compressTime = stats.compressTime.sum();
+            this.decompressTime = stats.decompressTime.sum();
+        }
+
+        /**
+         * @return bytes of written values before compression
+         */
+        public long getRawBytes() {
+            return rawBytes;
+        }
+
+        /**
+         * @return bytes of written values as they are stored
+         */
+        public long getStoredBytes() {
+            return storedBytes;
+        }
+
+        /**
+         * @return count of values stored compressed
+         */
+        public long getCompressedValues() {
+            return compressedValues;
+        }
+
+        /**
+         * @return count of values stored raw, because they are smaller than the threshold or don't compress
+         */
+        public long getRawValues() {
+            return rawValues;
+        }
+
+        /**
+         * @return raw bytes per stored byte or 1 if nothing is written
+         */
+        public double getRatio() {
+            return storedBytes == 0 ? 1 : (double) rawBytes / storedBytes;
+        }
+
+        /**
+         * @return CPU time of compression in nanoseconds, including attempts not reducing the size
+         */
+        public long getCompressTime() {
+            return compressTime;
+        }
+
+        /**
+         * @return CPU time of decompression in nanoseconds
+         */
+        public long getDecompressTime() {
+            return decompressTime;
+        }
+    }
+
+    /**
+     * @return copy of the counters
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * @param codec - codec of values
+     * @return statistics of the codec if it compresses values or null
+     */
+    static CompressionStats of(Codec codec) {
+        return codec instanceof CompressingCodec ? ((CompressingCodec) codec).getStats() : null;
+    }
+}
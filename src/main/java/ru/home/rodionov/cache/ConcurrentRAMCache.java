@@ -0,0 +1,250 @@
+package ru.home.rodionov.cache;
+
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+/**
+ * Implementation cache data structure for concurrent access, store the data in RAM.
+ * Keys are partitioned by hash into segments, every segment is {@link IndexedRAMCache}
+ * with its own lock, order of the elements and share of max size,
+ * so threads working with different segments don't wait for each other.
+ * Search of the element doesn't take a lock, only shifting of the found element does,
+ * with buffered reads the shifting is deferred and {@link #get(Object)} doesn't wait at all.
+ * Buffered reads are used by default, so hits in the same segment don't serialize.
+ */
+public class ConcurrentRAMCache extends Cache {
+
+    private IndexedRAMCache[] segments;
+    private int segmentMask;
+    private int segmentMaxSize;
+    private long TTL;
+
+    /**
+     * Cache without size limit
+     *
+     * @param algorithm        - supplier of {@link CacheAlgorithm}, called once for every segment
+     * @param TTL              - storage time for elements in milliseconds
+     * @param concurrencyLevel - expected count of concurrently working threads
+     */
+    public ConcurrentRAMCache(Supplier<CacheAlgorithm> algorithm, long TTL, int concurrencyLevel) {
+        this(algorithm, TTL, concurrencyLevel, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Cache with buffered reads
+     *
+     * @param algorithm        - supplier of {@link CacheAlgorithm}, called once for every segment
+     * @param TTL              - storage time for elements in milliseconds
+     * @param concurrencyLevel - expected count of concurrently working threads
+     * @param maxSize          - max size of this cache, every segment gets equal share of it (not less than one element)
+     */
+    public ConcurrentRAMCache(Supplier<CacheAlgorithm> algorithm, long TTL, int concurrencyLevel, int maxSize) {
+        this(algorithm, TTL, concurrencyLevel, maxSize, true);
+    }
+
+    /**
+     * @param algorithm        - supplier of {@link CacheAlgorithm}, called once for every segment
+     * @param TTL              - storage time for elements in milliseconds
+     * @param concurrencyLevel - expected count of concurrently working threads
+     * @param maxSize          - max size of this cache, every segment gets equal share of it (not less than one element)
+     * @param bufferedReads    - true to apply shifting of found elements in batches,
+     *                         see {@link IndexedRAMCache#IndexedRAMCache(CacheAlgorithm, long, boolean)}
+     */
+    public ConcurrentRAMCache(Supplier<CacheAlgorithm> algorithm, long TTL, int concurrencyLevel, int maxSize,
+                              boolean bufferedReads) {
+        if (concurrencyLevel < 1 || maxSize < 1) {
+            throw new IllegalArgumentException("Concurrency level and max size must be positive");
+        }
+        int count = Integer.highestOneBit(Math.min(concurrencyLevel, 1 << 16) * 2 - 1);
+        this.segments = new IndexedRAMCache[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new IndexedRAMCache(algorithm.get(), TTL, bufferedReads);
+        }
+        this.segmentMask = count - 1;
+        this.segmentMaxSize = maxSize == Integer.MAX_VALUE ? maxSize : Math.max(1, maxSize / count);
+        this.TTL = TTL;
+    }
+
+    /**
+     * Create new element with key-value and appends it to the end of its segment
+     *
+     * @param key   - key
+     * @param value - value
+     */
+    @Override
+    public void add(Object key, Object value) {
+        CacheObject element = new CacheObject(key, value, TTL);
+        addLast(element);
+    }
+
+    /**
+     * Inserts element in the beginning of its segment,
+     * the last element of the segment is removed if the segment is full
+     *
+     * @param element - the element to add
+     */
+    @Override
+    public void addFirst(CacheObject element) {
+        segmentFor(element.getKey()).put(element, true, segmentMaxSize);
+    }
+
+    /**
+     * Append element to the end of its segment,
+     * the last element of the segment is removed if the segment is full
+     *
+     * @param element - the element to add
+     */
+    @Override
+    public void addLast(CacheObject element) {
+        segmentFor(element.getKey()).put(element, false, segmentMaxSize);
+    }
+
+    /**
+     * Clears the cache
+     */
+    @Override
+    public void clear() {
+        for (IndexedRAMCache segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Removes first element of the largest segment
+     *
+     * @return removed element
+     */
+    @Override
+    public CacheObject removeFirst() {
+        while (true) {
+            try {
+                return largestSegment().removeFirst();
+            } catch (NoSuchElementException e) {
+                // segment has been emptied by another thread, choose again
+            }
+        }
+    }
+
+    /**
+     * Removes last element of the largest segment
+     *
+     * @return removed element
+     */
+    @Override
+    public CacheObject removeLast() {
+        while (true) {
+            try {
+                return largestSegment().removeLast();
+            } catch (NoSuchElementException e) {
+                // segment has been emptied by another thread, choose again
+            }
+        }
+    }
+
+    /**
+     * @return elements count in this cache
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (IndexedRAMCache segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * @param key - key
+     * @return value by key or null if not exists
+     */
+    @Override
+    public Object get(Object key) {
+        return segmentFor(key).get(key);
+    }
+
+    /**
+     * method for removeLast all old elements
+     *
+     * @return actual elements of all segments as {@link LinkedList}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public LinkedList removeNotActual() {
+        LinkedList<CacheObject> actual = new LinkedList<>();
+        for (IndexedRAMCache segment : segments) {
+            actual.addAll(segment.removeNotActual());
+        }
+        return actual;
+    }
+
+    /**
+     * Removes element by key
+     *
+     * @param key - key
+     * @return value of the removed element or null if this cache does not contain actual element
+     */
+    @Override
+    public Object remove(Object key) {
+        return segmentFor(key).remove(key);
+    }
+
+    /**
+     * @param key - key of the element
+     * @return index of the value counting all elements of previous segments
+     * or -1 if this cache does not contain the element
+     */
+    @Override
+    public int indexOf(Object key) {
+        int segmentIndex = spread(key.hashCode()) & segmentMask;
+        int i = segments[segmentIndex].indexOf(key);
+        if (i < 0) {
+            return -1;
+        }
+        for (int s = 0; s < segmentIndex; s++) {
+            i += segments[s].count();
+        }
+        return i;
+    }
+
+    /**
+     * Adds listener of elements expired or evicted by segments
+     *
+     * @param listener - any implementation of {@link RemovalListener}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void addRemovalListener(RemovalListener listener) {
+        for (IndexedRAMCache segment : segments) {
+            segment.addRemovalListener(listener);
+        }
+    }
+
+    /**
+     * @return the largest segment
+     * @throws NoSuchElementException if all segments are empty
+     */
+    private IndexedRAMCache largestSegment() {
+        IndexedRAMCache largest = null;
+        int largestSize = 0;
+        for (IndexedRAMCache segment : segments) {
+            int size = segment.count();
+            if (size > largestSize) {
+                largest = segment;
+                largestSize = size;
+            }
+        }
+        if (largest == null) {
+            throw new NoSuchElementException();
+        }
+        return largest;
+    }
+
+    private IndexedRAMCache segmentFor(Object key) {
+        return segments[spread(key.hashCode()) & segmentMask];
+    }
+
+    private static int spread(int h) {
+        return (h ^ (h >>> 16)) * 0x9e3779b9;
+    }
+}
@@ -0,0 +1,91 @@
+package ru.home.rodionov.cache;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Counting Bloom filter of keys: every key increments several counters chosen by double hashing
+ * and removing the key decrements them, so keys can be removed unlike in the plain Bloom filter.
+ * Absent key is reported as possibly present with the configured probability, present key is never
+ * reported as absent while every removal follows an addition of the same key.
+ * Counters are atomic, so the filter may be updated by several threads.
+ */
+class CountingBloomFilter {
+    private static final int MIN_SIZE = 64;
+    private static final int MAX_HASHES = 16;
+
+    private final AtomicIntegerArray counters;
+    private final int hashes;
+
+    /**
+     * @param expectedSize      - expected count of keys
+     * @param falsePositiveRate - probability to report absent key as possibly present
+     */
+    CountingBloomFilter(int expectedSize, double falsePositiveRate) {
+        double size = -expectedSize * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        this.counters = new AtomicIntegerArray((int) Math.max(MIN_SIZE, Math.min(Math.ceil(size), 1 << 30)));
+        long hashes = Math.round((double) counters.length() / expectedSize * Math.log(2));
+        this.hashes = (int) Math.max(1, Math.min(hashes, MAX_HASHES));
+    }
+
+    /**
+     * @param key - added key
+     */
+    void add(Object key) {
+        int hash = spread(key.hashCode());
+        int step = spread(hash ^ 0x9e3779b9) | 1;
+        for (int i = 0; i < hashes; i++) {
+            counters.incrementAndGet(indexOf(hash, step, i));
+        }
+    }
+
+    /**
+     * @param key - removed key, must have been added
+     */
+    void remove(Object key) {
+        int hash = spread(key.hashCode());
+        int step = spread(hash ^ 0x9e3779b9) | 1;
+        for (int i = 0; i < hashes; i++) {
+            counters.getAndUpdate(indexOf(hash, step, i), count -> count > 0 ? count - 1 : 0);
+        }
+    }
+
+    /**
+     * @param key - key
+     * @return false if the key is absent for sure
+     */
+    boolean mightContain(Object key) {
+        int hash = spread(key.hashCode());
+        int step = spread(hash ^ 0x9e3779b9) | 1;
+        for (int i = 0; i < hashes; i++) {
+            if (counters.get(indexOf(hash, step, i)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Forgets all keys
+     */
+    void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    /**
+     * @param hash - spread hash of the key
+     * @param step - second hash of the key
+     * @param i    - number of the hash function
+     * @return index of the counter
+     */
+    private int indexOf(int hash, int step, int i) {
+        return Math.floorMod(hash + i * step, counters.length());
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
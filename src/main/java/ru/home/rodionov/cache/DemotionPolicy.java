@@ -0,0 +1,33 @@
+package ru.home.rodionov.cache;
+
+/**
+ * Demotion rule of {@link MultiLevelCache}: the level to move the element displaced from a full level to.
+ *
+ * @param <K> - type of keys
+ * @param <V> - type of values
+ */
+@FunctionalInterface
+public interface DemotionPolicy<K, V> {
+
+    /**
+     * @param level   - index of the level the element is displaced from
+     * @param element - displaced element
+     * @return index of the level to move the element to, index not greater than the level is the next level,
+     * index not less than the count of levels drops the element
+     */
+    int demote(int level, CacheObject<K, V> element);
+
+    /**
+     * @return policy moving displaced elements to the next level, so demotions cascade down to the last level
+     */
+    static <K, V> DemotionPolicy<K, V> nextLevel() {
+        return (level, element) -> level + 1;
+    }
+
+    /**
+     * @return policy dropping displaced elements, so every level is an independent cache
+     */
+    static <K, V> DemotionPolicy<K, V> drop() {
+        return (level, element) -> Integer.MAX_VALUE;
+    }
+}
@@ -1,21 +1,55 @@
 package ru.home.rodionov.cache;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Implementation cache data structure based on file
+ * Implementation cache data structure based on file, keys and values are written by {@link Codec}
+ * <p>
+ * The earliest end of life of the elements is tracked, so the file is rewritten for removing old elements
+ * and {@link #size()} reads the file only when some of them have really expired.
+ * Every change reads and rewrites the file under the lock, so it is atomic for several threads.
+ * Elements read from the file keep the stored bytes of their keys and values: values are decoded only when
+ * they are requested and the file is rewritten with the stored bytes, so every value is encoded once
+ * when it comes to this cache, which matters for {@link CompressingCodec}.
+ * <p>
+ * With buffered reads {@link #get(Object)} doesn't rewrite the file: hits are recorded
+ * into {@link ReadBuffer} and replayed into {@link CacheAlgorithm} by the next write.
+ * <p>
+ * Existing cache file is recovered on open: keys and values are written with length prefix,
+ * so actual elements are counted without decoding them, see {@link #FileCache(String, CacheAlgorithm, long, long)}.
  */
 public class FileCache extends Cache {
+    private static final int MAGIC = 0x46434331;
+    private static final long DEFAULT_MAX_RECOVERY_TIME = 10_000;
 
     private CacheAlgorithm algorithm;
     private File file;
     private AtomicInteger size;
     private ReentrantLock lock;
+    private ReadBuffer<Object> readBuffer;
+    private volatile long nextExpiry = Long.MAX_VALUE;
+    private LatencyHistogram readLatency = new LatencyHistogram();
+    private LatencyHistogram rewriteLatency = new LatencyHistogram();
+    private Codec keyCodec = Codecs.DEFAULT;
+    private Codec valueCodec = Codecs.DEFAULT;
     private long TTL;
+    private long recoveryTime;
+    private int recoveredCount;
+    private int droppedCount;
 
     /**
      * @param filepath  - path to create a cache file, include file extension (example: D:\cache.ch)
@@ -23,6 +57,25 @@ public class FileCache extends Cache {
      * @param TTL       - storage time for elements in milliseconds
      */
     public FileCache(String filepath, CacheAlgorithm algorithm, long TTL) {
+        this(filepath, algorithm, TTL, DEFAULT_MAX_RECOVERY_TIME);
+    }
+
+    /**
+     * Elements of existing cache file are recovered with their order and access counts, expired elements are dropped.
+     * Recovery reads only end of life of every element, so it doesn't depend on codecs and size of values.
+     * Elements not checked in max recovery time are dropped as well as the damaged end of the file.
+     *
+     * @param filepath        - path to create a cache file, include file extension (example: D:\cache.ch)
+     * @param algorithm       - any implementation of {@link CacheAlgorithm}
+     * @param TTL             - storage time for elements in milliseconds
+     * @param maxRecoveryTime - max time of recovery in milliseconds, 0 to clear existing file
+     * @throws IllegalArgumentException if the algorithm is {@link ARCAlgorithm},
+     *                                  which needs a cache reporting its elements
+     */
+    public FileCache(String filepath, CacheAlgorithm algorithm, long TTL, long maxRecoveryTime) {
+        if (algorithm instanceof ARCAlgorithm) {
+            throw new IllegalArgumentException("ARCAlgorithm is not supported by FileCache");
+        }
         this.file = new File(filepath);
         this.algorithm = algorithm;
         this.TTL = TTL;
@@ -35,6 +88,33 @@ public class FileCache extends Cache {
             System.err.println(e.getMessage());
             e.printStackTrace();
         }
+        recover(maxRecoveryTime);
+    }
+
+    /**
+     * @param filepath      - path to create a cache file, include file extension (example: D:\cache.ch)
+     * @param algorithm     - any implementation of {@link CacheAlgorithm}
+     * @param TTL           - storage time for elements in milliseconds
+     * @param bufferedReads - true to apply shifting of found elements by the next write
+     */
+    public FileCache(String filepath, CacheAlgorithm algorithm, long TTL, boolean bufferedReads) {
+        this(filepath, algorithm, TTL);
+        if (bufferedReads) {
+            this.readBuffer = new ReadBuffer<>();
+        }
+    }
+
+    /**
+     * @param filepath   - path to create a cache file, include file extension (example: D:\cache.ch)
+     * @param algorithm  - any implementation of {@link CacheAlgorithm}
+     * @param TTL        - storage time for elements in milliseconds
+     * @param keyCodec   - any implementation of {@link Codec} for keys
+     * @param valueCodec - any implementation of {@link Codec} for values
+     */
+    public FileCache(String filepath, CacheAlgorithm algorithm, long TTL, Codec keyCodec, Codec valueCodec) {
+        this(filepath, algorithm, TTL);
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
     }
 
     /**
@@ -58,16 +138,16 @@ public class FileCache extends Cache {
      */
     @Override
     public void addFirst(CacheObject element) {
-        removeNotActual();
-        LinkedList<CacheObject> list = getListFromFile();
         try {
             lock.lock();
+            LinkedList<CacheObject> list = removeNotActual();
             list.addFirst(element);
+            nextExpiry = Math.min(nextExpiry, element.getEndOfLife());
+            rewriteFileWithList(list);
+            size.getAndIncrement();
         } finally {
             lock.unlock();
         }
-        rewriteFileWithList(list);
-        size.getAndIncrement();
     }
 
     /**
@@ -77,16 +157,16 @@ public class FileCache extends Cache {
      */
     @Override
     public void addLast(CacheObject element) {
-        removeNotActual();
-        LinkedList<CacheObject> list = getListFromFile();
         try {
             lock.lock();
+            LinkedList<CacheObject> list = removeNotActual();
             list.addLast(element);
+            nextExpiry = Math.min(nextExpiry, element.getEndOfLife());
+            rewriteFileWithList(list);
+            size.getAndIncrement();
         } finally {
             lock.unlock();
         }
-        rewriteFileWithList(list);
-        size.getAndIncrement();
     }
 
     /**
@@ -96,9 +176,7 @@ public class FileCache extends Cache {
     public void clear() {
         try {
             lock.lock();
-            ObjectOutput output = getOutput();
-            output.write("".getBytes());
-            output.close();
+            new FileOutputStream(file).close();
         } catch (FileNotFoundException e) {
             System.err.println("File not found");
             e.printStackTrace();
@@ -109,6 +187,7 @@ public class FileCache extends Cache {
             lock.unlock();
         }
         size.set(0);
+        nextExpiry = Long.MAX_VALUE;
     }
 
     /**
@@ -118,17 +197,16 @@ public class FileCache extends Cache {
      */
     @Override
     public CacheObject removeFirst() {
-        LinkedList<CacheObject> buffer = removeNotActual();
-        CacheObject removedElement;
         try {
             lock.lock();
-            removedElement = buffer.removeFirst();
+            LinkedList<CacheObject> buffer = removeNotActual();
+            CacheObject removedElement = buffer.removeFirst();
+            rewriteFileWithList(buffer);
+            size.decrementAndGet();
+            return removedElement;
         } finally {
             lock.unlock();
         }
-        rewriteFileWithList(buffer);
-        size.decrementAndGet();
-        return removedElement;
     }
 
     /**
@@ -138,17 +216,16 @@ public class FileCache extends Cache {
      */
     @Override
     public CacheObject removeLast() {
-        LinkedList<CacheObject> buffer = removeNotActual();
-        CacheObject removedElement;
         try {
             lock.lock();
-            removedElement = buffer.removeLast();
+            LinkedList<CacheObject> buffer = removeNotActual();
+            CacheObject removedElement = buffer.removeLast();
+            rewriteFileWithList(buffer);
+            size.decrementAndGet();
+            return removedElement;
         } finally {
             lock.unlock();
         }
-        rewriteFileWithList(buffer);
-        size.decrementAndGet();
-        return removedElement;
     }
 
     /**
@@ -156,7 +233,9 @@ public class FileCache extends Cache {
      */
     @Override
     public int size() {
-        removeNotActual();
+        if (System.currentTimeMillis() > nextExpiry) {
+            removeNotActual();
+        }
         return size.get();
     }
 
@@ -166,23 +245,26 @@ public class FileCache extends Cache {
      */
     @Override
     public Object get(Object key) {
-        LinkedList<CacheObject> buffer = removeNotActual();
-        CacheObject element =
-                buffer.parallelStream()
-                        .filter(cacheObject -> key.equals(cacheObject.getKey()))
-                        .findFirst().orElse(null);
+        if (readBuffer != null) {
+            return getBuffered(key);
+        }
+        try {
+            lock.lock();
+            LinkedList<CacheObject> buffer = removeNotActual();
+            CacheObject element =
+                    buffer.parallelStream()
+                            .filter(cacheObject -> key.equals(cacheObject.getKey()))
+                            .findFirst().orElse(null);
 
-        if (element != null) {
-            try {
-                lock.lock();
+            if (element != null) {
                 buffer = algorithm.shift(buffer, element);
-            } finally {
-                lock.unlock();
+                rewriteFileWithList(buffer);
             }
-            rewriteFileWithList(buffer);
-        }
 
-        return element == null ? null : element.getValue();
+            return element == null ? null : element.getValue();
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -191,23 +273,178 @@ public class FileCache extends Cache {
      * @return actual {@link LinkedList}
      */
     public LinkedList<CacheObject> removeNotActual() {
-        LinkedList<CacheObject> list = getListFromFile();
-        Iterator<CacheObject> it = list.iterator();
-        while (it.hasNext()) {
-            if (it.next().getEndOfLife() < System.currentTimeMillis()) {
-                try {
-                    lock.lock();
-                    it.remove();
-                } finally {
-                    lock.unlock();
+        LinkedList<CacheObject> list;
+        LinkedList<CacheObject> expired = new LinkedList<>();
+        try {
+            lock.lock();
+            list = getListFromFile();
+            long now = System.currentTimeMillis();
+            if (now > nextExpiry) {
+                long next = Long.MAX_VALUE;
+                Iterator<CacheObject> it = list.iterator();
+                while (it.hasNext()) {
+                    CacheObject element = it.next();
+                    if (element.getEndOfLife() < now) {
+                        it.remove();
+                        expired.add(element);
+                    } else {
+                        next = Math.min(next, element.getEndOfLife());
+                    }
                 }
+                nextExpiry = next;
+            }
+            if (drainReadBuffer(list) || !expired.isEmpty()) {
+                rewriteFileWithList(list);
             }
+            size.set(list.size());
+        } finally {
+            lock.unlock();
+        }
+        for (CacheObject element : expired) {
+            notifyRemoval(element, RemovalCause.EXPIRED);
         }
-        rewriteFileWithList(list);
-        size.set(list.size());
         return list;
     }
 
+    /**
+     * Removes all elements with the key
+     *
+     * @param key - key
+     * @return value of the first removed element or null if this cache does not contain actual element
+     */
+    @Override
+    public Object remove(Object key) {
+        try {
+            lock.lock();
+            LinkedList<CacheObject> list = removeNotActual();
+            CacheObject removed = null;
+            Iterator<CacheObject> it = list.iterator();
+            while (it.hasNext()) {
+                CacheObject element = it.next();
+                if (key.equals(element.getKey())) {
+                    it.remove();
+                    if (removed == null) {
+                        removed = element;
+                    }
+                }
+            }
+            if (removed != null) {
+                rewriteFileWithList(list);
+                size.set(list.size());
+            }
+            return removed == null ? null : removed.getValue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds values of several keys by one reading of the file and at most one rewriting
+     *
+     * @param keys - keys
+     * @return found values by keys in the order of keys, missing keys are absent
+     */
+    @Override
+    public Map getAll(Collection keys) {
+        try {
+            lock.lock();
+            LinkedList<CacheObject> list = removeNotActual();
+            Map<Object, Object> values = new LinkedHashMap<>();
+            Map<Object, CacheObject> found = RAMCache.find(list, keys);
+            for (Object key : keys) {
+                CacheObject element = found.get(key);
+                if (element != null) {
+                    if (readBuffer == null) {
+                        algorithm.shift(list, element);
+                    } else {
+                        readBuffer.offer(key);
+                    }
+                    values.put(key, element.getValue());
+                }
+            }
+            if (readBuffer == null && !values.isEmpty()) {
+                rewriteFileWithList(list);
+            }
+            return values;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends several elements to the end of this cache by one rewriting of the file
+     *
+     * @param entries - keys and values
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void putAll(Map entries) {
+        try {
+            lock.lock();
+            LinkedList<CacheObject> list = removeNotActual();
+            for (Object entry : entries.entrySet()) {
+                Map.Entry<Object, Object> keyValue = (Map.Entry<Object, Object>) entry;
+                CacheObject element = new CacheObject(keyValue.getKey(), keyValue.getValue(), TTL);
+                list.addLast(element);
+                nextExpiry = Math.min(nextExpiry, element.getEndOfLife());
+            }
+            rewriteFileWithList(list);
+            size.set(list.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes elements of several keys by one rewriting of the file
+     *
+     * @param keys - keys
+     */
+    @Override
+    public void removeAll(Collection keys) {
+        try {
+            lock.lock();
+            LinkedList<CacheObject> list = removeNotActual();
+            Set<Object> removedKeys = new HashSet<>(keys);
+            if (list.removeIf(element -> removedKeys.contains(element.getKey()))) {
+                rewriteFileWithList(list);
+                size.set(list.size());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts elements in the beginning and removes the last elements exceeding max size
+     * by one rewriting of the file
+     *
+     * @param elements - elements to insert
+     * @param maxSize  - max size of this cache
+     * @return removed elements
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    List addAllFirst(List elements, int maxSize) {
+        try {
+            lock.lock();
+            LinkedList<CacheObject> list = removeNotActual();
+            List<CacheObject> removed = new ArrayList<>();
+            for (CacheObject element : (List<CacheObject>) elements) {
+                list.addFirst(element);
+                nextExpiry = Math.min(nextExpiry, element.getEndOfLife());
+            }
+            while (list.size() > maxSize) {
+                removed.add(list.removeLast());
+            }
+            rewriteFileWithList(list);
+            size.set(list.size());
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * @param key - key of the element
      * @return index of the value or -1 if this cache does not contain the element
@@ -224,21 +461,220 @@ public class FileCache extends Cache {
     }
 
     /**
-     * Read the cache file
+     * @return statistics of {@link CompressingCodec} of values or null if values are not compressed
+     */
+    @Override
+    CompressionStats getCompressionStats() {
+        return CompressionStats.of(valueCodec);
+    }
+
+    /**
+     * @return time of recovering elements of existing file in milliseconds
+     */
+    public long getRecoveryTime() {
+        return recoveryTime;
+    }
+
+    /**
+     * @return count of elements recovered from existing file
+     */
+    public int getRecoveredCount() {
+        return recoveredCount;
+    }
+
+    /**
+     * @return count of elements of existing file dropped by recovery as expired, damaged or not checked in time
+     */
+    public int getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * @return latencies of reading the whole file
+     */
+    public LatencyHistogram getReadLatency() {
+        return readLatency;
+    }
+
+    /**
+     * @return latencies of rewriting the whole file
+     */
+    public LatencyHistogram getRewriteLatency() {
+        return rewriteLatency;
+    }
+
+    /**
+     * Finds actual element without rewriting the file and records the hit
+     *
+     * @param key - key
+     * @return value by key
+     */
+    private Object getBuffered(Object key) {
+        long now = System.currentTimeMillis();
+        CacheObject element =
+                getListFromFile().stream()
+                        .filter(cacheObject -> key.equals(cacheObject.getKey()) && cacheObject.getEndOfLife() >= now)
+                        .findFirst().orElse(null);
+        if (element == null) {
+            return null;
+        }
+        if (!readBuffer.offer(key)) {
+            removeNotActual();
+            readBuffer.offer(key);
+        }
+        return element.getValue();
+    }
+
+    /**
+     * Applies recorded hits to the order of elements
+     *
+     * @param list - actual elements
+     * @return true if some hits have been applied
+     */
+    private boolean drainReadBuffer(LinkedList<CacheObject> list) {
+        boolean[] applied = new boolean[1];
+        if (readBuffer != null) {
+            try {
+                lock.lock();
+                readBuffer.drain(key -> list.stream()
+                        .filter(cacheObject -> key.equals(cacheObject.getKey()))
+                        .findFirst()
+                        .ifPresent(element -> {
+                            algorithm.shift(list, element);
+                            applied[0] = true;
+                        }));
+            } finally {
+                lock.unlock();
+            }
+        }
+        return applied[0];
+    }
+
+    /**
+     * Checks end of life of elements of existing file skipping their keys and values,
+     * then removes expired and not checked elements from the file if there are some
+     *
+     * @param maxRecoveryTime - max time of recovery in milliseconds, 0 to clear the file
+     */
+    private void recover(long maxRecoveryTime) {
+        long start = System.nanoTime();
+        if (maxRecoveryTime <= 0 || file.length() == 0) {
+            clear();
+            return;
+        }
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxRecoveryTime);
+        long now = System.currentTimeMillis();
+        long next = Long.MAX_VALUE;
+        int count;
+        int checked = 0;
+        int actual = 0;
+        try {
+            try (DataInputStream input = getInput()) {
+                if (input.readInt() != MAGIC) {
+                    throw new IOException("Unknown format of " + file);
+                }
+                count = input.readInt();
+                while (checked < count && System.nanoTime() < deadline) {
+                    long endOfLife;
+                    try {
+                        endOfLife = input.readLong();
+                        input.readInt();
+                        skip(input, Codecs.readLength(input));
+                        skip(input, Codecs.readLength(input));
+                    } catch (EOFException e) {
+                        System.err.println("End of " + file + " is damaged, " + (count - checked) + " elements are dropped");
+                        break;
+                    }
+                    checked++;
+                    if (endOfLife >= now) {
+                        actual++;
+                        next = Math.min(next, endOfLife);
+                    }
+                }
+            }
+            if (actual < count) {
+                copyActual(checked, actual, now);
+            }
+        } catch (IOException e) {
+            System.err.println("Can't recover " + file + ", cache is cleared");
+            e.printStackTrace();
+            clear();
+            return;
+        }
+        size.set(actual);
+        nextExpiry = next;
+        recoveredCount = actual;
+        droppedCount = count - actual;
+        recoveryTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Replaces the file with its actual elements, keys and values are copied as bytes
+     *
+     * @param checked - count of checked elements in the beginning of the file
+     * @param actual  - count of actual elements among them
+     * @param now     - time of the check
+     */
+    private void copyActual(int checked, int actual, long now) throws IOException {
+        File copy = new File(file.getPath() + ".recovery");
+        try (DataInputStream input = getInput();
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(copy)))) {
+            input.readInt();
+            input.readInt();
+            output.writeInt(MAGIC);
+            output.writeInt(actual);
+            for (int i = 0; i < checked; i++) {
+                long endOfLife = input.readLong();
+                int frequency = input.readInt();
+                byte[] key = Codecs.BYTES.read(input);
+                byte[] value = Codecs.BYTES.read(input);
+                if (endOfLife >= now) {
+                    output.writeLong(endOfLife);
+                    output.writeInt(frequency);
+                    Codecs.BYTES.write(key, output);
+                    Codecs.BYTES.write(value, output);
+                }
+            }
+        }
+        Files.move(copy.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void skip(DataInputStream input, int length) throws IOException {
+        while (length > 0) {
+            int skipped = input.skipBytes(length);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            length -= skipped;
+        }
+    }
+
+    /**
+     * Read the cache file: format mark, count of elements, then end of life, access count,
+     * key and value with length prefix of every element
      *
      * @return cache objects as {@link LinkedList}
      */
-    @SuppressWarnings("unchecked")
     private LinkedList<CacheObject> getListFromFile() {
         LinkedList<CacheObject> list = new LinkedList<>();
         if (size.get() > 0) {
             try {
                 lock.lock();
-                try (ObjectInputStream input = getInput()) {
-                    list = (LinkedList<CacheObject>) input.readObject();
-                } catch (ClassNotFoundException | IOException e) {
+                long start = System.nanoTime();
+                try (DataInputStream input = getInput()) {
+                    input.readInt();
+                    int count = input.readInt();
+                    for (int i = 0; i < count; i++) {
+                        long endOfLife = input.readLong();
+                        int frequency = input.readInt();
+                        byte[] key = Codecs.BYTES.read(input);
+                        byte[] value = Codecs.BYTES.read(input);
+                        list.add(new StoredObject(keyCodec, valueCodec, key, value, endOfLife, frequency));
+                    }
+                } catch (IOException e) {
                     e.printStackTrace();
                 }
+                readLatency.record(System.nanoTime() - start);
             } finally {
                 lock.unlock();
             }
@@ -251,14 +687,29 @@ public class FileCache extends Cache {
      *
      * @param buffer updated {@link LinkedList}
      */
-    private void rewriteFileWithList(LinkedList buffer) {
+    @SuppressWarnings("unchecked")
+    private void rewriteFileWithList(LinkedList<CacheObject> buffer) {
         try {
             lock.lock();
-            try (ObjectOutputStream output = getOutput()) {
-                output.writeObject(buffer);
+            long start = System.nanoTime();
+            try (DataOutputStream output = getOutput()) {
+                output.writeInt(MAGIC);
+                output.writeInt(buffer.size());
+                for (CacheObject element : buffer) {
+                    output.writeLong(element.getEndOfLife());
+                    output.writeInt(element.getFrequency());
+                    if (element instanceof StoredObject && ((StoredObject) element).isEncodedBy(keyCodec, valueCodec)) {
+                        Codecs.BYTES.write(((StoredObject) element).storedKey, output);
+                        Codecs.BYTES.write(((StoredObject) element).storedValue, output);
+                    } else {
+                        Codecs.BYTES.write(keyCodec.encode(element.getKey()), output);
+                        Codecs.BYTES.write(valueCodec.encode(element.getValue()), output);
+                    }
+                }
             } catch (IOException e) {
                 e.printStackTrace();
             }
+            rewriteLatency.record(System.nanoTime() - start);
         } finally {
             lock.unlock();
         }
@@ -267,31 +718,73 @@ public class FileCache extends Cache {
     /**
      * @return input stream from file
      */
-    private ObjectInputStream getInput() {
-        ObjectInputStream input = null;
-        try {
-            FileInputStream fin = new FileInputStream(file);
-            BufferedInputStream buffer = new BufferedInputStream(fin);
-            input = new ObjectInputStream(buffer);
-        } catch (IOException e) {
-            System.err.println("");
-            e.printStackTrace();
-        }
-        return input;
+    private DataInputStream getInput() throws FileNotFoundException {
+        FileInputStream fin = new FileInputStream(file);
+        BufferedInputStream buffer = new BufferedInputStream(fin);
+        return new DataInputStream(buffer);
     }
 
     /**
      * @return output stream to file
      */
-    private ObjectOutputStream getOutput() {
-        ObjectOutputStream output = null;
-        try {
-            FileOutputStream fou = new FileOutputStream(file);
-            BufferedOutputStream buffer = new BufferedOutputStream(fou);
-            output = new ObjectOutputStream(buffer);
-        } catch (IOException e) {
-            e.printStackTrace();
+    private DataOutputStream getOutput() throws FileNotFoundException {
+        FileOutputStream fou = new FileOutputStream(file);
+        BufferedOutputStream buffer = new BufferedOutputStream(fou);
+        return new DataOutputStream(buffer);
+    }
+
+    /**
+     * Element read from the file with stored bytes of its key and value, the value is decoded on the first request
+     */
+    private static class StoredObject extends CacheObject {
+        private static final long serialVersionUID = 20240601L;
+        private final transient Codec keyCodec;
+        private final transient Codec valueCodec;
+        private final transient byte[] storedKey;
+        private final transient byte[] storedValue;
+        private transient volatile Object value;
+        private transient volatile boolean decoded;
+
+        @SuppressWarnings("unchecked")
+        StoredObject(Codec keyCodec, Codec valueCodec, byte[] storedKey, byte[] storedValue, long endOfLife,
+                     int frequency) throws IOException {
+            super(keyCodec.decode(storedKey), null, endOfLife, frequency);
+            this.keyCodec = keyCodec;
+            this.valueCodec = valueCodec;
+            this.storedKey = storedKey;
+            this.storedValue = storedValue;
+        }
+
+        /**
+         * @return value decoded from the stored bytes
+         * @throws UncheckedIOException if the stored value is damaged
+         */
+        @Override
+        public Object getValue() {
+            if (!decoded) {
+                try {
+                    value = valueCodec.decode(storedValue);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                decoded = true;
+            }
+            return value;
+        }
+
+        /**
+         * @return true if the stored bytes can be written by the codecs as they are
+         */
+        boolean isEncodedBy(Codec keyCodec, Codec valueCodec) {
+            return this.keyCodec == keyCodec && this.valueCodec == valueCodec;
+        }
+
+        /**
+         * Serialized as plain element with decoded value
+         */
+        @SuppressWarnings("unchecked")
+        private Object writeReplace() {
+            return new CacheObject(getKey(), getValue(), getEndOfLife(), getFrequency());
         }
-        return output;
     }
 }
@@ -0,0 +1,357 @@
+package ru.home.rodionov.cache;
+
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation cache data structure based on hash index over {@link CacheList},
+ * store the data in RAM. Search, insertion, shifting and removing of the element
+ * take constant time, the order of the elements is kept by {@link CacheAlgorithm}.
+ * <p>
+ * With buffered reads {@link #get(Object)} doesn't take the lock: hits are recorded
+ * into {@link ReadBuffer} and replayed into {@link CacheAlgorithm} in batches
+ * by the next write or when the buffer is full.
+ * <p>
+ * Old elements are removed by {@link TimingWheel} on writes and {@link #size()},
+ * so expiry takes time proportional to expired elements instead of a scan of the whole cache.
+ */
+public class IndexedRAMCache extends Cache {
+
+    private Map<Object, CacheList.Node> index;
+    private CacheList cache;
+    private CacheAlgorithm algorithm;
+    private ReentrantLock lock = new ReentrantLock();
+    private ReadBuffer<CacheList.Node> readBuffer;
+    private TimingWheel timingWheel;
+    private long TTL;
+
+    /**
+     * @param algorithm - any implementation of {@link CacheAlgorithm}
+     * @param TTL       - storage time for elements in milliseconds
+     */
+    public IndexedRAMCache(CacheAlgorithm algorithm, long TTL) {
+        this.algorithm = algorithm;
+        this.index = new ConcurrentHashMap<>();
+        this.cache = new CacheList();
+        this.timingWheel = new TimingWheel(System.currentTimeMillis());
+        this.TTL = TTL;
+    }
+
+    /**
+     * @param algorithm     - any implementation of {@link CacheAlgorithm}
+     * @param TTL           - storage time for elements in milliseconds
+     * @param bufferedReads - true to apply shifting of found elements in batches
+     */
+    public IndexedRAMCache(CacheAlgorithm algorithm, long TTL, boolean bufferedReads) {
+        this(algorithm, TTL);
+        if (bufferedReads) {
+            this.readBuffer = new ReadBuffer<>();
+        }
+    }
+
+    /**
+     * Create new element with key-value and appends it to the end of this cache
+     *
+     * @param key   - key
+     * @param value - value
+     */
+    @Override
+    public void add(Object key, Object value) {
+        CacheObject element = new CacheObject(key, value, TTL);
+        addLast(element);
+    }
+
+    /**
+     * Inserts element in the beginning of this cache, replaces previous element with the same key
+     *
+     * @param element - the element to add
+     */
+    @Override
+    public void addFirst(CacheObject element) {
+        put(element, true, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Append element to the end of this cache, replaces previous element with the same key
+     *
+     * @param element - the element to add
+     */
+    @Override
+    public void addLast(CacheObject element) {
+        put(element, false, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Adds element, the last element or the one chosen by the algorithm is removed before it if this cache is full,
+     * so the added element is never displaced by itself
+     *
+     * @param element - the element to add
+     * @param first   - true to insert in the beginning, false to append to the end
+     * @param maxSize - max size of this cache
+     * @return removed element or null
+     */
+    CacheObject put(CacheObject element, boolean first, int maxSize) {
+        CacheList.Node node = new CacheList.Node(element);
+        try {
+            lock.lock();
+            drainReadBuffer();
+            expire();
+            unlinkByKey(element.getKey());
+            CacheObject evicted = null;
+            if (cache.size() >= maxSize) {
+                evicted = unlink(algorithm.victim(cache));
+                notifyRemoval(evicted, RemovalCause.EVICTED);
+            }
+            if (first) {
+                cache.addFirst(node);
+            } else {
+                cache.addLast(node);
+            }
+            index.put(element.getKey(), node);
+            timingWheel.schedule(node);
+            algorithm.inserted(cache, node);
+            return evicted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Clears the cache
+     */
+    @Override
+    public void clear() {
+        try {
+            lock.lock();
+            drainReadBuffer();
+            cache.clear();
+            index.clear();
+            timingWheel.clear();
+            algorithm.cleared(cache);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes first element from cache
+     *
+     * @return removed element
+     */
+    @Override
+    public CacheObject removeFirst() {
+        try {
+            lock.lock();
+            drainReadBuffer();
+            return unlink(cache.first());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes last element from cache or the element chosen by the algorithm to displace
+     *
+     * @return removed element
+     */
+    @Override
+    public CacheObject removeLast() {
+        try {
+            lock.lock();
+            drainReadBuffer();
+            return unlink(algorithm.victim(cache));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return elements count in this cache
+     */
+    @Override
+    public int size() {
+        try {
+            lock.lock();
+            drainReadBuffer();
+            expire();
+            return cache.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return elements count in this cache including not removed old elements
+     */
+    int count() {
+        try {
+            lock.lock();
+            return cache.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param key - key
+     * @return value by key or null if not exists
+     */
+    @Override
+    public Object get(Object key) {
+        CacheList.Node node = index.get(key);
+        if (node == null) {
+            return null;
+        }
+        CacheObject element = node.getElement();
+        if (readBuffer != null) {
+            if (element.getEndOfLife() < System.currentTimeMillis()) {
+                return null;
+            }
+            if (!readBuffer.offer(node) && lock.tryLock()) {
+                try {
+                    drainReadBuffer();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return element.getValue();
+        }
+        try {
+            lock.lock();
+            if (!node.linked) {
+                return null;
+            }
+            if (element.getEndOfLife() < System.currentTimeMillis()) {
+                notifyRemoval(unlink(node), RemovalCause.EXPIRED);
+                return null;
+            }
+            algorithm.shift(cache, node);
+        } finally {
+            lock.unlock();
+        }
+        return element.getValue();
+    }
+
+    /**
+     * method for removeLast all old elements
+     *
+     * @return actual elements as {@link LinkedList}
+     */
+    @Override
+    public LinkedList removeNotActual() {
+        LinkedList<CacheObject> actual = new LinkedList<>();
+        try {
+            lock.lock();
+            drainReadBuffer();
+            expire();
+            for (CacheList.Node node : cache) {
+                actual.add(node.getElement());
+            }
+        } finally {
+            lock.unlock();
+        }
+        return actual;
+    }
+
+    /**
+     * Removes element by key
+     *
+     * @param key - key
+     * @return value of the removed element or null if this cache does not contain actual element
+     */
+    @Override
+    public Object remove(Object key) {
+        try {
+            lock.lock();
+            drainReadBuffer();
+            CacheList.Node node = index.get(key);
+            if (node == null || !node.linked) {
+                return null;
+            }
+            CacheObject element = unlink(node);
+            return element.getEndOfLife() < System.currentTimeMillis() ? null : element.getValue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param key - key of the element
+     * @return index of the value or -1 if this cache does not contain the element
+     */
+    @Override
+    public int indexOf(Object key) {
+        CacheList.Node node = index.get(key);
+        if (node == null) {
+            return -1;
+        }
+        try {
+            lock.lock();
+            drainReadBuffer();
+            int i = 0;
+            for (CacheList.Node current : cache) {
+                if (current == node) return i;
+                i++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return -1;
+    }
+
+    /**
+     * Applies recorded hits to the order of elements, must be called under lock
+     */
+    private void drainReadBuffer() {
+        if (readBuffer != null) {
+            readBuffer.drain(node -> {
+                if (node.linked) {
+                    algorithm.shift(cache, node);
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes old elements whose buckets of {@link TimingWheel} have passed, must be called under lock
+     */
+    private void expire() {
+        timingWheel.advance(System.currentTimeMillis(), node -> {
+            if (node.linked) {
+                notifyRemoval(unlink(node), RemovalCause.EXPIRED);
+            }
+        });
+    }
+
+    /**
+     * Removes node from the list, the index and the timing wheel, must be called under lock
+     *
+     * @param node - linked node
+     * @return element of the node
+     */
+    private CacheObject unlink(CacheList.Node node) {
+        if (node == null) {
+            throw new NoSuchElementException();
+        }
+        algorithm.removed(cache, node);
+        cache.unlink(node);
+        index.remove(node.getElement().getKey(), node);
+        timingWheel.deschedule(node);
+        return node.getElement();
+    }
+
+    /**
+     * Removes previous element with the same key if exists, must be called under lock
+     *
+     * @param key - key of the element
+     */
+    private void unlinkByKey(Object key) {
+        CacheList.Node previous = index.get(key);
+        if (previous != null && previous.linked) {
+            unlink(previous);
+        }
+    }
+}
@@ -22,4 +22,13 @@ public class LFUAlgorithm extends CacheAlgorithm {
         return source;
     }
 
+    /**
+     * @param source - {@link CacheList} for changing
+     * @param node   - node of the element for shifting
+     */
+    @Override
+    void shift(CacheList source, CacheList.Node node) {
+        source.moveBackward(node);
+    }
+
 }
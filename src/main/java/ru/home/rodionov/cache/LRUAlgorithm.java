@@ -18,5 +18,14 @@ public class LRUAlgorithm extends CacheAlgorithm {
         source.addFirst(element);
         return source;
     }
+
+    /**
+     * @param source - {@link CacheList} for changing
+     * @param node   - node of the element for shifting
+     */
+    @Override
+    void shift(CacheList source, CacheList.Node node) {
+        source.moveToFront(node);
+    }
 }
 
@@ -0,0 +1,160 @@
+package ru.home.rodionov.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latencies of one level of {@link TwoLevelCache}.
+ * Counters are striped {@link LongAdder}s, so recording threads don't contend for one variable.
+ * <p>
+ * Promotions and demotions are counted by the level the element leaves:
+ * promotion moves it to the upper level, demotion to the lower one.
+ */
+public class LevelStats {
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+    final LongAdder expirations = new LongAdder();
+    final LongAdder promotions = new LongAdder();
+    final LongAdder demotions = new LongAdder();
+    final LatencyHistogram getLatency = new LatencyHistogram();
+    final LatencyHistogram putLatency = new LatencyHistogram();
+    final AtomicLong weight = new AtomicLong();
+    volatile CompressionStats compression;
+    volatile BloomFilterStats filter;
+
+    /**
+     * Immutable copy of the level statistics
+     */
+    public static class Snapshot {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+        private final long promotions;
+        private final long demotions;
+        private final LatencyHistogram.Snapshot getLatency;
+        private final LatencyHistogram.Snapshot putLatency;
+        private final long weight;
+        private final CompressionStats.Snapshot compression;
+        private final BloomFilterStats.Snapshot filter;
+
+        private Snapshot(LevelStats stats) {
+            this.hits = stats.hits.sum();
+            this.misses = stats.misses.sum();
+            this.evictions = stats.evictions.sum();
+            this.expirations = stats.expirations.sum();
+            this.promotions = stats.promotions.sum();
+            this.demotions = stats.demotions.sum();
+            this.getLatency = stats.getLatency.snapshot();
+            this.putLatency = stats.putLatency.snapshot();
+            this.weight = stats.weight.get();
+            CompressionStats compression = stats.compression;
+            this.compression = compression == null ? null : compression.snapshot();
+            BloomFilterStats filter = stats.filter;
+            this.filter = filter == null ? null : filter.snapshot();
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return share of hits in requests to this level or 0 if there were no requests
+         */
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getExpirations() {
+            return expirations;
+        }
+
+        public long getPromotions() {
+            return promotions;
+        }
+
+        public long getDemotions() {
+            return demotions;
+        }
+
+        /**
+         * @return latencies of get requests to this level
+         */
+        public LatencyHistogram.Snapshot getGetLatency() {
+            return getLatency;
+        }
+
+        /**
+         * @return latencies of adding elements to this level
+         */
+        public LatencyHistogram.Snapshot getPutLatency() {
+            return putLatency;
+        }
+
+        /**
+         * @return current weight of the level or 0 if the level is limited by elements count
+         */
+        public long getWeight() {
+            return weight;
+        }
+
+        /**
+         * @return compression of values stored by the level or null if the level doesn't compress them
+         */
+        public CompressionStats.Snapshot getCompression() {
+            return compression;
+        }
+
+        /**
+         * @return requests answered by the Bloom filter of the level or null if the level is not filtered
+         */
+        public BloomFilterStats.Snapshot getFilter() {
+            return filter;
+        }
+    }
+
+    /**
+     * @return copy of the counters and latencies
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Counts the element removed by the level itself
+     *
+     * @param cause - reason of removing
+     */
+    void recordRemoval(RemovalCause cause) {
+        if (cause == RemovalCause.EXPIRED) {
+            expirations.increment();
+        } else {
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Forgets counters and latencies, the weight is current state of the level and is kept,
+     * compression and filter requests are counted by the level and are kept too
+     */
+    void reset() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        expirations.reset();
+        promotions.reset();
+        demotions.reset();
+        getLatency.reset();
+        putLatency.reset();
+    }
+}
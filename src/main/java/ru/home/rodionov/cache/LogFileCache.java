@@ -0,0 +1,731 @@
+package ru.home.rodionov.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Implementation cache data structure based on append-only log of segment files.
+ * Every added element is appended to the active segment as a record,
+ * removed element is marked by appended tombstone record.
+ * Keys, expiration time and location of the records are kept in RAM,
+ * so {@link #get(Object)} reads one record and doesn't scan the files.
+ * Segments with a lot of overwritten and removed records are compacted in background:
+ * live records are copied to the active segment and the old file is deleted.
+ * Old elements are found by {@link TimingWheel} without a scan of the whole cache.
+ * <p>
+ * Existing segments are replayed on open, so actual elements survive a restart: later records of a key
+ * replace earlier ones and tombstones remove them, which is why compaction keeps tombstones
+ * while older segments may still hold records of their keys. Every record is checked by its CRC32,
+ * replay stops at the first damaged record of a segment and cuts the segment there,
+ * damaged record found by a read is treated as a miss and its element is dropped.
+ * <p>
+ * Record layout: type (1 byte), end of life (8), key length (4), value length (4), CRC32 of the rest (4), key, value.
+ */
+public class LogFileCache extends Cache {
+    static final byte PUT = 1;
+    static final byte TOMBSTONE = 2;
+    static final int HEADER_SIZE = 21;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final long DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final long DEFAULT_COMPACTION_PERIOD = 60 * 1000;
+    private static final double COMPACTION_THRESHOLD = 0.5;
+
+    private File directory;
+    private CacheAlgorithm algorithm;
+    private long TTL;
+    private long maxSegmentSize;
+    private Codec keyCodec;
+    private Codec valueCodec;
+    private Map<Object, Entry> index = new HashMap<>();
+    private CacheList cache = new CacheList();
+    private TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private TimingWheel timingWheel = new TimingWheel(System.currentTimeMillis());
+    private ReentrantLock lock = new ReentrantLock();
+    private ScheduledExecutorService compactor;
+
+    /**
+     * Node of the element with location of its record
+     */
+    private static class Entry extends CacheList.Node {
+        private Segment segment;
+        private long offset;
+        private int length;
+
+        private Entry(CacheObject element, Segment segment, long offset, int length) {
+            super(element);
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Segment file of the log
+     */
+    private static class Segment {
+        private final int id;
+        private final File file;
+        private final FileChannel channel;
+        private long size;
+        private long deadBytes;
+
+        private Segment(int id, File file) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.channel = new RandomAccessFile(file, "rw").getChannel();
+            this.size = channel.size();
+        }
+    }
+
+    /**
+     * @param directory - path to the directory for segment files, the directory is created if not exists
+     * @param algorithm - any implementation of {@link CacheAlgorithm}
+     * @param TTL       - storage time for elements in milliseconds
+     */
+    public LogFileCache(String directory, CacheAlgorithm algorithm, long TTL) {
+        this(directory, algorithm, TTL, Codecs.DEFAULT, Codecs.DEFAULT);
+    }
+
+    /**
+     * @param directory  - path to the directory for segment files, the directory is created if not exists
+     * @param algorithm  - any implementation of {@link CacheAlgorithm}
+     * @param TTL        - storage time for elements in milliseconds
+     * @param keyCodec   - any implementation of {@link Codec} for keys
+     * @param valueCodec - any implementation of {@link Codec} for values
+     */
+    public LogFileCache(String directory, CacheAlgorithm algorithm, long TTL, Codec keyCodec, Codec valueCodec) {
+        this(directory, algorithm, TTL, DEFAULT_SEGMENT_SIZE, DEFAULT_COMPACTION_PERIOD, keyCodec, valueCodec);
+    }
+
+    /**
+     * @param directory         - path to the directory for segment files, the directory is created if not exists
+     * @param algorithm         - any implementation of {@link CacheAlgorithm}
+     * @param TTL               - storage time for elements in milliseconds
+     * @param maxSegmentSize    - size of the segment file in bytes after which new segment is started
+     * @param compactionPeriod  - period of background compaction in milliseconds, 0 to compact only by {@link #compact()}
+     */
+    public LogFileCache(String directory, CacheAlgorithm algorithm, long TTL, long maxSegmentSize, long compactionPeriod) {
+        this(directory, algorithm, TTL, maxSegmentSize, compactionPeriod, Codecs.DEFAULT, Codecs.DEFAULT);
+    }
+
+    /**
+     * @param directory         - path to the directory for segment files, the directory is created if not exists
+     * @param algorithm         - any implementation of {@link CacheAlgorithm}
+     * @param TTL               - storage time for elements in milliseconds
+     * @param maxSegmentSize    - size of the segment file in bytes after which new segment is started
+     * @param compactionPeriod  - period of background compaction in milliseconds, 0 to compact only by {@link #compact()}
+     * @param keyCodec          - any implementation of {@link Codec} for keys
+     * @param valueCodec        - any implementation of {@link Codec} for values
+     */
+    public LogFileCache(String directory, CacheAlgorithm algorithm, long TTL, long maxSegmentSize, long compactionPeriod,
+                        Codec keyCodec, Codec valueCodec) {
+        this.directory = new File(directory);
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.algorithm = algorithm;
+        this.TTL = TTL;
+        this.maxSegmentSize = maxSegmentSize;
+        if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            throw new IllegalArgumentException("Can't create directory " + directory);
+        }
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (compactionPeriod > 0) {
+            compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "log-file-cache-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            compactor.scheduleWithFixedDelay(this::compact, compactionPeriod, compactionPeriod, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Create new element with key-value and appends it to the end of this cache
+     *
+     * @param key   - key
+     * @param value - value
+     */
+    @Override
+    public void add(Object key, Object value) {
+        CacheObject element = new CacheObject(key, value, TTL);
+        addLast(element);
+    }
+
+    /**
+     * Inserts element in the beginning of this cache, replaces previous element with the same key
+     *
+     * @param element - the element to add
+     */
+    @Override
+    public void addFirst(CacheObject element) {
+        put(element, true);
+    }
+
+    /**
+     * Append element to the end of this cache, replaces previous element with the same key
+     *
+     * @param element - the element to add
+     */
+    @Override
+    public void addLast(CacheObject element) {
+        put(element, false);
+    }
+
+    /**
+     * Deletes all segment files
+     */
+    @Override
+    public void clear() {
+        try {
+            lock.lock();
+            for (Segment segment : segments.values()) {
+                closeQuietly(segment);
+                if (!segment.file.delete()) {
+                    System.err.println("Can't delete " + segment.file);
+                }
+            }
+            segments.clear();
+            cache.clear();
+            index.clear();
+            timingWheel.clear();
+            algorithm.cleared(cache);
+            active = openSegment(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes first element from cache
+     *
+     * @return removed element
+     */
+    @Override
+    public CacheObject removeFirst() {
+        try {
+            lock.lock();
+            CacheObject element;
+            do {
+                element = remove(cache.first(), true);
+            } while (element == null);
+            return element;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes last element from cache or the element chosen by the algorithm to displace
+     *
+     * @return removed element
+     */
+    @Override
+    public CacheObject removeLast() {
+        try {
+            lock.lock();
+            CacheObject element;
+            do {
+                element = remove(algorithm.victim(cache), true);
+            } while (element == null);
+            return element;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return elements count in this cache
+     */
+    @Override
+    public int size() {
+        try {
+            lock.lock();
+            expire();
+            return cache.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param key - key
+     * @return value by key or null if not exists
+     */
+    @Override
+    public Object get(Object key) {
+        try {
+            lock.lock();
+            Entry entry = index.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.getElement().getEndOfLife() < System.currentTimeMillis()) {
+                CacheObject expired = remove(entry, hasRemovalListeners());
+                if (expired != null) {
+                    notifyRemoval(expired, RemovalCause.EXPIRED);
+                }
+                return null;
+            }
+            CacheObject element = read(entry);
+            if (element == null) {
+                remove(entry, false);
+                return null;
+            }
+            algorithm.shift(cache, entry);
+            return element.getValue();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * method for removeLast all old elements, removed elements are marked by tombstones
+     *
+     * @return null, elements are not loaded from files
+     */
+    @Override
+    public LinkedList removeNotActual() {
+        try {
+            lock.lock();
+            expire();
+        } finally {
+            lock.unlock();
+        }
+        return null;
+    }
+
+    /**
+     * Removes element by key
+     *
+     * @param key - key
+     * @return value of the removed element or null if this cache does not contain actual element
+     */
+    @Override
+    public Object remove(Object key) {
+        try {
+            lock.lock();
+            Entry entry = index.get(key);
+            if (entry == null) {
+                return null;
+            }
+            boolean actual = entry.getElement().getEndOfLife() >= System.currentTimeMillis();
+            CacheObject element = remove(entry, actual);
+            return actual && element != null ? element.getValue() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param key - key of the element
+     * @return index of the value or -1 if this cache does not contain the element
+     */
+    @Override
+    public int indexOf(Object key) {
+        try {
+            lock.lock();
+            Entry entry = index.get(key);
+            if (entry == null) {
+                return -1;
+            }
+            int i = 0;
+            for (CacheList.Node node : cache) {
+                if (node == entry) return i;
+                i++;
+            }
+            return -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return statistics of {@link CompressingCodec} of values or null if values are not compressed
+     */
+    @Override
+    CompressionStats getCompressionStats() {
+        return CompressionStats.of(valueCodec);
+    }
+
+    /**
+     * @return total size of segment files in bytes
+     */
+    public long getDiskSize() {
+        try {
+            lock.lock();
+            long size = 0;
+            for (Segment segment : segments.values()) {
+                size += segment.size;
+            }
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies live records of segments with a lot of dead records to the active segment
+     * and deletes these segments
+     */
+    public void compact() {
+        try {
+            lock.lock();
+            for (Segment segment : segments.values().toArray(new Segment[0])) {
+                if (segment != active && segment.deadBytes >= segment.size * COMPACTION_THRESHOLD) {
+                    compact(segment);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error while compacting cache");
+            e.printStackTrace();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops background compaction and closes segment files
+     */
+    public void close() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+        try {
+            lock.lock();
+            for (Segment segment : segments.values()) {
+                closeQuietly(segment);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends record of the element and links it to the list
+     */
+    @SuppressWarnings("unchecked")
+    private void put(CacheObject element, boolean first) {
+        byte[] record;
+        try {
+            record = encode(PUT, element.getEndOfLife(),
+                    keyCodec.encode(element.getKey()), valueCodec.encode(element.getValue()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            lock.lock();
+            expire();
+            Entry previous = index.get(element.getKey());
+            if (previous != null) {
+                algorithm.removed(cache, previous);
+                cache.unlink(previous);
+                timingWheel.deschedule(previous);
+                previous.segment.deadBytes += previous.length;
+            }
+            long offset = append(record);
+            CacheObject header = new CacheObject(element.getKey(), null, element.getEndOfLife(), element.getFrequency());
+            Entry entry = new Entry(header, active, offset, record.length);
+            if (first) {
+                cache.addFirst(entry);
+            } else {
+                cache.addLast(entry);
+            }
+            index.put(element.getKey(), entry);
+            timingWheel.schedule(entry);
+            algorithm.inserted(cache, entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Unlinks the element and appends tombstone, must be called under lock
+     *
+     * @param node - linked node
+     * @param load - true to read the value of the removed element
+     * @return removed element, with null value if it is not loaded, or null if its record is damaged
+     */
+    @SuppressWarnings("unchecked")
+    private CacheObject remove(CacheList.Node node, boolean load) {
+        if (node == null) {
+            throw new NoSuchElementException();
+        }
+        Entry entry = (Entry) node;
+        try {
+            CacheObject element = load ? read(entry) : entry.getElement();
+            Object key = entry.getElement().getKey();
+            algorithm.removed(cache, entry);
+            cache.unlink(entry);
+            timingWheel.deschedule(entry);
+            index.remove(key);
+            entry.segment.deadBytes += entry.length;
+            byte[] tombstone = encode(TOMBSTONE, 0, keyCodec.encode(key), new byte[0]);
+            append(tombstone);
+            active.deadBytes += tombstone.length;
+            return element;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Removes old elements whose buckets of {@link TimingWheel} have passed, must be called under lock
+     */
+    private void expire() {
+        timingWheel.advance(System.currentTimeMillis(), node -> {
+            if (node.linked) {
+                CacheObject element = remove(node, hasRemovalListeners());
+                if (element != null) {
+                    notifyRemoval(element, RemovalCause.EXPIRED);
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the record of the entry with one positioned read, must be called under lock
+     *
+     * @return element of the record or null if the record is damaged
+     */
+    private CacheObject read(Entry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+        readFully(entry.segment.channel, buffer, entry.offset);
+        if (!isIntact(buffer.array())) {
+            System.err.println("Damaged record of " + entry.getElement().getKey() + " in " + entry.segment.file);
+            return null;
+        }
+        buffer.flip();
+        buffer.position(9);
+        int keyLength = buffer.getInt();
+        int valueLength = buffer.getInt();
+        buffer.position(HEADER_SIZE + keyLength);
+        byte[] value = new byte[valueLength];
+        buffer.get(value);
+        CacheObject header = entry.getElement();
+        return new CacheObject(header.getKey(), valueCodec.decode(value),
+                header.getEndOfLife(), header.getFrequency());
+    }
+
+    /**
+     * Appends record to the active segment, starts new segment if the active one is full,
+     * must be called under lock
+     *
+     * @return offset of the record in the active segment
+     */
+    private long append(byte[] record) throws IOException {
+        if (active.size > 0 && active.size + record.length > maxSegmentSize) {
+            active = openSegment(active.id + 1);
+        }
+        long offset = active.size;
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            active.channel.write(buffer, offset + buffer.position());
+        }
+        active.size += record.length;
+        return offset;
+    }
+
+    /**
+     * Moves live records of the segment to the active segment and deletes the segment file
+     */
+    private void compact(Segment segment) throws IOException {
+        boolean oldest = segments.firstKey() == segment.id;
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (position < segment.size) {
+            header.clear();
+            readFully(segment.channel, header, position);
+            header.flip();
+            byte type = header.get();
+            header.getLong();
+            int length = HEADER_SIZE + header.getInt() + header.getInt();
+            ByteBuffer record = ByteBuffer.allocate(length);
+            readFully(segment.channel, record, position);
+            if (type == PUT) {
+                Object key = keyCodec.decode(keyOf(record.array()));
+                Entry entry = index.get(key);
+                if (entry != null && entry.segment == segment && entry.offset == position) {
+                    if (isIntact(record.array())) {
+                        entry.offset = append(record.array());
+                        entry.segment = active;
+                    } else {
+                        System.err.println("Damaged record of " + key + " in " + segment.file);
+                        remove(entry, false);
+                    }
+                }
+            } else if (!oldest) {
+                Object key = keyCodec.decode(keyOf(record.array()));
+                if (!index.containsKey(key)) {
+                    append(record.array());
+                    active.deadBytes += length;
+                }
+            }
+            position += length;
+        }
+        segments.remove(segment.id);
+        closeQuietly(segment);
+        if (!segment.file.delete()) {
+            System.err.println("Can't delete " + segment.file);
+        }
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        Segment segment = new Segment(id, new File(directory, SEGMENT_PREFIX + id + SEGMENT_SUFFIX));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    /**
+     * Opens existing segments in the order of their ids and replays their records,
+     * the last segment becomes active. Without segments the first one is created.
+     */
+    private void recover() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        int[] ids = files == null ? new int[0] : Arrays.stream(files)
+                .map(file -> file.getName().substring(SEGMENT_PREFIX.length(),
+                        file.getName().length() - SEGMENT_SUFFIX.length()))
+                .filter(id -> id.matches("\\d+"))
+                .mapToInt(Integer::parseInt)
+                .sorted()
+                .toArray();
+        for (int id : ids) {
+            active = openSegment(id);
+            replay(active);
+        }
+        if (active == null) {
+            active = openSegment(0);
+        }
+    }
+
+    /**
+     * Indexes PUT records of the segment and applies its tombstones, expired records are counted as dead.
+     * Damaged or incomplete record ends the segment: the segment is cut before it.
+     */
+    @SuppressWarnings("unchecked")
+    private void replay(Segment segment) throws IOException {
+        long now = System.currentTimeMillis();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (position < segment.size) {
+            if (segment.size - position < HEADER_SIZE) {
+                break;
+            }
+            header.clear();
+            readFully(segment.channel, header, position);
+            header.flip();
+            byte type = header.get();
+            long endOfLife = header.getLong();
+            long length = (long) HEADER_SIZE + header.getInt() + header.getInt();
+            if ((type != PUT && type != TOMBSTONE) || length < HEADER_SIZE || length > segment.size - position) {
+                break;
+            }
+            ByteBuffer record = ByteBuffer.allocate((int) length);
+            readFully(segment.channel, record, position);
+            if (!isIntact(record.array())) {
+                break;
+            }
+            Object key = keyCodec.decode(keyOf(record.array()));
+            Entry previous = index.remove(key);
+            if (previous != null) {
+                algorithm.removed(cache, previous);
+                cache.unlink(previous);
+                timingWheel.deschedule(previous);
+                previous.segment.deadBytes += previous.length;
+            }
+            if (type == PUT && endOfLife >= now) {
+                CacheObject element = new CacheObject(key, null, endOfLife, 0);
+                Entry entry = new Entry(element, segment, position, (int) length);
+                cache.addLast(entry);
+                index.put(key, entry);
+                timingWheel.schedule(entry);
+                algorithm.inserted(cache, entry);
+            } else {
+                segment.deadBytes += length;
+            }
+            position += length;
+        }
+        if (position < segment.size) {
+            System.err.println("Damaged record in " + segment.file + ", segment is cut at " + position);
+            segment.channel.truncate(position);
+            segment.size = position;
+        }
+    }
+
+    private static void closeQuietly(Segment segment) {
+        try {
+            segment.channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment file");
+            }
+        }
+    }
+
+    /**
+     * @return record with header and CRC32 of the header fields, key and value
+     */
+    static byte[] encode(byte type, long endOfLife, byte[] key, byte[] value) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + key.length + value.length);
+        buffer.put(type).putLong(endOfLife).putInt(key.length).putInt(value.length).putInt(0).put(key).put(value);
+        byte[] record = buffer.array();
+        buffer.putInt(17, checksum(record));
+        return record;
+    }
+
+    /**
+     * @return true if the checksum field matches the record
+     */
+    static boolean isIntact(byte[] record) {
+        return ByteBuffer.wrap(record).getInt(17) == checksum(record);
+    }
+
+    /**
+     * @return CRC32 of the record without the checksum field
+     */
+    static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, 17);
+        crc.update(record, HEADER_SIZE, record.length - HEADER_SIZE);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] keyOf(byte[] record) {
+        int keyLength = ByteBuffer.wrap(record, 9, 4).getInt();
+        byte[] key = new byte[keyLength];
+        System.arraycopy(record, HEADER_SIZE, key, 0, keyLength);
+        return key;
+    }
+}
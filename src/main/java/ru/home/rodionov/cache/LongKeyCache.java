@@ -0,0 +1,518 @@
+package ru.home.rodionov.cache;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation cache data structure for keys of primitive long, store the data in RAM.
+ * Elements are kept in parallel arrays of keys, values, end of life and links of the list,
+ * the index is a hash table with open addressing of element numbers, so {@link #get(long)}
+ * doesn't box the key and doesn't allocate objects.
+ * <p>
+ * The order of the elements is least recently used: found element is moved to the beginning,
+ * the last element is removed when the cache is full. Methods of {@link Cache} take keys as {@link Number}
+ * and return elements with {@link Long} keys.
+ */
+public class LongKeyCache extends Cache {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NIL = -1;
+
+    private long[] keys;
+    private Object[] values;
+    private long[] endOfLife;
+    private int[] frequency;
+    private int[] prev;
+    private int[] next;
+    private int[] table;
+    private int head = NIL;
+    private int tail = NIL;
+    private int freeHead = NIL;
+    private int used;
+    private int size;
+    private long nextExpiry = Long.MAX_VALUE;
+
+    private int maxSize;
+    private ReentrantLock lock = new ReentrantLock();
+    private long TTL;
+
+    /**
+     * @param TTL     - storage time for elements in milliseconds
+     * @param maxSize - max size of this cache, arrays grow up to it
+     */
+    public LongKeyCache(long TTL, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Max size must be positive");
+        }
+        this.TTL = TTL;
+        this.maxSize = maxSize;
+        allocate(Math.min(INITIAL_CAPACITY, maxSize));
+    }
+
+    /**
+     * Create new element with key-value and appends it to the end of this cache
+     *
+     * @param key   - key
+     * @param value - value
+     */
+    public void add(long key, Object value) {
+        put(key, value, System.currentTimeMillis() + TTL, 0, false);
+    }
+
+    /**
+     * @param key - key
+     * @return value by key or null if not exists
+     */
+    public Object get(long key) {
+        try {
+            lock.lock();
+            int slot = find(key);
+            if (slot < 0) {
+                return null;
+            }
+            int entry = table[slot] - 1;
+            if (endOfLife[entry] < System.currentTimeMillis()) {
+                expire(entry);
+                return null;
+            }
+            moveToFront(entry);
+            return values[entry];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes element by key
+     *
+     * @param key - key
+     * @return value of the removed element or null if this cache does not contain actual element
+     */
+    public Object remove(long key) {
+        try {
+            lock.lock();
+            int slot = find(key);
+            if (slot < 0) {
+                return null;
+            }
+            int entry = table[slot] - 1;
+            Object value = endOfLife[entry] < System.currentTimeMillis() ? null : values[entry];
+            removeEntry(entry);
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Create new element with key-value and appends it to the end of this cache
+     *
+     * @param key   - key, any {@link Number}
+     * @param value - value
+     */
+    @Override
+    public void add(Object key, Object value) {
+        add(toLong(key), value);
+    }
+
+    /**
+     * Inserts element in the beginning of this cache, replaces previous element with the same key
+     *
+     * @param element - the element to add
+     */
+    @Override
+    public void addFirst(CacheObject element) {
+        put(toLong(element.getKey()), element.getValue(), element.getEndOfLife(), element.getFrequency(), true);
+    }
+
+    /**
+     * Append element to the end of this cache, replaces previous element with the same key
+     *
+     * @param element - the element to add
+     */
+    @Override
+    public void addLast(CacheObject element) {
+        put(toLong(element.getKey()), element.getValue(), element.getEndOfLife(), element.getFrequency(), false);
+    }
+
+    /**
+     * Clears the cache, arrays are kept for new elements
+     */
+    @Override
+    public void clear() {
+        try {
+            lock.lock();
+            Arrays.fill(table, 0);
+            Arrays.fill(values, null);
+            head = NIL;
+            tail = NIL;
+            freeHead = NIL;
+            used = 0;
+            size = 0;
+            nextExpiry = Long.MAX_VALUE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes first element from cache
+     *
+     * @return removed element
+     */
+    @Override
+    public CacheObject removeFirst() {
+        try {
+            lock.lock();
+            if (head == NIL) {
+                throw new NoSuchElementException();
+            }
+            CacheObject element = element(head);
+            removeEntry(head);
+            return element;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes last element from cache
+     *
+     * @return removed element
+     */
+    @Override
+    public CacheObject removeLast() {
+        try {
+            lock.lock();
+            if (tail == NIL) {
+                throw new NoSuchElementException();
+            }
+            CacheObject element = element(tail);
+            removeEntry(tail);
+            return element;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return elements count in this cache
+     */
+    @Override
+    public int size() {
+        try {
+            lock.lock();
+            expire();
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param key - key, any {@link Number}
+     * @return value by key or null if not exists
+     */
+    @Override
+    public Object get(Object key) {
+        return get(toLong(key));
+    }
+
+    /**
+     * method for removeLast all old elements
+     *
+     * @return null, elements are not copied to a list
+     */
+    @Override
+    public LinkedList removeNotActual() {
+        try {
+            lock.lock();
+            expire();
+        } finally {
+            lock.unlock();
+        }
+        return null;
+    }
+
+    /**
+     * Removes element by key
+     *
+     * @param key - key, any {@link Number}
+     * @return value of the removed element or null if this cache does not contain actual element
+     */
+    @Override
+    public Object remove(Object key) {
+        return remove(toLong(key));
+    }
+
+    /**
+     * @param key - key of the element, any {@link Number}
+     * @return index of the value or -1 if this cache does not contain the element
+     */
+    @Override
+    public int indexOf(Object key) {
+        try {
+            lock.lock();
+            int slot = find(toLong(key));
+            if (slot < 0) {
+                return -1;
+            }
+            int entry = table[slot] - 1;
+            int i = 0;
+            for (int current = head; current != NIL; current = next[current]) {
+                if (current == entry) return i;
+                i++;
+            }
+            return -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the element to a free entry, removes the last element if the cache is full
+     */
+    private void put(long key, Object value, long elementEndOfLife, int elementFrequency, boolean first) {
+        try {
+            lock.lock();
+            expire();
+            int slot = find(key);
+            int entry;
+            if (slot >= 0) {
+                entry = table[slot] - 1;
+                unlink(entry);
+            } else {
+                if (size >= maxSize) {
+                    CacheObject evicted = hasRemovalListeners() ? element(tail) : null;
+                    removeEntry(tail);
+                    if (evicted != null) {
+                        notifyRemoval(evicted, RemovalCause.EVICTED);
+                    }
+                }
+                entry = newEntry();
+                keys[entry] = key;
+                insert(entry);
+                size++;
+            }
+            values[entry] = value;
+            endOfLife[entry] = elementEndOfLife;
+            frequency[entry] = elementFrequency;
+            if (first) {
+                linkFirst(entry);
+            } else {
+                linkLast(entry);
+            }
+            nextExpiry = Math.min(nextExpiry, elementEndOfLife);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes old elements if some of them could expire, must be called under lock
+     */
+    private void expire() {
+        long now = System.currentTimeMillis();
+        if (now <= nextExpiry) {
+            return;
+        }
+        long nextEndOfLife = Long.MAX_VALUE;
+        int entry = head;
+        while (entry != NIL) {
+            int following = next[entry];
+            if (endOfLife[entry] < now) {
+                expire(entry);
+            } else {
+                nextEndOfLife = Math.min(nextEndOfLife, endOfLife[entry]);
+            }
+            entry = following;
+        }
+        nextExpiry = nextEndOfLife;
+    }
+
+    /**
+     * Removes expired element and passes it to listeners, must be called under lock
+     */
+    private void expire(int entry) {
+        CacheObject expired = hasRemovalListeners() ? element(entry) : null;
+        removeEntry(entry);
+        if (expired != null) {
+            notifyRemoval(expired, RemovalCause.EXPIRED);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private CacheObject element(int entry) {
+        return new CacheObject(keys[entry], values[entry], endOfLife[entry], frequency[entry]);
+    }
+
+    /**
+     * Unlinks the element, removes it from the index and returns its entry to the free list
+     */
+    private void removeEntry(int entry) {
+        unlink(entry);
+        int mask = table.length - 1;
+        int slot = hash(keys[entry]) & mask;
+        while (table[slot] != entry + 1) {
+            slot = (slot + 1) & mask;
+        }
+        deleteSlot(slot);
+        values[entry] = null;
+        next[entry] = freeHead;
+        freeHead = entry;
+        size--;
+    }
+
+    /**
+     * @return free entry, arrays grow if all entries are used
+     */
+    private int newEntry() {
+        if (freeHead != NIL) {
+            int entry = freeHead;
+            freeHead = next[entry];
+            return entry;
+        }
+        if (used == keys.length) {
+            grow();
+        }
+        return used++;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        endOfLife = new long[capacity];
+        frequency = new int[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        table = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+    }
+
+    /**
+     * Doubles the arrays up to max size and rebuilds the index
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        long[] oldEndOfLife = endOfLife;
+        int[] oldFrequency = frequency;
+        int[] oldPrev = prev;
+        int[] oldNext = next;
+        int capacity = (int) Math.min(maxSize, oldKeys.length * 2L);
+        allocate(capacity);
+        System.arraycopy(oldKeys, 0, keys, 0, used);
+        System.arraycopy(oldValues, 0, values, 0, used);
+        System.arraycopy(oldEndOfLife, 0, endOfLife, 0, used);
+        System.arraycopy(oldFrequency, 0, frequency, 0, used);
+        System.arraycopy(oldPrev, 0, prev, 0, used);
+        System.arraycopy(oldNext, 0, next, 0, used);
+        for (int entry = head; entry != NIL; entry = next[entry]) {
+            insert(entry);
+        }
+    }
+
+    /**
+     * Searches the index with linear probing, slots keep entry + 1 so zero is an empty slot
+     *
+     * @return slot of the key or -1 if not exists
+     */
+    private int find(long key) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while (true) {
+            int value = table[slot];
+            if (value == 0) {
+                return -1;
+            }
+            if (keys[value - 1] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void insert(int entry) {
+        int mask = table.length - 1;
+        int slot = hash(keys[entry]) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = entry + 1;
+    }
+
+    /**
+     * Empties the slot and shifts following elements of the probe sequence back, so search doesn't need tombstones
+     */
+    private void deleteSlot(int slot) {
+        int mask = table.length - 1;
+        int hole = slot;
+        int i = slot;
+        while (true) {
+            i = (i + 1) & mask;
+            int value = table[i];
+            if (value == 0) {
+                break;
+            }
+            int home = hash(keys[value - 1]) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                table[hole] = value;
+                hole = i;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    private void moveToFront(int entry) {
+        if (entry != head) {
+            unlink(entry);
+            linkFirst(entry);
+        }
+    }
+
+    private void linkFirst(int entry) {
+        prev[entry] = NIL;
+        next[entry] = head;
+        if (head != NIL) {
+            prev[head] = entry;
+        } else {
+            tail = entry;
+        }
+        head = entry;
+    }
+
+    private void linkLast(int entry) {
+        next[entry] = NIL;
+        prev[entry] = tail;
+        if (tail != NIL) {
+            next[tail] = entry;
+        } else {
+            head = entry;
+        }
+        tail = entry;
+    }
+
+    private void unlink(int entry) {
+        int before = prev[entry];
+        int after = next[entry];
+        if (before == NIL) {
+            head = after;
+        } else {
+            next[before] = after;
+        }
+        if (after == NIL) {
+            tail = before;
+        } else {
+            prev[after] = before;
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long toLong(Object key) {
+        return ((Number) key).longValue();
+    }
+}
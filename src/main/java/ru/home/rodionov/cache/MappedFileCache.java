@@ -0,0 +1,619 @@
+package ru.home.rodionov.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation cache data structure based on memory-mapped file of fixed-size slotted pages.
+ * The file is mapped by chunks of pages, new chunk is mapped when all pages are used.
+ * <p>
+ * Page layout: slots count (4 bytes), start of the data area (4), slot directory, free space, data area.
+ * Slot: end of life (8 bytes), offset of the record in the page (4), length of the record (4, 0 for free slot).
+ * Record: key length (4 bytes), key, value. Records grow from the end of the page to the slot directory,
+ * so expiration time of all elements of the page is read without reading the records.
+ * <p>
+ * Keys and location of the records are kept in RAM, the record is read and updated in place in the mapped memory.
+ * Space of removed records is reused when all records of the page are removed.
+ * Element with a record larger than a page is not stored, it is passed to listeners as evicted.
+ * Old elements are found by {@link TimingWheel} without a scan of the whole cache.
+ */
+public class MappedFileCache extends Cache {
+    static final int PAGE_HEADER_SIZE = 8;
+    static final int SLOT_SIZE = 16;
+    private static final int DEFAULT_PAGE_SIZE = 4096;
+    private static final int DEFAULT_PAGES_PER_CHUNK = 256;
+
+    private File file;
+    private FileChannel channel;
+    private CacheAlgorithm algorithm;
+    private long TTL;
+    private int pageSize;
+    private int pagesPerChunk;
+    private Codec keyCodec;
+    private Codec valueCodec;
+    private List<MappedByteBuffer> chunks = new ArrayList<>();
+    private int[] liveRecords = new int[0];
+    private int pageCount;
+    private int currentPage = -1;
+    private ArrayDeque<Integer> freePages = new ArrayDeque<>();
+    private Map<Object, Entry> index = new HashMap<>();
+    private CacheList cache = new CacheList();
+    private TimingWheel timingWheel = new TimingWheel(System.currentTimeMillis());
+    private ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Node of the element with location of its record
+     */
+    private static class Entry extends CacheList.Node {
+        private int page;
+        private int slot;
+
+        private Entry(CacheObject element, int page, int slot) {
+            super(element);
+            this.page = page;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * @param filepath  - path to create a cache file
+     * @param algorithm - any implementation of {@link CacheAlgorithm}
+     * @param TTL       - storage time for elements in milliseconds
+     */
+    public MappedFileCache(String filepath, CacheAlgorithm algorithm, long TTL) {
+        this(filepath, algorithm, TTL, Codecs.DEFAULT, Codecs.DEFAULT);
+    }
+
+    /**
+     * @param filepath   - path to create a cache file
+     * @param algorithm  - any implementation of {@link CacheAlgorithm}
+     * @param TTL        - storage time for elements in milliseconds
+     * @param keyCodec   - any implementation of {@link Codec} for keys
+     * @param valueCodec - any implementation of {@link Codec} for values
+     */
+    public MappedFileCache(String filepath, CacheAlgorithm algorithm, long TTL, Codec keyCodec, Codec valueCodec) {
+        this(filepath, algorithm, TTL, DEFAULT_PAGE_SIZE, DEFAULT_PAGES_PER_CHUNK, keyCodec, valueCodec);
+    }
+
+    /**
+     * @param filepath      - path to create a cache file
+     * @param algorithm     - any implementation of {@link CacheAlgorithm}
+     * @param TTL           - storage time for elements in milliseconds
+     * @param pageSize      - size of the page in bytes, limits the size of the element
+     * @param pagesPerChunk - count of pages mapped at once
+     */
+    public MappedFileCache(String filepath, CacheAlgorithm algorithm, long TTL, int pageSize, int pagesPerChunk) {
+        this(filepath, algorithm, TTL, pageSize, pagesPerChunk, Codecs.DEFAULT, Codecs.DEFAULT);
+    }
+
+    /**
+     * @param filepath      - path to create a cache file
+     * @param algorithm     - any implementation of {@link CacheAlgorithm}
+     * @param TTL           - storage time for elements in milliseconds
+     * @param pageSize      - size of the page in bytes, limits the size of the element
+     * @param pagesPerChunk - count of pages mapped at once
+     * @param keyCodec      - any implementation of {@link Codec} for keys
+     * @param valueCodec    - any implementation of {@link Codec} for values
+     */
+    public MappedFileCache(String filepath, CacheAlgorithm algorithm, long TTL, int pageSize, int pagesPerChunk,
+                           Codec keyCodec, Codec valueCodec) {
+        if (pageSize < PAGE_HEADER_SIZE + SLOT_SIZE + 8 || pagesPerChunk < 1) {
+            throw new IllegalArgumentException("Page size or pages per chunk is too small");
+        }
+        this.file = new File(filepath);
+        this.algorithm = algorithm;
+        this.TTL = TTL;
+        this.pageSize = pageSize;
+        this.pagesPerChunk = pagesPerChunk;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        try {
+            this.channel = new RandomAccessFile(file, "rw").getChannel();
+            channel.truncate(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Create new element with key-value and appends it to the end of this cache
+     *
+     * @param key   - key
+     * @param value - value
+     */
+    @Override
+    public void add(Object key, Object value) {
+        CacheObject element = new CacheObject(key, value, TTL);
+        addLast(element);
+    }
+
+    /**
+     * Inserts element in the beginning of this cache, replaces previous element with the same key.
+     * Element which doesn't fit the page is not stored and is passed to listeners as evicted.
+     *
+     * @param element - the element to add
+     */
+    @Override
+    public void addFirst(CacheObject element) {
+        if (!put(element, true)) {
+            notifyRemoval(element, RemovalCause.EVICTED);
+        }
+    }
+
+    /**
+     * Append element to the end of this cache, replaces previous element with the same key.
+     * Element which doesn't fit the page is not stored and is passed to listeners as evicted.
+     *
+     * @param element - the element to add
+     */
+    @Override
+    public void addLast(CacheObject element) {
+        if (!put(element, false)) {
+            notifyRemoval(element, RemovalCause.EVICTED);
+        }
+    }
+
+    /**
+     * Inserts elements in the beginning one by one, then removes the last elements while the size exceeds max size
+     *
+     * @param elements - elements to insert
+     * @param maxSize  - max size of this cache
+     * @return removed elements and elements which don't fit the page
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    List addAllFirst(List elements, int maxSize) {
+        List<CacheObject> removed = new ArrayList<>();
+        for (CacheObject element : (List<CacheObject>) elements) {
+            if (!put(element, true)) {
+                removed.add(element);
+            }
+        }
+        try {
+            lock.lock();
+            while (cache.size() > maxSize) {
+                removed.add(remove(algorithm.victim(cache), true));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return removed;
+    }
+
+    /**
+     * Unmaps and truncates the file
+     */
+    @Override
+    public void clear() {
+        try {
+            lock.lock();
+            unmapAll();
+            channel.truncate(0);
+            cache.clear();
+            index.clear();
+            timingWheel.clear();
+            algorithm.cleared(cache);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes first element from cache
+     *
+     * @return removed element
+     */
+    @Override
+    public CacheObject removeFirst() {
+        try {
+            lock.lock();
+            return remove(cache.first(), true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes last element from cache or the element chosen by the algorithm to displace
+     *
+     * @return removed element
+     */
+    @Override
+    public CacheObject removeLast() {
+        try {
+            lock.lock();
+            return remove(algorithm.victim(cache), true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return elements count in this cache
+     */
+    @Override
+    public int size() {
+        try {
+            lock.lock();
+            expire();
+            return cache.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param key - key
+     * @return value by key or null if not exists
+     */
+    @Override
+    public Object get(Object key) {
+        try {
+            lock.lock();
+            Entry entry = index.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.getElement().getEndOfLife() < System.currentTimeMillis()) {
+                notifyRemoval(remove(entry, hasRemovalListeners()), RemovalCause.EXPIRED);
+                return null;
+            }
+            algorithm.shift(cache, entry);
+            return read(entry).getValue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * method for removeLast all old elements
+     *
+     * @return null, elements are not loaded from the file
+     */
+    @Override
+    public LinkedList removeNotActual() {
+        try {
+            lock.lock();
+            expire();
+        } finally {
+            lock.unlock();
+        }
+        return null;
+    }
+
+    /**
+     * Removes element by key
+     *
+     * @param key - key
+     * @return value of the removed element or null if this cache does not contain actual element
+     */
+    @Override
+    public Object remove(Object key) {
+        try {
+            lock.lock();
+            Entry entry = index.get(key);
+            if (entry == null) {
+                return null;
+            }
+            boolean actual = entry.getElement().getEndOfLife() >= System.currentTimeMillis();
+            CacheObject element = remove(entry, actual);
+            return actual ? element.getValue() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param key - key of the element
+     * @return index of the value or -1 if this cache does not contain the element
+     */
+    @Override
+    public int indexOf(Object key) {
+        try {
+            lock.lock();
+            Entry entry = index.get(key);
+            if (entry == null) {
+                return -1;
+            }
+            int i = 0;
+            for (CacheList.Node node : cache) {
+                if (node == entry) return i;
+                i++;
+            }
+            return -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return statistics of {@link CompressingCodec} of values or null if values are not compressed
+     */
+    @Override
+    CompressionStats getCompressionStats() {
+        return CompressionStats.of(valueCodec);
+    }
+
+    /**
+     * @return size of the mapped file in bytes
+     */
+    public long getMappedSize() {
+        try {
+            lock.lock();
+            return (long) chunks.size() * pagesPerChunk * pageSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Unmaps and closes the file
+     */
+    public void close() {
+        try {
+            lock.lock();
+            unmapAll();
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the record in place of the previous record with the same key if it fits, otherwise to a page with free space.
+     * Record larger than a page is not written, previous element with the same key is removed as outdated.
+     *
+     * @return false if the record doesn't fit the page
+     */
+    @SuppressWarnings("unchecked")
+    private boolean put(CacheObject element, boolean first) {
+        byte[] record;
+        try {
+            byte[] key = keyCodec.encode(element.getKey());
+            byte[] value = valueCodec.encode(element.getValue());
+            record = ByteBuffer.allocate(4 + key.length + value.length).putInt(key.length).put(key).put(value).array();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            lock.lock();
+            expire();
+            if (record.length > pageSize - PAGE_HEADER_SIZE - SLOT_SIZE) {
+                Entry previous = index.get(element.getKey());
+                if (previous != null) {
+                    remove(previous, false);
+                }
+                return false;
+            }
+            CacheObject header = new CacheObject(element.getKey(), null, element.getEndOfLife(), element.getFrequency());
+            Entry entry = index.get(element.getKey());
+            if (entry != null && record.length <= slotLength(entry.page, entry.slot)) {
+                ByteBuffer page = page(entry.page);
+                int slotPosition = PAGE_HEADER_SIZE + entry.slot * SLOT_SIZE;
+                int offset = page.getInt(slotPosition + 8);
+                page.putLong(slotPosition, element.getEndOfLife());
+                page.putInt(slotPosition + 12, record.length);
+                writeRecord(page, offset, record);
+                algorithm.removed(cache, entry);
+                cache.unlink(entry);
+                timingWheel.deschedule(entry);
+                entry.element = header;
+            } else {
+                if (entry != null) {
+                    remove(entry, false);
+                }
+                entry = allocate(header, record);
+            }
+            if (first) {
+                cache.addFirst(entry);
+            } else {
+                cache.addLast(entry);
+            }
+            index.put(element.getKey(), entry);
+            timingWheel.schedule(entry);
+            algorithm.inserted(cache, entry);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the record to the current page or to a new one, must be called under lock
+     */
+    private Entry allocate(CacheObject header, byte[] record) throws IOException {
+        if (currentPage < 0 || freeSpace(currentPage) < record.length + SLOT_SIZE) {
+            currentPage = freePages.isEmpty() ? newPage() : freePages.poll();
+        }
+        ByteBuffer page = page(currentPage);
+        int slots = page.getInt(0);
+        int slot = 0;
+        while (slot < slots && page.getInt(PAGE_HEADER_SIZE + slot * SLOT_SIZE + 12) != 0) {
+            slot++;
+        }
+        if (slot == slots) {
+            page.putInt(0, slots + 1);
+        }
+        int offset = page.getInt(4) - record.length;
+        page.putInt(4, offset);
+        int slotPosition = PAGE_HEADER_SIZE + slot * SLOT_SIZE;
+        page.putLong(slotPosition, header.getEndOfLife());
+        page.putInt(slotPosition + 8, offset);
+        page.putInt(slotPosition + 12, record.length);
+        writeRecord(page, offset, record);
+        liveRecords[currentPage]++;
+        return new Entry(header, currentPage, slot);
+    }
+
+    /**
+     * Frees the slot of the element, the page is reused when it has no records, must be called under lock
+     *
+     * @param node - linked node
+     * @param load - true to read the value of the removed element
+     * @return removed element, with null value if it is not loaded
+     */
+    private CacheObject remove(CacheList.Node node, boolean load) {
+        if (node == null) {
+            throw new NoSuchElementException();
+        }
+        Entry entry = (Entry) node;
+        CacheObject element = load ? read(entry) : entry.getElement();
+        algorithm.removed(cache, entry);
+        cache.unlink(entry);
+        timingWheel.deschedule(entry);
+        index.remove(element.getKey());
+        ByteBuffer page = page(entry.page);
+        page.putInt(PAGE_HEADER_SIZE + entry.slot * SLOT_SIZE + 12, 0);
+        if (--liveRecords[entry.page] == 0) {
+            resetPage(entry.page);
+            if (entry.page == currentPage) {
+                currentPage = -1;
+            }
+            freePages.push(entry.page);
+        }
+        return element;
+    }
+
+    /**
+     * Removes old elements whose buckets of {@link TimingWheel} have passed, must be called under lock
+     */
+    private void expire() {
+        timingWheel.advance(System.currentTimeMillis(), node -> {
+            if (node.linked) {
+                notifyRemoval(remove(node, hasRemovalListeners()), RemovalCause.EXPIRED);
+            }
+        });
+    }
+
+    /**
+     * Reads the value of the element from the mapped memory, must be called under lock
+     */
+    private CacheObject read(Entry entry) {
+        ByteBuffer page = page(entry.page);
+        int slotPosition = PAGE_HEADER_SIZE + entry.slot * SLOT_SIZE;
+        int offset = page.getInt(slotPosition + 8);
+        int length = page.getInt(slotPosition + 12);
+        int keyLength = page.getInt(offset);
+        byte[] value = new byte[length - 4 - keyLength];
+        ByteBuffer record = page.duplicate();
+        record.position(offset + 4 + keyLength);
+        record.get(value);
+        CacheObject header = entry.getElement();
+        try {
+            return new CacheObject(header.getKey(), valueCodec.decode(value),
+                    header.getEndOfLife(), header.getFrequency());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return index of new empty page, maps new chunk if needed
+     */
+    private int newPage() throws IOException {
+        int page = pageCount++;
+        if (page / pagesPerChunk >= chunks.size()) {
+            long chunkSize = (long) pagesPerChunk * pageSize;
+            chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, chunks.size() * chunkSize, chunkSize));
+            liveRecords = Arrays.copyOf(liveRecords, chunks.size() * pagesPerChunk);
+        }
+        resetPage(page);
+        return page;
+    }
+
+    /**
+     * @return view of the page, position 0 is the beginning of the page
+     */
+    private ByteBuffer page(int page) {
+        ByteBuffer chunk = chunks.get(page / pagesPerChunk).duplicate();
+        int start = (page % pagesPerChunk) * pageSize;
+        chunk.position(start);
+        chunk.limit(start + pageSize);
+        return chunk.slice();
+    }
+
+    private void resetPage(int page) {
+        ByteBuffer buffer = page(page);
+        buffer.putInt(0, 0);
+        buffer.putInt(4, pageSize);
+    }
+
+    private int freeSpace(int page) {
+        ByteBuffer buffer = page(page);
+        return buffer.getInt(4) - PAGE_HEADER_SIZE - buffer.getInt(0) * SLOT_SIZE;
+    }
+
+    private int slotLength(int page, int slot) {
+        return page(page).getInt(PAGE_HEADER_SIZE + slot * SLOT_SIZE + 12);
+    }
+
+    private static void writeRecord(ByteBuffer page, int offset, byte[] record) {
+        ByteBuffer target = page.duplicate();
+        target.position(offset);
+        target.put(record);
+    }
+
+    /**
+     * Unmaps all chunks and forgets all pages, must be called under lock
+     */
+    private void unmapAll() {
+        for (MappedByteBuffer chunk : chunks) {
+            release(chunk);
+        }
+        chunks.clear();
+        liveRecords = new int[0];
+        pageCount = 0;
+        currentPage = -1;
+        freePages.clear();
+    }
+
+    /**
+     * Releases the mapping or the memory of the direct buffer at once instead of waiting for garbage collection.
+     * There is no public API for it, so the cleaner is called by reflection (Java 9+ and Java 8 ways),
+     * if both fail the buffer is released by garbage collection.
+     */
+    static void release(ByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(field.get(null), buffer);
+            return;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 8, try the cleaner of the buffer
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // left to garbage collection
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package ru.home.rodionov.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache of any count of levels ordered from the fastest to the slowest,
+ * for example RAM, off-heap memory and a file.
+ * <p>
+ * Get requests the levels top-down and stops at the first level having the element,
+ * the found element is moved up by {@link PromotionPolicy}. New elements are added to the first level,
+ * element displaced from a full level is moved down by {@link DemotionPolicy}, which may displace
+ * an element of that level in turn, so demotions cascade until an element is dropped.
+ * <p>
+ * Lookups don't take a lock, so a hit in an upper level never waits for I/O of lower levels.
+ * Moves of elements between levels and removals are serialized by the lock. Every move changes the move count
+ * before the element leaves its level and after it comes to the new one, so a lookup missing the element
+ * while it was moved is repeated under the lock. {@link #size()} and {@link #indexOf(Object)} are not repeated
+ * and may count an element being moved twice or not at all.
+ */
+public class MultiLevelCache extends Cache {
+    private Cache[] levels;
+    private int[] maxSizes;
+    private LevelStats[] stats;
+    private PromotionPolicy promotion;
+    private DemotionPolicy demotion;
+    private ReentrantLock lock = new ReentrantLock();
+    private AtomicLong moves = new AtomicLong();
+
+    /**
+     * Cache moving found elements to the first level and displaced elements to the next level
+     *
+     * @param levels   - any implementations of {@link Cache} from the first level to the last one
+     * @param maxSizes - max sizes of the levels in the same order
+     */
+    public MultiLevelCache(List<Cache> levels, int[] maxSizes) {
+        this(levels, maxSizes, PromotionPolicy.toFirstLevel(), DemotionPolicy.nextLevel());
+    }
+
+    /**
+     * @param levels    - any implementations of {@link Cache} from the first level to the last one
+     * @param maxSizes  - max sizes of the levels in the same order
+     * @param promotion - rule of moving found elements up
+     * @param demotion  - rule of moving displaced elements down
+     */
+    public MultiLevelCache(List<Cache> levels, int[] maxSizes, PromotionPolicy promotion, DemotionPolicy demotion) {
+        if (levels.isEmpty() || levels.size() != maxSizes.length) {
+            throw new IllegalArgumentException("Every level must have max size");
+        }
+        this.levels = levels.toArray(new Cache[0]);
+        this.maxSizes = maxSizes.clone();
+        this.stats = new LevelStats[this.levels.length];
+        this.promotion = promotion;
+        this.demotion = demotion;
+        for (int i = 0; i < this.levels.length; i++) {
+            if (this.maxSizes[i] < 1) {
+                throw new IllegalArgumentException("Max size must be positive");
+            }
+            this.stats[i] = new LevelStats();
+            this.stats[i].compression = this.levels[i].getCompressionStats();
+            this.stats[i].filter = this.levels[i].getFilterStats();
+            listen(i);
+        }
+    }
+
+    /**
+     * Create new element with key-value and adds it to the first level
+     *
+     * @param key   - key
+     * @param value - value
+     */
+    @Override
+    public void add(Object key, Object value) {
+        try {
+            beginMoves();
+            makeRoom(0);
+            long start = System.nanoTime();
+            levels[0].add(key, value);
+            stats[0].putLatency.record(System.nanoTime() - start);
+        } finally {
+            endMoves();
+        }
+    }
+
+    /**
+     * Inserts element in the beginning of the first level
+     *
+     * @param element - element
+     */
+    @Override
+    public void addFirst(CacheObject element) {
+        try {
+            beginMoves();
+            makeRoom(0);
+            levels[0].addFirst(element);
+        } finally {
+            endMoves();
+        }
+    }
+
+    /**
+     * Append element to the end of the first level
+     *
+     * @param element - element to add
+     */
+    @Override
+    public void addLast(CacheObject element) {
+        try {
+            beginMoves();
+            makeRoom(0);
+            long start = System.nanoTime();
+            levels[0].addLast(element);
+            stats[0].putLatency.record(System.nanoTime() - start);
+        } finally {
+            endMoves();
+        }
+    }
+
+    /**
+     * Clears all levels
+     */
+    @Override
+    public void clear() {
+        try {
+            lock.lock();
+            for (Cache level : levels) {
+                level.clear();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CacheObject removeFirst() {
+        try {
+            lock.lock();
+            return levels[0].removeFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CacheObject removeLast() {
+        try {
+            lock.lock();
+            return levels[levels.length - 1].removeLast();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return elements count in all levels
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (Cache level : levels) {
+            size += level.size();
+        }
+        return size;
+    }
+
+    /**
+     * Requests the levels top-down until the element is found, the found element is promoted
+     * if its level has moved it to the beginning, as LRU does
+     *
+     * @param key - key
+     * @return value by key or null if no level has the element
+     */
+    @Override
+    public Object get(Object key) {
+        long movesBefore = moves.get();
+        for (int i = 0; i < levels.length; i++) {
+            Object value = TwoLevelCache.get(levels[i], stats[i], key);
+            if (value != null) {
+                if (i > 0) {
+                    promote(i, key);
+                }
+                return value;
+            }
+        }
+        if (!moved(movesBefore)) {
+            return null;
+        }
+        try {
+            lock.lock();
+            for (int i = 0; i < levels.length; i++) {
+                Object value = levels[i].get(key);
+                if (value != null) {
+                    stats[i].misses.decrement();
+                    stats[i].hits.increment();
+                    if (i > 0) {
+                        promote(i, key);
+                    }
+                    return value;
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Finds values of several keys, every level is requested once only for keys not found in previous levels.
+     * Found elements are not promoted between levels.
+     *
+     * @param keys - keys
+     * @return found values by keys in the order of keys, missing keys are absent
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map getAll(Collection keys) {
+        long movesBefore = moves.get();
+        Map<Object, Object> found = new HashMap<>();
+        List<Object> remaining = new ArrayList<Object>(keys);
+        for (int i = 0; i < levels.length; i++) {
+            remaining = TwoLevelCache.getAll(levels[i], stats[i], remaining, found);
+        }
+        if (!remaining.isEmpty() && moved(movesBefore)) {
+            try {
+                lock.lock();
+                for (int i = 0; i < levels.length && !remaining.isEmpty(); i++) {
+                    Map<Object, Object> values = levels[i].getAll(remaining);
+                    stats[i].misses.add(-values.size());
+                    stats[i].hits.add(values.size());
+                    found.putAll(values);
+                    remaining.removeAll(values.keySet());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        Map<Object, Object> values = new LinkedHashMap<>();
+        for (Object key : (Collection<Object>) keys) {
+            Object value = found.get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Removes elements of several keys, every level is requested once
+     *
+     * @param keys - keys
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void removeAll(Collection keys) {
+        try {
+            lock.lock();
+            for (Cache level : levels) {
+                level.removeAll(keys);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * method for removeLast all old elements, upper levels are filled by the first elements of lower levels
+     *
+     * @return null
+     */
+    @Override
+    public LinkedList removeNotActual() {
+        try {
+            beginMoves();
+            for (Cache level : levels) {
+                level.removeNotActual();
+            }
+            for (int i = 1; i < levels.length; i++) {
+                while (levels[i - 1].size() < maxSizes[i - 1] && levels[i].size() > 0) {
+                    levels[i - 1].addLast(levels[i].removeFirst());
+                }
+            }
+            return null;
+        } finally {
+            endMoves();
+        }
+    }
+
+    /**
+     * Removes element by key from all levels
+     *
+     * @param key - key
+     * @return removed value of the upper level having actual element or null
+     */
+    @Override
+    public Object remove(Object key) {
+        try {
+            lock.lock();
+            Object value = null;
+            for (Cache level : levels) {
+                Object levelValue = level.remove(key);
+                if (value == null) {
+                    value = levelValue;
+                }
+            }
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Elements of every level are indexed after all elements of the upper levels
+     *
+     * @param key - key of the element
+     * @return index of the value or -1 if this cache does not contain the element
+     */
+    @Override
+    public int indexOf(Object key) {
+        int offset = 0;
+        for (Cache level : levels) {
+            int index = level.indexOf(key);
+            if (index >= 0) {
+                return index + offset;
+            }
+            offset += level.size();
+        }
+        return -1;
+    }
+
+    /**
+     * @return count of levels
+     */
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    /**
+     * @param level - index of the level, 0 for the first level
+     * @return counters and latencies of the level
+     */
+    public LevelStats getLevelStats(int level) {
+        return stats[level];
+    }
+
+    /**
+     * Moves the found element to the level chosen by the promotion policy,
+     * the element is moved only if it is still the first element of its level
+     */
+    @SuppressWarnings("unchecked")
+    private void promote(int level, Object key) {
+        try {
+            beginMoves();
+            if (levels[level].indexOf(key) != 0) {
+                return;
+            }
+            CacheObject element = levels[level].removeFirst();
+            int target = Math.max(promotion.promote(level, element), 0);
+            if (target >= level) {
+                levels[level].addFirst(element);
+                return;
+            }
+            makeRoom(target);
+            long start = System.nanoTime();
+            levels[target].addLast(element);
+            levels[target].get(key);
+            stats[target].putLatency.record(System.nanoTime() - start);
+            stats[level].promotions.increment();
+        } finally {
+            endMoves();
+        }
+    }
+
+    /**
+     * Takes the lock and changes the move count before elements leave their levels
+     */
+    private void beginMoves() {
+        lock.lock();
+        moves.incrementAndGet();
+    }
+
+    /**
+     * Changes the move count after elements come to their new levels and releases the lock
+     */
+    private void endMoves() {
+        moves.incrementAndGet();
+        lock.unlock();
+    }
+
+    /**
+     * @param movesBefore - move count read before the lookup
+     * @return true if elements were moved between levels while the lookup was made
+     */
+    private boolean moved(long movesBefore) {
+        return movesBefore % 2 != 0 || moves.get() != movesBefore;
+    }
+
+    /**
+     * Demotes the last elements of the level while it is full
+     */
+    private void makeRoom(int level) {
+        while (levels[level].size() >= maxSizes[level] && levels[level].size() > 0) {
+            demote(level, levels[level].removeLast());
+        }
+    }
+
+    /**
+     * Moves element displaced from the level to the beginning of the level chosen by the demotion policy,
+     * making room in that level first, or drops it
+     */
+    @SuppressWarnings("unchecked")
+    private void demote(int level, CacheObject element) {
+        int target = Math.max(demotion.demote(level, element), level + 1);
+        if (target >= levels.length) {
+            evict(element, stats[level]);
+            return;
+        }
+        makeRoom(target);
+        stats[level].demotions.increment();
+        long start = System.nanoTime();
+        levels[target].addFirst(element);
+        stats[target].putLatency.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Counts the element dropped from this cache and passes it to listeners
+     */
+    @SuppressWarnings("unchecked")
+    private void evict(CacheObject element, LevelStats from) {
+        from.evictions.increment();
+        notifyRemoval(element, RemovalCause.EVICTED);
+    }
+
+    /**
+     * Counts elements removed by the level itself and passes them to listeners of this cache
+     */
+    @SuppressWarnings("unchecked")
+    private void listen(int level) {
+        levels[level].addRemovalListener((element, cause) -> {
+            stats[level].recordRemoval(cause);
+            notifyRemoval(element, cause);
+        });
+    }
+}
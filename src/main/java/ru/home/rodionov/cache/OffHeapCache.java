@@ -0,0 +1,706 @@
+package ru.home.rodionov.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation cache data structure storing the data in RAM outside of the Java heap,
+ * so a lot of small elements don't load the garbage collector. Keys and values are written by {@link Codec}.
+ * <p>
+ * The memory is allocated by slabs of direct {@link ByteBuffer}, every slab is divided into chunks
+ * of one size class (powers of two from 64 bytes to the slab size) and the element takes the smallest chunk it fits.
+ * The slab whose chunks are all free returns to the pool and can be divided for another size class.
+ * When the byte budget is spent the last elements are removed until the new element fits.
+ * <p>
+ * The index is a hash table with open addressing of chunk addresses, it is stored in a direct buffer too.
+ * The order of the elements is least recently used: found element is moved to the beginning,
+ * links of the list are kept in the chunk headers.
+ * <p>
+ * Chunk layout: previous chunk (8 bytes), next chunk (8), end of life (8), frequency (4), hash of the key (4),
+ * key length (4), value length (4), key, value.
+ */
+public class OffHeapCache extends Cache {
+    private static final int DEFAULT_SLAB_SIZE = 1 << 20;
+    private static final int MIN_SLAB_SIZE = 1 << 12;
+    private static final int MIN_CHUNK_SHIFT = 6;
+    private static final int PREV = 0;
+    private static final int NEXT = 8;
+    private static final int END_OF_LIFE = 16;
+    private static final int FREQUENCY = 24;
+    private static final int HASH = 28;
+    private static final int KEY_LENGTH = 32;
+    private static final int VALUE_LENGTH = 36;
+    private static final int HEADER_SIZE = 40;
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final long NULL = -1;
+    private static final int NO_SLAB = -1;
+
+    private int slabShift;
+    private int slabSize;
+    private ByteBuffer[] slabs;
+    private int allocatedSlabs;
+    private int[] emptySlabs;
+    private int emptySlabCount;
+    private int[] slabClass;
+    private int[] slabFree;
+    private int[] slabCarved;
+    private int[] slabLive;
+    private int[] partialHead;
+    private int[] partialNext;
+    private int[] partialPrev;
+
+    private ByteBuffer table;
+    private int capacity;
+    private long head = NULL;
+    private long tail = NULL;
+    private int size;
+    private long nextExpiry = Long.MAX_VALUE;
+
+    private Codec keyCodec;
+    private Codec valueCodec;
+    private ReentrantLock lock = new ReentrantLock();
+    private long TTL;
+
+    /**
+     * @param maxBytes - byte budget of slabs, not less than 4096
+     * @param TTL      - storage time for elements in milliseconds
+     */
+    public OffHeapCache(long maxBytes, long TTL) {
+        this(maxBytes, TTL, Codecs.DEFAULT, Codecs.DEFAULT);
+    }
+
+    /**
+     * @param maxBytes   - byte budget of slabs, not less than 4096
+     * @param TTL        - storage time for elements in milliseconds
+     * @param keyCodec   - any implementation of {@link Codec} for keys
+     * @param valueCodec - any implementation of {@link Codec} for values
+     */
+    public OffHeapCache(long maxBytes, long TTL, Codec keyCodec, Codec valueCodec) {
+        if (maxBytes < MIN_SLAB_SIZE) {
+            throw new IllegalArgumentException("Byte budget must be at least " + MIN_SLAB_SIZE);
+        }
+        this.slabSize = (int) Math.min(DEFAULT_SLAB_SIZE, Long.highestOneBit(maxBytes));
+        this.slabShift = Integer.numberOfTrailingZeros(slabSize);
+        int maxSlabs = (int) Math.min(maxBytes / slabSize, Integer.MAX_VALUE - 8);
+        this.slabs = new ByteBuffer[maxSlabs];
+        this.emptySlabs = new int[maxSlabs];
+        this.slabClass = new int[maxSlabs];
+        this.slabFree = new int[maxSlabs];
+        this.slabCarved = new int[maxSlabs];
+        this.slabLive = new int[maxSlabs];
+        this.partialNext = new int[maxSlabs];
+        this.partialPrev = new int[maxSlabs];
+        this.partialHead = new int[slabShift - MIN_CHUNK_SHIFT + 1];
+        Arrays.fill(partialHead, NO_SLAB);
+        this.capacity = INITIAL_CAPACITY;
+        this.table = ByteBuffer.allocateDirect(capacity * 8);
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.TTL = TTL;
+    }
+
+    /**
+     * Create new element with key-value and appends it to the end of this cache
+     *
+     * @param key   - key
+     * @param value - value
+     */
+    @Override
+    public void add(Object key, Object value) {
+        CacheObject element = new CacheObject(key, value, TTL);
+        addLast(element);
+    }
+
+    /**
+     * Inserts element in the beginning of this cache, replaces previous element with the same key
+     *
+     * @param element - the element to add
+     */
+    @Override
+    public void addFirst(CacheObject element) {
+        put(element, true);
+    }
+
+    /**
+     * Append element to the end of this cache, replaces previous element with the same key
+     *
+     * @param element - the element to add
+     */
+    @Override
+    public void addLast(CacheObject element) {
+        put(element, false);
+    }
+
+    /**
+     * Clears the cache, allocated slabs are kept for new elements
+     */
+    @Override
+    public void clear() {
+        try {
+            lock.lock();
+            emptySlabCount = 0;
+            for (int slab = 0; slab < allocatedSlabs; slab++) {
+                emptySlabs[emptySlabCount++] = slab;
+            }
+            Arrays.fill(partialHead, NO_SLAB);
+            for (int i = 0; i < capacity; i++) {
+                table.putLong(i << 3, 0);
+            }
+            head = NULL;
+            tail = NULL;
+            size = 0;
+            nextExpiry = Long.MAX_VALUE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes first element from cache
+     *
+     * @return removed element
+     */
+    @Override
+    public CacheObject removeFirst() {
+        try {
+            lock.lock();
+            if (head == NULL) {
+                throw new NoSuchElementException();
+            }
+            return remove(head, true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes last element from cache
+     *
+     * @return removed element
+     */
+    @Override
+    public CacheObject removeLast() {
+        try {
+            lock.lock();
+            if (tail == NULL) {
+                throw new NoSuchElementException();
+            }
+            return remove(tail, true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return elements count in this cache
+     */
+    @Override
+    public int size() {
+        try {
+            lock.lock();
+            expire();
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param key - key
+     * @return value by key or null if not exists
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object get(Object key) {
+        byte[] keyBytes = encode(keyCodec, key);
+        int hash = hash(keyBytes);
+        try {
+            lock.lock();
+            int slot = find(hash, keyBytes);
+            if (slot < 0) {
+                return null;
+            }
+            long address = table.getLong(slot << 3) - 1;
+            if (getLong(address, END_OF_LIFE) < System.currentTimeMillis()) {
+                notifyRemoval(remove(address, hasRemovalListeners()), RemovalCause.EXPIRED);
+                return null;
+            }
+            moveToFront(address);
+            return read(address, true).getValue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * method for removeLast all old elements
+     *
+     * @return null, elements are not loaded from the memory
+     */
+    @Override
+    public LinkedList removeNotActual() {
+        try {
+            lock.lock();
+            expire();
+        } finally {
+            lock.unlock();
+        }
+        return null;
+    }
+
+    /**
+     * Removes element by key
+     *
+     * @param key - key
+     * @return value of the removed element or null if this cache does not contain actual element
+     */
+    @Override
+    public Object remove(Object key) {
+        byte[] keyBytes = encode(keyCodec, key);
+        int hash = hash(keyBytes);
+        try {
+            lock.lock();
+            int slot = find(hash, keyBytes);
+            if (slot < 0) {
+                return null;
+            }
+            long address = table.getLong(slot << 3) - 1;
+            boolean actual = getLong(address, END_OF_LIFE) >= System.currentTimeMillis();
+            CacheObject element = remove(address, actual);
+            return actual ? element.getValue() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param key - key of the element
+     * @return index of the value or -1 if this cache does not contain the element
+     */
+    @Override
+    public int indexOf(Object key) {
+        byte[] keyBytes = encode(keyCodec, key);
+        int hash = hash(keyBytes);
+        try {
+            lock.lock();
+            int slot = find(hash, keyBytes);
+            if (slot < 0) {
+                return -1;
+            }
+            long address = table.getLong(slot << 3) - 1;
+            int i = 0;
+            for (long current = head; current != NULL; current = getLong(current, NEXT)) {
+                if (current == address) return i;
+                i++;
+            }
+            return -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return statistics of {@link CompressingCodec} of values or null if values are not compressed
+     */
+    @Override
+    CompressionStats getCompressionStats() {
+        return CompressionStats.of(valueCodec);
+    }
+
+    /**
+     * @return size of allocated slabs and the index in bytes
+     */
+    public long getOffHeapSize() {
+        try {
+            lock.lock();
+            return (long) allocatedSlabs * slabSize + (long) capacity * 8;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the memory of slabs and the index, the cache must not be used after closing
+     */
+    public void close() {
+        try {
+            lock.lock();
+            for (int slab = 0; slab < allocatedSlabs; slab++) {
+                MappedFileCache.release(slabs[slab]);
+                slabs[slab] = null;
+            }
+            allocatedSlabs = 0;
+            emptySlabCount = 0;
+            Arrays.fill(partialHead, NO_SLAB);
+            MappedFileCache.release(table);
+            table = null;
+            head = NULL;
+            tail = NULL;
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the element to a chunk, removes the last elements if there is no free chunk within the budget
+     */
+    @SuppressWarnings("unchecked")
+    private void put(CacheObject element, boolean first) {
+        byte[] key = encode(keyCodec, element.getKey());
+        byte[] value = encode(valueCodec, element.getValue());
+        int length = HEADER_SIZE + key.length + value.length;
+        if (length > slabSize) {
+            throw new IllegalArgumentException("Element of " + length + " bytes doesn't fit the slab");
+        }
+        int hash = hash(key);
+        int sizeClass = Math.max(0, 32 - Integer.numberOfLeadingZeros(length - 1) - MIN_CHUNK_SHIFT);
+        try {
+            lock.lock();
+            expire();
+            int slot = find(hash, key);
+            if (slot >= 0) {
+                remove(table.getLong(slot << 3) - 1, false);
+            }
+            long address = allocate(sizeClass);
+            while (address == NULL) {
+                notifyRemoval(remove(tail, hasRemovalListeners()), RemovalCause.EVICTED);
+                address = allocate(sizeClass);
+            }
+            ByteBuffer slab = slabs[(int) (address >>> slabShift)];
+            int offset = (int) (address & (slabSize - 1));
+            slab.putLong(offset + END_OF_LIFE, element.getEndOfLife());
+            slab.putInt(offset + FREQUENCY, element.getFrequency());
+            slab.putInt(offset + HASH, hash);
+            slab.putInt(offset + KEY_LENGTH, key.length);
+            slab.putInt(offset + VALUE_LENGTH, value.length);
+            ByteBuffer target = slab.duplicate();
+            target.position(offset + HEADER_SIZE);
+            target.put(key).put(value);
+            if (first) {
+                linkFirst(address);
+            } else {
+                linkLast(address);
+            }
+            insert(hash, address);
+            size++;
+            nextExpiry = Math.min(nextExpiry, element.getEndOfLife());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes old elements if some of them could expire, must be called under lock
+     */
+    private void expire() {
+        long now = System.currentTimeMillis();
+        if (now <= nextExpiry) {
+            return;
+        }
+        long next = Long.MAX_VALUE;
+        long address = head;
+        while (address != NULL) {
+            long following = getLong(address, NEXT);
+            long endOfLife = getLong(address, END_OF_LIFE);
+            if (endOfLife < now) {
+                notifyRemoval(remove(address, hasRemovalListeners()), RemovalCause.EXPIRED);
+            } else {
+                next = Math.min(next, endOfLife);
+            }
+            address = following;
+        }
+        nextExpiry = next;
+    }
+
+    /**
+     * Unlinks the element, removes it from the index and frees its chunk, must be called under lock
+     *
+     * @param address - address of the chunk
+     * @param load    - true to read the value of the removed element
+     * @return removed element, with null value if it is not loaded
+     */
+    private CacheObject remove(long address, boolean load) {
+        CacheObject element = read(address, load);
+        unlink(address);
+        int mask = capacity - 1;
+        int slot = getInt(address, HASH) & mask;
+        while (table.getLong(slot << 3) != address + 1) {
+            slot = (slot + 1) & mask;
+        }
+        deleteSlot(slot);
+        free(address);
+        size--;
+        return element;
+    }
+
+    private CacheObject read(long address, boolean load) {
+        ByteBuffer slab = slabs[(int) (address >>> slabShift)];
+        int offset = (int) (address & (slabSize - 1));
+        byte[] key = new byte[slab.getInt(offset + KEY_LENGTH)];
+        ByteBuffer source = slab.duplicate();
+        source.position(offset + HEADER_SIZE);
+        source.get(key);
+        Object value = null;
+        if (load) {
+            byte[] bytes = new byte[slab.getInt(offset + VALUE_LENGTH)];
+            source.get(bytes);
+            value = decode(valueCodec, bytes);
+        }
+        return new CacheObject(decode(keyCodec, key), value, slab.getLong(offset + END_OF_LIFE),
+                slab.getInt(offset + FREQUENCY));
+    }
+
+    /**
+     * Takes a chunk from a slab of the size class, must be called under lock
+     *
+     * @return address of a chunk of the size class or {@link #NULL} if the budget is spent
+     */
+    private long allocate(int sizeClass) {
+        int slab = partialHead[sizeClass];
+        if (slab == NO_SLAB) {
+            if (emptySlabCount > 0) {
+                slab = emptySlabs[--emptySlabCount];
+            } else if (allocatedSlabs < slabs.length) {
+                slab = allocatedSlabs++;
+                slabs[slab] = ByteBuffer.allocateDirect(slabSize);
+            } else {
+                return NULL;
+            }
+            slabClass[slab] = sizeClass;
+            slabFree[slab] = -1;
+            slabCarved[slab] = 0;
+            slabLive[slab] = 0;
+            addPartial(sizeClass, slab);
+        }
+        int chunkSize = 1 << (sizeClass + MIN_CHUNK_SHIFT);
+        int offset = slabFree[slab];
+        if (offset >= 0) {
+            slabFree[slab] = slabs[slab].getInt(offset);
+        } else {
+            offset = slabCarved[slab];
+            slabCarved[slab] += chunkSize;
+        }
+        slabLive[slab]++;
+        if (slabFree[slab] < 0 && slabCarved[slab] + chunkSize > slabSize) {
+            removePartial(sizeClass, slab);
+        }
+        return ((long) slab << slabShift) | offset;
+    }
+
+    /**
+     * Returns the chunk to its slab, the slab without used chunks returns to the pool
+     */
+    private void free(long address) {
+        int slab = (int) (address >>> slabShift);
+        int offset = (int) (address & (slabSize - 1));
+        int sizeClass = slabClass[slab];
+        int chunkSize = 1 << (sizeClass + MIN_CHUNK_SHIFT);
+        boolean full = slabFree[slab] < 0 && slabCarved[slab] + chunkSize > slabSize;
+        slabs[slab].putInt(offset, slabFree[slab]);
+        slabFree[slab] = offset;
+        if (--slabLive[slab] == 0) {
+            if (!full) {
+                removePartial(sizeClass, slab);
+            }
+            slabClass[slab] = NO_SLAB;
+            emptySlabs[emptySlabCount++] = slab;
+        } else if (full) {
+            addPartial(sizeClass, slab);
+        }
+    }
+
+    private void addPartial(int sizeClass, int slab) {
+        int next = partialHead[sizeClass];
+        partialPrev[slab] = NO_SLAB;
+        partialNext[slab] = next;
+        if (next != NO_SLAB) {
+            partialPrev[next] = slab;
+        }
+        partialHead[sizeClass] = slab;
+    }
+
+    private void removePartial(int sizeClass, int slab) {
+        int prev = partialPrev[slab];
+        int next = partialNext[slab];
+        if (prev == NO_SLAB) {
+            partialHead[sizeClass] = next;
+        } else {
+            partialNext[prev] = next;
+        }
+        if (next != NO_SLAB) {
+            partialPrev[next] = prev;
+        }
+    }
+
+    /**
+     * Searches the index with linear probing, slots keep address + 1 so zero is an empty slot
+     *
+     * @return slot of the key or -1 if not exists
+     */
+    private int find(int hash, byte[] key) {
+        int mask = capacity - 1;
+        int slot = hash & mask;
+        while (true) {
+            long value = table.getLong(slot << 3);
+            if (value == 0) {
+                return -1;
+            }
+            long address = value - 1;
+            if (getInt(address, HASH) == hash && keyEquals(address, key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void insert(int hash, long address) {
+        if ((size + 1) * 4L > capacity * 3L) {
+            resize();
+        }
+        int mask = capacity - 1;
+        int slot = hash & mask;
+        while (table.getLong(slot << 3) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table.putLong(slot << 3, address + 1);
+    }
+
+    /**
+     * Empties the slot and shifts back following entries of the probe sequence, so no tombstones are needed
+     */
+    private void deleteSlot(int slot) {
+        int mask = capacity - 1;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            long value = table.getLong(next << 3);
+            if (value == 0) {
+                break;
+            }
+            int ideal = getInt(value - 1, HASH) & mask;
+            boolean movable = slot <= next ? (ideal <= slot || ideal > next) : (ideal <= slot && ideal > next);
+            if (movable) {
+                table.putLong(slot << 3, value);
+                slot = next;
+            }
+        }
+        table.putLong(slot << 3, 0);
+    }
+
+    private void resize() {
+        ByteBuffer old = table;
+        int oldCapacity = capacity;
+        capacity = oldCapacity << 1;
+        table = ByteBuffer.allocateDirect(capacity * 8);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldCapacity; i++) {
+            long value = old.getLong(i << 3);
+            if (value != 0) {
+                int slot = getInt(value - 1, HASH) & mask;
+                while (table.getLong(slot << 3) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table.putLong(slot << 3, value);
+            }
+        }
+        MappedFileCache.release(old);
+    }
+
+    private boolean keyEquals(long address, byte[] key) {
+        ByteBuffer slab = slabs[(int) (address >>> slabShift)];
+        int offset = (int) (address & (slabSize - 1));
+        if (slab.getInt(offset + KEY_LENGTH) != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (slab.get(offset + HEADER_SIZE + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void linkFirst(long address) {
+        putLong(address, PREV, NULL);
+        putLong(address, NEXT, head);
+        if (head == NULL) {
+            tail = address;
+        } else {
+            putLong(head, PREV, address);
+        }
+        head = address;
+    }
+
+    private void linkLast(long address) {
+        putLong(address, NEXT, NULL);
+        putLong(address, PREV, tail);
+        if (tail == NULL) {
+            head = address;
+        } else {
+            putLong(tail, NEXT, address);
+        }
+        tail = address;
+    }
+
+    private void unlink(long address) {
+        long prev = getLong(address, PREV);
+        long next = getLong(address, NEXT);
+        if (prev == NULL) {
+            head = next;
+        } else {
+            putLong(prev, NEXT, next);
+        }
+        if (next == NULL) {
+            tail = prev;
+        } else {
+            putLong(next, PREV, prev);
+        }
+    }
+
+    private void moveToFront(long address) {
+        if (address != head) {
+            unlink(address);
+            linkFirst(address);
+        }
+    }
+
+    private long getLong(long address, int field) {
+        return slabs[(int) (address >>> slabShift)].getLong((int) (address & (slabSize - 1)) + field);
+    }
+
+    private void putLong(long address, int field, long value) {
+        slabs[(int) (address >>> slabShift)].putLong((int) (address & (slabSize - 1)) + field, value);
+    }
+
+    private int getInt(long address, int field) {
+        return slabs[(int) (address >>> slabShift)].getInt((int) (address & (slabSize - 1)) + field);
+    }
+
+    private static int hash(byte[] key) {
+        int h = Arrays.hashCode(key) * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static byte[] encode(Codec codec, Object object) {
+        try {
+            return codec.encode(object);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Object decode(Codec codec, byte[] bytes) {
+        try {
+            return codec.decode(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
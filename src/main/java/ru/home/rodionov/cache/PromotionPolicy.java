@@ -0,0 +1,40 @@
+package ru.home.rodionov.cache;
+
+/**
+ * Promotion rule of {@link MultiLevelCache}: the level to move the element found in a lower level to.
+ *
+ * @param <K> - type of keys
+ * @param <V> - type of values
+ */
+@FunctionalInterface
+public interface PromotionPolicy<K, V> {
+
+    /**
+     * @param level   - index of the level the element is found in, greater than 0
+     * @param element - found element
+     * @return index of the level to move the element to, index not less than the level keeps the element in place,
+     * negative index is the first level
+     */
+    int promote(int level, CacheObject<K, V> element);
+
+    /**
+     * @return policy moving found elements to the first level, as {@link TwoLevelCache} does
+     */
+    static <K, V> PromotionPolicy<K, V> toFirstLevel() {
+        return (level, element) -> 0;
+    }
+
+    /**
+     * @return policy moving found elements one level up, so only repeatedly requested elements reach the first level
+     */
+    static <K, V> PromotionPolicy<K, V> oneLevelUp() {
+        return (level, element) -> level - 1;
+    }
+
+    /**
+     * @return policy keeping found elements in their levels
+     */
+    static <K, V> PromotionPolicy<K, V> never() {
+        return (level, element) -> level;
+    }
+}
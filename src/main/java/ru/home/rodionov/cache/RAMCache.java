@@ -1,18 +1,28 @@
 package ru.home.rodionov.cache;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Implementation cache data structure based on {@link LinkedList}
  * store the data in RAM.
+ * The earliest end of life of the elements is tracked, so the list is scanned for old elements
+ * only when some of them have really expired.
  */
 public class RAMCache extends Cache {
 
     private LinkedList<CacheObject> cache;
     private CacheAlgorithm algorithm;
     private ReentrantLock lock = new ReentrantLock();
+    private long nextExpiry = Long.MAX_VALUE;
     private long TTL;
 
     /**
@@ -35,7 +45,14 @@ public class RAMCache extends Cache {
     @Override
     public void add(Object key, Object value) {
         CacheObject element = new CacheObject(key, value, TTL);
-        cache.addLast(element);
+        try {
+            lock.lock();
+            cache.addLast(element);
+            algorithm.inserted(cache, element);
+            nextExpiry = Math.min(nextExpiry, element.getEndOfLife());
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -49,6 +66,8 @@ public class RAMCache extends Cache {
         try {
             lock.lock();
             cache.addFirst(element);
+            algorithm.inserted(cache, element);
+            nextExpiry = Math.min(nextExpiry, element.getEndOfLife());
         } finally {
             lock.unlock();
         }
@@ -65,6 +84,8 @@ public class RAMCache extends Cache {
         try {
             lock.lock();
             cache.add(element);
+            algorithm.inserted(cache, element);
+            nextExpiry = Math.min(nextExpiry, element.getEndOfLife());
         } finally {
             lock.unlock();
         }
@@ -78,6 +99,8 @@ public class RAMCache extends Cache {
         try {
             lock.lock();
             cache.clear();
+            algorithm.cleared(cache);
+            nextExpiry = Long.MAX_VALUE;
         } finally {
             lock.unlock();
         }
@@ -93,7 +116,9 @@ public class RAMCache extends Cache {
         CacheObject removedElement;
         try {
             lock.lock();
-            removedElement = cache.removeFirst();
+            removedElement = cache.getFirst();
+            algorithm.removed(cache, removedElement);
+            cache.removeFirst();
         } finally {
             lock.unlock();
         }
@@ -101,7 +126,7 @@ public class RAMCache extends Cache {
     }
 
     /**
-     * Removes last element from cache
+     * Removes element chosen by {@link CacheAlgorithm}, the last element for most of algorithms
      *
      * @return removed element
      */
@@ -110,7 +135,12 @@ public class RAMCache extends Cache {
         CacheObject removedElement;
         try {
             lock.lock();
-            removedElement = cache.removeLast();
+            removedElement = algorithm.victim(cache);
+            if (removedElement == null) {
+                throw new NoSuchElementException();
+            }
+            algorithm.removed(cache, removedElement);
+            cache.removeLastOccurrence(removedElement);
         } finally {
             lock.unlock();
         }
@@ -133,17 +163,17 @@ public class RAMCache extends Cache {
     @Override
     public Object get(Object key) {
         removeNotActual();
-        CacheObject element =
-                cache.stream()
-                        .filter(cacheObject -> key.equals(cacheObject.getKey()))
-                        .findAny().orElse(null);
-        if (element != null) {
-            try {
-                lock.lock();
+        CacheObject element;
+        try {
+            lock.lock();
+            element = cache.stream()
+                    .filter(cacheObject -> key.equals(cacheObject.getKey()))
+                    .findAny().orElse(null);
+            if (element != null) {
                 cache = algorithm.shift(cache, element);
-            } finally {
-                lock.unlock();
             }
+        } finally {
+            lock.unlock();
         }
         return element == null ? null : element.getValue();
     }
@@ -155,33 +185,122 @@ public class RAMCache extends Cache {
      */
     @Override
     public LinkedList removeNotActual() {
-        Iterator<CacheObject> it = cache.iterator();
-        while (it.hasNext()) {
-            if (it.next().getEndOfLife() < System.currentTimeMillis()) {
-                try {
-                    lock.lock();
+        try {
+            lock.lock();
+            long now = System.currentTimeMillis();
+            if (now <= nextExpiry) {
+                return cache;
+            }
+            long next = Long.MAX_VALUE;
+            Iterator<CacheObject> it = cache.iterator();
+            while (it.hasNext()) {
+                CacheObject element = it.next();
+                long endOfLife = element.getEndOfLife();
+                if (endOfLife < now) {
+                    algorithm.removed(cache, element);
                     it.remove();
-                } finally {
-                    lock.unlock();
+                    notifyRemoval(element, RemovalCause.EXPIRED);
+                } else {
+                    next = Math.min(next, endOfLife);
                 }
             }
+            nextExpiry = next;
+        } finally {
+            lock.unlock();
         }
         return cache;
     }
 
+    /**
+     * Removes all elements with the key
+     *
+     * @param key - key
+     * @return value of the first removed element or null if this cache does not contain actual element
+     */
+    @Override
+    public Object remove(Object key) {
+        removeNotActual();
+        CacheObject removed = null;
+        try {
+            lock.lock();
+            Iterator<CacheObject> it = cache.iterator();
+            while (it.hasNext()) {
+                CacheObject element = it.next();
+                if (key.equals(element.getKey())) {
+                    algorithm.removed(cache, element);
+                    it.remove();
+                    if (removed == null) {
+                        removed = element;
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return removed == null ? null : removed.getValue();
+    }
+
+    /**
+     * Finds values of several keys by one pass over the list
+     *
+     * @param keys - keys
+     * @return found values by keys in the order of keys, missing keys are absent
+     */
+    @Override
+    public Map getAll(Collection keys) {
+        removeNotActual();
+        Map<Object, Object> values = new LinkedHashMap<>();
+        try {
+            lock.lock();
+            Map<Object, CacheObject> found = find(cache, keys);
+            for (Object key : keys) {
+                CacheObject element = found.get(key);
+                if (element != null) {
+                    cache = algorithm.shift(cache, element);
+                    values.put(key, element.getValue());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return values;
+    }
+
     /**
      * @param key - key of the element
      * @return index o the value or -1 if this cache does not contain the element
      */
     @Override
     public int indexOf(Object key) {
-        int i = 0;
-        for (CacheObject obj : cache) {
-            if (key.equals(obj.getKey())) return i;
-            i++;
+        try {
+            lock.lock();
+            int i = 0;
+            for (CacheObject obj : cache) {
+                if (key.equals(obj.getKey())) return i;
+                i++;
+            }
+        } finally {
+            lock.unlock();
         }
         return -1;
     }
 
+    /**
+     * Finds the first elements with the keys by one pass over the list
+     *
+     * @param list - elements
+     * @param keys - keys
+     * @return found elements by keys
+     */
+    static Map<Object, CacheObject> find(LinkedList<CacheObject> list, Collection keys) {
+        Set<Object> wanted = new HashSet<Object>(keys);
+        Map<Object, CacheObject> found = new HashMap<>();
+        for (CacheObject element : list) {
+            Object key = element.getKey();
+            if (wanted.contains(key) && !found.containsKey(key)) {
+                found.put(key, element);
+            }
+        }
+        return found;
+    }
 }
-
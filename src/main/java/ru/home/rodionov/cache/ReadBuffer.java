@@ -0,0 +1,87 @@
+package ru.home.rodionov.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Striped lock-free ring buffers of access events.
+ * Readers record events without locking, the owner of the cache lock replays them in batches.
+ * A thread writes to the stripe chosen by its id, an event is dropped if the stripe is full
+ * or another thread is writing to the same slot, so recording never waits.
+ *
+ * @param <E> - type of the event
+ */
+class ReadBuffer<E> {
+    private static final int STRIPE_SIZE = 16;
+    private static final int STRIPE_MASK = STRIPE_SIZE - 1;
+
+    private final Stripe<E>[] stripes;
+    private final int stripeMask;
+
+    /**
+     * Ring buffer of one stripe
+     */
+    private static class Stripe<E> {
+        private final AtomicReferenceArray<E> events = new AtomicReferenceArray<>(STRIPE_SIZE);
+        private final AtomicLong writeCounter = new AtomicLong();
+        private volatile long readCounter;
+    }
+
+    @SuppressWarnings("unchecked")
+    ReadBuffer() {
+        int count = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 1 << 10) * 2 - 1);
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<>();
+        }
+        this.stripeMask = count - 1;
+    }
+
+    /**
+     * Records the event
+     *
+     * @param event - access event
+     * @return false if the stripe is full and should be drained
+     */
+    boolean offer(E event) {
+        Stripe<E> stripe = stripes[stripeIndex()];
+        long tail = stripe.writeCounter.get();
+        if (tail - stripe.readCounter >= STRIPE_SIZE) {
+            return false;
+        }
+        if (stripe.writeCounter.compareAndSet(tail, tail + 1)) {
+            stripe.events.lazySet((int) (tail & STRIPE_MASK), event);
+        }
+        return true;
+    }
+
+    /**
+     * Replays recorded events, must be called under the lock of the cache
+     *
+     * @param consumer - handler of events
+     */
+    void drain(Consumer<E> consumer) {
+        for (Stripe<E> stripe : stripes) {
+            long head = stripe.readCounter;
+            long tail = stripe.writeCounter.get();
+            while (head < tail) {
+                int index = (int) (head & STRIPE_MASK);
+                E event = stripe.events.get(index);
+                if (event == null) {
+                    break;
+                }
+                stripe.events.lazySet(index, null);
+                consumer.accept(event);
+                head++;
+            }
+            stripe.readCounter = head;
+        }
+    }
+
+    private int stripeIndex() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9e3779b9;
+        return (h ^ (h >>> 16)) & stripeMask;
+    }
+}
@@ -0,0 +1,15 @@
+package ru.home.rodionov.cache;
+
+/**
+ * Reason of removing the element by the cache itself
+ */
+public enum RemovalCause {
+    /**
+     * End of life of the element has passed
+     */
+    EXPIRED,
+    /**
+     * Element is removed to keep the size or the byte budget of the cache
+     */
+    EVICTED
+}
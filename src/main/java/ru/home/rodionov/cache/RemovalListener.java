@@ -0,0 +1,20 @@
+package ru.home.rodionov.cache;
+
+/**
+ * Listener of elements removed by the cache itself, not by {@link Cache#removeFirst()} or {@link Cache#removeLast()}.
+ * It is called synchronously by the thread removing the element, often under the lock of the cache,
+ * so it must be quick and must not call the cache.
+ *
+ * @param <K> - type of keys
+ * @param <V> - type of values
+ */
+@FunctionalInterface
+public interface RemovalListener<K, V> {
+
+    /**
+     * @param element - removed element, caches storing values outside of the heap pass null value
+     *                if nothing else but listeners needs it
+     * @param cause   - reason of removing
+     */
+    void onRemoval(CacheObject<K, V> element, RemovalCause cause);
+}
@@ -0,0 +1,37 @@
+package ru.home.rodionov.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Weigher estimating the element by the size of its key and value encoded by codecs,
+ * by default by {@link Codecs#DEFAULT}, so the weight is close to the size of the element in a file.
+ * Encoding is as expensive as writing the element, so {@link TwoLevelCache} weighs every element once.
+ */
+public class SerializedWeigher implements Weigher<Object, Object> {
+    private Codec keyCodec;
+    private Codec valueCodec;
+
+    public SerializedWeigher() {
+        this(Codecs.DEFAULT, Codecs.DEFAULT);
+    }
+
+    /**
+     * @param keyCodec   - codec of keys
+     * @param valueCodec - codec of values
+     */
+    public SerializedWeigher(Codec keyCodec, Codec valueCodec) {
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public long weigh(Object key, Object value) {
+        try {
+            return keyCodec.encode(key).length + valueCodec.encode(value).length;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
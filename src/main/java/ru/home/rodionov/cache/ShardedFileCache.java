@@ -0,0 +1,532 @@
+package ru.home.rodionov.cache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Implementation cache data structure over several independent caches based on files, usually on different disks.
+ * Keys are partitioned by hash into shards, every shard has its own file and locks,
+ * so threads working with different shards read and write their files at the same time.
+ * Batch operations request the shards of their keys in parallel by the executor.
+ * <p>
+ * Every shard keeps its size, updated under the lock of the shard after every change of it,
+ * so {@link #size()} doesn't wait for file operations. Expired elements are counted until the next change
+ * of their shard. Only {@link #clear()} takes the lock of this cache exclusively, so it clears all shards at once.
+ */
+public class ShardedFileCache extends Cache {
+
+    private Cache[] shards;
+    private int shardMaxSize;
+    private volatile Executor executor;
+    private ExecutorService ownExecutor;
+    private ReentrantLock[] shardLocks;
+    private AtomicInteger[] shardSizes;
+    private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Shards are {@link FileCache} files "shard-N.fc" placed in the directories in turn
+     *
+     * @param directories - directories of the files, usually on different disks
+     * @param shardCount  - count of files
+     * @param algorithm   - supplier of {@link CacheAlgorithm}, called once for every shard
+     * @param TTL         - storage time for elements in milliseconds
+     * @param maxSize     - max size of this cache, every shard gets equal share of it (not less than one element)
+     */
+    public ShardedFileCache(List<String> directories, int shardCount, Supplier<CacheAlgorithm> algorithm, long TTL,
+                            int maxSize) {
+        this(directories, shardCount, maxSize, path -> new FileCache(path, algorithm.get(), TTL));
+    }
+
+    /**
+     * Shards are {@link FileCache} files "shard-N.fc" placed in the directories in turn,
+     * all of them use the same codecs, so statistics of {@link CompressingCodec} are common
+     *
+     * @param directories - directories of the files, usually on different disks
+     * @param shardCount  - count of files
+     * @param algorithm   - supplier of {@link CacheAlgorithm}, called once for every shard
+     * @param TTL         - storage time for elements in milliseconds
+     * @param maxSize     - max size of this cache, every shard gets equal share of it (not less than one element)
+     * @param keyCodec    - any implementation of {@link Codec} for keys
+     * @param valueCodec  - any implementation of {@link Codec} for values
+     */
+    public ShardedFileCache(List<String> directories, int shardCount, Supplier<CacheAlgorithm> algorithm, long TTL,
+                            int maxSize, Codec keyCodec, Codec valueCodec) {
+        this(directories, shardCount, maxSize,
+                path -> new FileCache(path, algorithm.get(), TTL, keyCodec, valueCodec));
+    }
+
+    /**
+     * @param shards   - any implementations of {@link Cache} storing data in files, for example {@link LogFileCache}
+     * @param maxSize  - max size of this cache, every shard gets equal share of it (not less than one element)
+     * @param executor - executor of batch requests to the shards
+     */
+    public ShardedFileCache(List<Cache> shards, int maxSize, Executor executor) {
+        if (shards.isEmpty() || maxSize < 1) {
+            throw new IllegalArgumentException("Shards count and max size must be positive");
+        }
+        this.shards = shards.toArray(new Cache[0]);
+        this.shardMaxSize = maxSize == Integer.MAX_VALUE ? maxSize : Math.max(1, maxSize / this.shards.length);
+        this.executor = executor;
+        this.shardLocks = new ReentrantLock[this.shards.length];
+        this.shardSizes = new AtomicInteger[this.shards.length];
+        for (int i = 0; i < shardLocks.length; i++) {
+            shardLocks[i] = new ReentrantLock();
+            shardSizes[i] = new AtomicInteger(this.shards[i].size());
+        }
+    }
+
+    /**
+     * Batch requests are executed by own daemon threads, one for every shard, so file operations don't occupy
+     * threads of the common pool, the threads are stopped by {@link #close()}
+     */
+    private ShardedFileCache(List<String> directories, int shardCount, int maxSize, Function<String, Cache> shard) {
+        this(shards(directories, shardCount, shard), maxSize, Executors.newFixedThreadPool(shardCount, r -> {
+            Thread thread = new Thread(r, "sharded-file-cache");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        this.ownExecutor = (ExecutorService) executor;
+    }
+
+    /**
+     * Stops threads of batch requests created by this cache, after that batch requests are executed
+     * by the calling thread. Executor given to the constructor is not stopped.
+     */
+    public void close() {
+        if (ownExecutor != null) {
+            executor = Runnable::run;
+            ownExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Create new element with key-value and appends it to the end of its shard
+     *
+     * @param key   - key
+     * @param value - value
+     */
+    @Override
+    public void add(Object key, Object value) {
+        put(key, shard -> shard.add(key, value));
+    }
+
+    /**
+     * Inserts element in the beginning of its shard, the last element of the shard is removed if the shard is full
+     *
+     * @param element - the element to add
+     */
+    @Override
+    public void addFirst(CacheObject element) {
+        put(element.getKey(), shard -> shard.addFirst(element));
+    }
+
+    /**
+     * Append element to the end of its shard, the last element of the shard is removed if the shard is full
+     *
+     * @param element - the element to add
+     */
+    @Override
+    public void addLast(CacheObject element) {
+        put(element.getKey(), shard -> shard.addLast(element));
+    }
+
+    /**
+     * Clears all shards, other operations wait until all of them are cleared
+     */
+    @Override
+    public void clear() {
+        try {
+            lock.writeLock().lock();
+            for (int i = 0; i < shards.length; i++) {
+                shards[i].clear();
+                shardSizes[i].set(0);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes first element of the largest shard
+     *
+     * @return removed element
+     */
+    @Override
+    public CacheObject removeFirst() {
+        return removeFromLargestShard(Cache::removeFirst);
+    }
+
+    /**
+     * Removes last element of the largest shard
+     *
+     * @return removed element
+     */
+    @Override
+    public CacheObject removeLast() {
+        return removeFromLargestShard(Cache::removeLast);
+    }
+
+    /**
+     * @return elements count in all shards after their last changes
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (AtomicInteger shardSize : shardSizes) {
+            size += shardSize.get();
+        }
+        return size;
+    }
+
+    /**
+     * @param key - key
+     * @return value by key or null if not exists
+     */
+    @Override
+    public Object get(Object key) {
+        try {
+            lock.readLock().lock();
+            return shardFor(key).get(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * method for removeLast all old elements
+     *
+     * @return actual elements of all shards as {@link LinkedList}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public LinkedList removeNotActual() {
+        try {
+            lock.readLock().lock();
+            LinkedList<CacheObject> actual = new LinkedList<>();
+            for (int i = 0; i < shards.length; i++) {
+                LinkedList elements = update(i, Cache::removeNotActual);
+                if (elements != null) {
+                    actual.addAll(elements);
+                }
+            }
+            return actual;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes element by key
+     *
+     * @param key - key
+     * @return value of the removed element or null if this cache does not contain actual element
+     */
+    @Override
+    public Object remove(Object key) {
+        try {
+            lock.readLock().lock();
+            return update(shardIndex(key), shard -> shard.remove(key));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds values of several keys, shards are requested in parallel, every shard once
+     *
+     * @param keys - keys
+     * @return found values by keys in the order of keys, missing keys are absent
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map getAll(Collection keys) {
+        try {
+            lock.readLock().lock();
+            Map<Object, Object> found = new HashMap<>();
+            List<Map> results = inParallel(group(keys), (shard, shardKeys) -> shards[shard].getAll(shardKeys));
+            for (Map result : results) {
+                found.putAll(result);
+            }
+            Map<Object, Object> values = new LinkedHashMap<>();
+            for (Object key : (Collection<Object>) keys) {
+                Object value = found.get(key);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+            return values;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes elements of several keys, shards are requested in parallel, every shard once
+     *
+     * @param keys - keys
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void removeAll(Collection keys) {
+        try {
+            lock.readLock().lock();
+            inParallel(group(keys), (shard, shardKeys) -> update(shard, s -> {
+                s.removeAll(shardKeys);
+                return null;
+            }));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts elements in the beginning of their shards, shards are written in parallel, every shard once
+     *
+     * @param elements - elements to insert
+     * @param maxSize  - max size of this cache
+     * @return removed elements
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    List addAllFirst(List elements, int maxSize) {
+        int limit = maxSize == Integer.MAX_VALUE ? shardMaxSize : Math.min(shardMaxSize, Math.max(1, maxSize / shards.length));
+        Map<Integer, List<Object>> groups = new LinkedHashMap<>();
+        for (CacheObject element : (List<CacheObject>) elements) {
+            groups.computeIfAbsent(shardIndex(element.getKey()), shard -> new ArrayList<>()).add(element);
+        }
+        try {
+            lock.readLock().lock();
+            List<CacheObject> removed = new ArrayList<>();
+            for (List result : inParallel(groups,
+                    (shard, shardElements) -> update(shard, s -> s.addAllFirst(shardElements, limit)))) {
+                removed.addAll(result);
+            }
+            return removed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param key - key of the element
+     * @return index of the value counting all elements of previous shards or -1 if this cache does not contain it
+     */
+    @Override
+    public int indexOf(Object key) {
+        try {
+            lock.readLock().lock();
+            int shardIndex = shardIndex(key);
+            int i = shards[shardIndex].indexOf(key);
+            if (i < 0) {
+                return -1;
+            }
+            for (int s = 0; s < shardIndex; s++) {
+                i += shardSizes[s].get();
+            }
+            return i;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds listener of elements expired or evicted by shards or evicted to keep share of max size of a shard
+     *
+     * @param listener - any implementation of {@link RemovalListener}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void addRemovalListener(RemovalListener listener) {
+        super.addRemovalListener(listener);
+        for (Cache shard : shards) {
+            shard.addRemovalListener(listener);
+        }
+    }
+
+    /**
+     * @return statistics of {@link CompressingCodec} of the first shard, shared by shards created with one codec
+     */
+    @Override
+    CompressionStats getCompressionStats() {
+        return shards[0].getCompressionStats();
+    }
+
+    /**
+     * Adds element to the shard of the key and trims the shard, elements of one shard are added one at a time
+     */
+    private void put(Object key, Consumer<Cache> add) {
+        try {
+            lock.readLock().lock();
+            update(shardIndex(key), shard -> {
+                add.accept(shard);
+                trim(shard);
+                return null;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Changes the shard under its lock and remembers its new size, the caller holds the read lock of this cache
+     *
+     * @param index     - index of the shard
+     * @param operation - change of the shard
+     * @return result of the operation
+     */
+    private <R> R update(int index, Function<Cache, R> operation) {
+        try {
+            shardLocks[index].lock();
+            R result = operation.apply(shards[index]);
+            shardSizes[index].set(shards[index].size());
+            return result;
+        } finally {
+            shardLocks[index].unlock();
+        }
+    }
+
+    /**
+     * Removes element from the largest shard, the next largest shard is tried if the size of the shard is outdated
+     *
+     * @param remove - removal of the first or the last element
+     * @return removed element
+     * @throws NoSuchElementException if all shards are empty
+     */
+    private CacheObject removeFromLargestShard(Function<Cache, CacheObject> remove) {
+        try {
+            lock.readLock().lock();
+            while (true) {
+                int index = largestShard();
+                try {
+                    return update(index, remove);
+                } catch (NoSuchElementException e) {
+                    update(index, Cache::size);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the last elements of the shard while it exceeds its share of max size
+     */
+    @SuppressWarnings("unchecked")
+    private void trim(Cache shard) {
+        if (shardMaxSize == Integer.MAX_VALUE) {
+            return;
+        }
+        while (shard.size() > shardMaxSize) {
+            notifyRemoval(shard.removeLast(), RemovalCause.EVICTED);
+        }
+    }
+
+    /**
+     * @return keys grouped by their shards
+     */
+    private Map<Integer, List<Object>> group(Collection keys) {
+        Map<Integer, List<Object>> groups = new LinkedHashMap<>();
+        for (Object key : keys) {
+            groups.computeIfAbsent(shardIndex(key), shard -> new ArrayList<>()).add(key);
+        }
+        return groups;
+    }
+
+    /**
+     * Requests the shards by the executor, the last shard is requested by the calling thread
+     *
+     * @return results of the shards
+     */
+    private <R> List<R> inParallel(Map<Integer, List<Object>> groups, ShardRequest<R> request) {
+        List<CompletableFuture<R>> futures = new ArrayList<>();
+        List<R> results = new ArrayList<>();
+        int remaining = groups.size();
+        for (Map.Entry<Integer, List<Object>> group : groups.entrySet()) {
+            if (--remaining == 0) {
+                results.add(request.apply(group.getKey(), group.getValue()));
+            } else {
+                futures.add(CompletableFuture.supplyAsync(() -> request.apply(group.getKey(), group.getValue()), executor));
+            }
+        }
+        try {
+            for (CompletableFuture<R> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            // exception of the shard is rethrown as is if it is unchecked
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        return results;
+    }
+
+    /**
+     * Request to one shard with its keys or elements
+     */
+    @FunctionalInterface
+    private interface ShardRequest<R> {
+        R apply(int shard, List<Object> keys);
+    }
+
+    /**
+     * @return index of the largest shard
+     * @throws NoSuchElementException if all shards are empty
+     */
+    private int largestShard() {
+        int largest = -1;
+        int largestSize = 0;
+        for (int i = 0; i < shardSizes.length; i++) {
+            int size = shardSizes[i].get();
+            if (size > largestSize) {
+                largest = i;
+                largestSize = size;
+            }
+        }
+        if (largest < 0) {
+            throw new NoSuchElementException();
+        }
+        return largest;
+    }
+
+    private Cache shardFor(Object key) {
+        return shards[shardIndex(key)];
+    }
+
+    private int shardIndex(Object key) {
+        return Math.floorMod(spread(key.hashCode()), shards.length);
+    }
+
+    private static int spread(int h) {
+        return (h ^ (h >>> 16)) * 0x9e3779b9;
+    }
+
+    private static List<Cache> shards(List<String> directories, int shardCount, Function<String, Cache> shard) {
+        if (directories.isEmpty() || shardCount < 1) {
+            throw new IllegalArgumentException("Directories and shards count must be positive");
+        }
+        List<Cache> shards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            File directory = new File(directories.get(i % directories.size()));
+            directory.mkdirs();
+            shards.add(shard.apply(new File(directory, "shard-" + i + ".fc").getPath()));
+        }
+        return shards;
+    }
+}
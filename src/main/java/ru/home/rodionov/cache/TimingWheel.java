@@ -0,0 +1,144 @@
+package ru.home.rodionov.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel of {@link CacheList} nodes ordered by end of life of their elements.
+ * Every level is a ring of 64 buckets, bucket width of the next level is 64 times wider:
+ * about 16 milliseconds, 1 second, 1 minute, 1 hour and 3 days.
+ * A node is placed to the level that covers time left until its end of life,
+ * when the wheel is advanced the passed buckets are detached, expired nodes are handed to the consumer
+ * and not expired ones are placed again to more precise levels.
+ * Scheduling and descheduling take constant time, advancing takes time proportional to expired nodes.
+ * <p>
+ * Must be used under the lock of the cache.
+ */
+class TimingWheel {
+    private static final int BUCKETS = 64;
+    private static final int BUCKET_MASK = BUCKETS - 1;
+    private static final int[] SHIFTS = {4, 10, 16, 22, 28};
+
+    private final CacheList.Node[][] wheel;
+    private long currentTime;
+
+    /**
+     * @param now - current time in milliseconds
+     */
+    TimingWheel(long now) {
+        this.wheel = new CacheList.Node[SHIFTS.length][BUCKETS];
+        for (CacheList.Node[] level : wheel) {
+            for (int i = 0; i < BUCKETS; i++) {
+                CacheList.Node sentinel = new CacheList.Node(null);
+                sentinel.timerPrev = sentinel;
+                sentinel.timerNext = sentinel;
+                level[i] = sentinel;
+            }
+        }
+        this.currentTime = now;
+    }
+
+    /**
+     * Places the node to the bucket of its end of life
+     *
+     * @param node - node which is not scheduled
+     */
+    void schedule(CacheList.Node node) {
+        CacheList.Node sentinel = findBucket(node.getElement().getEndOfLife());
+        node.timerPrev = sentinel.timerPrev;
+        node.timerNext = sentinel;
+        sentinel.timerPrev.timerNext = node;
+        sentinel.timerPrev = node;
+    }
+
+    /**
+     * Removes the node from its bucket if it is scheduled
+     *
+     * @param node - node
+     */
+    void deschedule(CacheList.Node node) {
+        if (node.timerNext != null) {
+            node.timerPrev.timerNext = node.timerNext;
+            node.timerNext.timerPrev = node.timerPrev;
+            node.timerPrev = null;
+            node.timerNext = null;
+        }
+    }
+
+    /**
+     * Processes buckets passed since the previous advance
+     *
+     * @param now    - current time in milliseconds
+     * @param expire - consumer of descheduled nodes whose end of life is before now
+     */
+    void advance(long now, Consumer<CacheList.Node> expire) {
+        long previousTime = currentTime;
+        if (now <= previousTime) {
+            return;
+        }
+        currentTime = now;
+        for (int level = 0; level < SHIFTS.length; level++) {
+            long previousTicks = previousTime >>> SHIFTS[level];
+            long currentTicks = now >>> SHIFTS[level];
+            if (level > 0 && currentTicks == previousTicks) {
+                break;
+            }
+            // bucket of the current tick is processed too: on the lowest level to expire nodes exactly in time,
+            // on upper levels to cascade nodes to the precise level as soon as the tick begins
+            long count = Math.min(currentTicks - previousTicks + 1, BUCKETS);
+            for (long tick = previousTicks; tick < previousTicks + count; tick++) {
+                expireBucket(wheel[level][(int) (tick & BUCKET_MASK)], now, expire);
+            }
+        }
+    }
+
+    /**
+     * Forgets all nodes
+     */
+    void clear() {
+        for (CacheList.Node[] level : wheel) {
+            for (CacheList.Node sentinel : level) {
+                CacheList.Node node = sentinel.timerNext;
+                while (node != sentinel) {
+                    CacheList.Node next = node.timerNext;
+                    node.timerPrev = null;
+                    node.timerNext = null;
+                    node = next;
+                }
+                sentinel.timerPrev = sentinel;
+                sentinel.timerNext = sentinel;
+            }
+        }
+    }
+
+    private void expireBucket(CacheList.Node sentinel, long now, Consumer<CacheList.Node> expire) {
+        CacheList.Node node = sentinel.timerNext;
+        sentinel.timerPrev = sentinel;
+        sentinel.timerNext = sentinel;
+        while (node != sentinel) {
+            CacheList.Node next = node.timerNext;
+            node.timerPrev = null;
+            node.timerNext = null;
+            if (node.getElement().getEndOfLife() < now) {
+                expire.accept(node);
+            } else {
+                schedule(node);
+            }
+            node = next;
+        }
+    }
+
+    private CacheList.Node findBucket(long time) {
+        long duration = time - currentTime;
+        int last = SHIFTS.length - 1;
+        for (int level = 0; level < last; level++) {
+            if (duration < 1L << SHIFTS[level + 1]) {
+                return wheel[level][(int) ((time >>> SHIFTS[level]) & BUCKET_MASK)];
+            }
+        }
+        if (duration >= (long) BUCKETS << SHIFTS[last]) {
+            // farther than the wheel covers, the bucket processed last is used
+            time = currentTime - (1L << SHIFTS[last]);
+        }
+        return wheel[last][(int) ((time >>> SHIFTS[last]) & BUCKET_MASK)];
+    }
+}
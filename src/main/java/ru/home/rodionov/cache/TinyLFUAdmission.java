@@ -0,0 +1,37 @@
+package ru.home.rodionov.cache;
+
+/**
+ * TinyLFU admission policy: the candidate displaces the victim only
+ * if estimated access frequency of the candidate is higher.
+ * Frequencies are kept by {@link FrequencySketch}, which ages periodically,
+ * so a one-off scan of keys can't flush frequently used elements.
+ */
+public class TinyLFUAdmission extends AdmissionPolicy {
+
+    private final FrequencySketch sketch;
+
+    /**
+     * @param maximumSize - expected count of elements in all levels of the cache
+     */
+    public TinyLFUAdmission(int maximumSize) {
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * @param key - key of the element
+     */
+    @Override
+    void record(Object key) {
+        sketch.increment(key);
+    }
+
+    /**
+     * @param candidateKey - key of the element which is going to be added
+     * @param victimKey    - key of the element which is going to be displaced
+     * @return true if the candidate is used more frequently than the victim
+     */
+    @Override
+    boolean admit(Object candidateKey, Object victimKey) {
+        return sketch.frequency(candidateKey) > sketch.frequency(victimKey);
+    }
+}
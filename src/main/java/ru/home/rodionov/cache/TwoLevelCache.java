@@ -1,12 +1,66 @@
 package ru.home.rodionov.cache;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
+/**
+ * Cache of two levels, usually fast small first level and big slow second level.
+ * Counters and latencies of the levels are collected into {@link CacheStats}.
+ * <p>
+ * Levels are safe for access by several threads themselves, so lookups take no lock of this cache.
+ * Moves between the levels are serialized by two locks: the lock of the first level and the window,
+ * which is never held while the second level is accessed, and the lock of the second level.
+ * Element displaced from the first level is queued under the first lock and written to the second level
+ * after it is released, queued elements are found by get until they are written.
+ * Missing values can be loaded by {@link #get(Object, Function)} and {@link #getAsync(Object, Function)}:
+ * concurrent misses of the same key share one call of the loader, which is made without the locks.
+ * <p>
+ * With write-behind elements displaced from the first level are written to the second level
+ * by the background thread, see {@link #TwoLevelCache(Cache, Cache, int, int, int)}.
+ */
 public class TwoLevelCache extends Cache {
     private Cache firstLevel;
     private Cache secondLevel;
     private int firstLevelMaxSize;
     private int secondLevelMaxSize;
+    private Cache window;
+    private int windowMaxSize;
+    private AdmissionPolicy admission;
+    private Weigher weigher;
+    private long firstLevelMaxWeight;
+    private long secondLevelMaxWeight;
+    private CacheStats stats;
+    private ReentrantLock lock = new ReentrantLock();
+    private ReentrantLock secondLevelLock = new ReentrantLock();
+    private ConcurrentHashMap<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    private volatile ExecutorService writer;
+    private int writeQueueCapacity;
+    private ArrayDeque<Demotion> writeQueue = new ArrayDeque<>();
+    private Map<Object, CacheObject> queued = new ConcurrentHashMap<>();
+    private long refreshInterval;
+    private Function<Object, Object> refreshLoader;
+    private Executor refreshExecutor;
+    private ConcurrentHashMap<Object, Long> writeTimes = new ConcurrentHashMap<>();
+    private boolean writing;
+    private Condition writeQueueNotFull = lock.newCondition();
+    private Condition writeQueueDrained = lock.newCondition();
 
     /**
      * @param firstLevel      - any implementation of {@link Cache}
@@ -15,10 +69,101 @@ public class TwoLevelCache extends Cache {
      * @param secondLevelSize - max size of second level
      */
     public TwoLevelCache(Cache firstLevel, Cache secondLevel, int firstLevelSize, int secondLevelSize) {
-        this.firstLevel = firstLevel;
-        this.secondLevel = secondLevel;
+        this(firstLevel, secondLevel, firstLevelSize, secondLevelSize, null, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Cache with levels limited by weight instead of elements count: elements of the first level are demoted
+     * and elements of the second level are evicted until the new element fits the level.
+     * Element heavier than the first level is added right to the second level,
+     * element heavier than both levels is not added. Current weights are reported by {@link CacheStats}.
+     *
+     * @param firstLevel        - any implementation of {@link Cache}
+     * @param secondLevel       - any implementation of {@link Cache}
+     * @param firstLevelWeight  - max weight of first level
+     * @param secondLevelWeight - max weight of second level
+     * @param weigher           - any implementation of {@link Weigher} or null for {@link SerializedWeigher}
+     */
+    public TwoLevelCache(Cache firstLevel, Cache secondLevel, long firstLevelWeight, long secondLevelWeight,
+                         Weigher weigher) {
+        this(firstLevel, secondLevel, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                weigher == null ? new SerializedWeigher() : weigher, firstLevelWeight, secondLevelWeight);
+    }
+
+    private TwoLevelCache(Cache firstLevel, Cache secondLevel, int firstLevelSize, int secondLevelSize,
+                          Weigher weigher, long firstLevelWeight, long secondLevelWeight) {
+        if (firstLevelWeight < 1 || secondLevelWeight < 1) {
+            throw new IllegalArgumentException("Max weight must be positive");
+        }
+        this.stats = new CacheStats(false);
+        this.weigher = weigher;
+        this.firstLevel = weigher == null ? firstLevel : new WeightedCache(firstLevel, weigher, stats.firstLevel);
+        this.secondLevel = weigher == null ? secondLevel : new WeightedCache(secondLevel, weigher, stats.secondLevel);
         this.firstLevelMaxSize = firstLevelSize;
         this.secondLevelMaxSize = secondLevelSize;
+        this.firstLevelMaxWeight = firstLevelWeight;
+        this.secondLevelMaxWeight = secondLevelWeight;
+        listen(this.firstLevel, false);
+        listen(this.secondLevel, true);
+        watchLevels();
+    }
+
+    /**
+     * Cache with write-behind demotion: elements displaced from the first level are queued
+     * and the background thread writes them to the second level in batches, so adding doesn't wait
+     * for the second level. Queued elements are found by get like elements of the second level.
+     * Adding waits while the queue holds the max count of elements not written yet.
+     * {@link #flush()} waits for the queue to be written, {@link #close()} also stops the thread.
+     *
+     * @param firstLevel         - any implementation of {@link Cache}
+     * @param secondLevel        - any implementation of {@link Cache}, safe for access by several threads
+     * @param firstLevelSize     - max size of first level
+     * @param secondLevelSize    - max size of second level
+     * @param writeQueueCapacity - max count of elements waiting to be written to the second level
+     */
+    public TwoLevelCache(Cache firstLevel, Cache secondLevel, int firstLevelSize, int secondLevelSize,
+                         int writeQueueCapacity) {
+        this(firstLevel, secondLevel, firstLevelSize, secondLevelSize);
+        if (writeQueueCapacity < 1) {
+            throw new IllegalArgumentException("Write queue capacity must be positive");
+        }
+        this.writeQueueCapacity = writeQueueCapacity;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "two-level-cache-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Cache with W-TinyLFU admission: new elements are added to the small window,
+     * element displaced from the window gets to the first level or the second level
+     * only if the admission policy prefers it to the displaced element of that level.
+     *
+     * @param firstLevel      - any implementation of {@link Cache}
+     * @param secondLevel     - any implementation of {@link Cache}
+     * @param firstLevelSize  - max size of first level
+     * @param secondLevelSize - max size of second level
+     * @param window          - any implementation of {@link Cache} for new elements, usually LRU in RAM
+     * @param windowSize      - max size of window
+     * @param admission       - any implementation of {@link AdmissionPolicy}, for example {@link TinyLFUAdmission}
+     */
+    public TwoLevelCache(Cache firstLevel, Cache secondLevel, int firstLevelSize, int secondLevelSize,
+                         Cache window, int windowSize, AdmissionPolicy admission) {
+        this(firstLevel, secondLevel, firstLevelSize, secondLevelSize);
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be positive");
+        }
+        this.window = window;
+        this.windowMaxSize = windowSize;
+        this.admission = admission;
+        this.stats = new CacheStats(true);
+        watchLevels();
+        window.addRemovalListener((element, cause) -> {
+            stats.window.recordRemoval(cause);
+            writeTimes.remove(element.getKey());
+            notifyRemoval(element, cause);
+        });
     }
 
     /**
@@ -29,16 +174,52 @@ public class TwoLevelCache extends Cache {
      */
     @Override
     public void add(Object key, Object value) {
-        if (firstLevel.size() < firstLevelMaxSize) {
-            firstLevel.add(key, value);
-        } else {
-            if (secondLevel.size() >= secondLevelMaxSize) {
-                secondLevel.removeLast();
+        put(key, value, null);
+    }
+
+    /**
+     * Create new element with key-value and its own storage time and appends it to the end of this cache,
+     * the storage time is kept when the element moves between levels
+     *
+     * @param key   - key
+     * @param value - value
+     * @param TTL   - storage time of this element in milliseconds
+     */
+    @Override
+    public void add(Object key, Object value, long TTL) {
+        put(key, value, new CacheObject(key, value, TTL));
+    }
+
+    /**
+     * @param element - element with its own storage time or null to create it by the level with its storage time
+     */
+    private void put(Object key, Object value, CacheObject element) {
+        written(key);
+        long weight = weigh(key, value);
+        if (weight > firstLevelMaxWeight) {
+            addOverweight(key, value, element, weight);
+            return;
+        }
+        try {
+            lock.lock();
+            if (admission != null) {
+                admission.record(key);
+                addToWindow(key, value, element);
+            } else {
+                while (writer != null && queued.size() >= writeQueueCapacity) {
+                    writeQueueNotFull.awaitUninterruptibly();
+                }
+                while (!fitsFirstLevel(weight) && firstLevel.size() > 0) {
+                    queue(firstLevel.removeLast(), stats.firstLevel);
+                }
+                long start = System.nanoTime();
+                add(firstLevel, key, value, element, weight);
+                stats.firstLevel.putLatency.record(System.nanoTime() - start);
             }
-            CacheObject shiftedElement = firstLevel.removeLast();
-            secondLevel.addFirst(shiftedElement);
-            firstLevel.add(key, value);
+        } finally {
+            lock.unlock();
         }
+        drain();
     }
 
     /**
@@ -48,7 +229,12 @@ public class TwoLevelCache extends Cache {
      */
     @Override
     public void addFirst(CacheObject element) {
-        firstLevel.addFirst(element);
+        try {
+            lock.lock();
+            firstLevel.addFirst(element);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -58,7 +244,12 @@ public class TwoLevelCache extends Cache {
      */
     @Override
     public void addLast(CacheObject element) {
-        secondLevel.addLast(element);
+        try {
+            secondLevelLock.lock();
+            secondLevel.addLast(element);
+        } finally {
+            secondLevelLock.unlock();
+        }
     }
 
     /**
@@ -66,26 +257,54 @@ public class TwoLevelCache extends Cache {
      */
     @Override
     public void clear() {
-        firstLevel.clear();
-        secondLevel.clear();
+        try {
+            secondLevelLock.lock();
+            try {
+                lock.lock();
+                firstLevel.clear();
+                if (window != null) {
+                    window.clear();
+                }
+                writeQueue.clear();
+                queued.clear();
+                writeQueueNotFull.signalAll();
+                writeTimes.clear();
+            } finally {
+                lock.unlock();
+            }
+            secondLevel.clear();
+        } finally {
+            secondLevelLock.unlock();
+        }
     }
 
     @Override
     public CacheObject removeFirst() {
-        return firstLevel.removeFirst();
+        try {
+            lock.lock();
+            return firstLevel.removeFirst();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public CacheObject removeLast() {
-        return secondLevel.removeLast();
+        try {
+            secondLevelLock.lock();
+            return secondLevel.removeLast();
+        } finally {
+            secondLevelLock.unlock();
+        }
     }
 
     /**
-     * @return elements count in this cache
+     * @return elements count in this cache, elements queued for the second level are counted too
      */
     @Override
     public int size() {
-        return firstLevel.size() + secondLevel.size();
+        int size = firstLevel.size() + secondLevel.size() + queued.size();
+        return window == null ? size : size + window.size();
     }
 
     /**
@@ -94,18 +313,164 @@ public class TwoLevelCache extends Cache {
      */
     @Override
     public Object get(Object key) {
-        Object tempValue = firstLevel.get(key);
+        Object value = find(key);
+        if (value != null) {
+            refreshIfStale(key);
+        }
+        return value;
+    }
 
+    /**
+     * Requests the levels, element found in the beginning of the second level is promoted to the first level
+     */
+    private Object find(Object key) {
+        if (admission != null) {
+            admission.record(key);
+            Object windowValue = get(window, stats.window, key);
+            if (windowValue != null) {
+                return windowValue;
+            }
+        }
+        Object tempValue = get(firstLevel, stats.firstLevel, key);
         if (tempValue == null) {
-            tempValue = secondLevel.get(key);
-            if (secondLevel.indexOf(key) == 0) {
-                CacheObject shiftedElement = secondLevel.removeFirst();
-                secondLevel.addFirst(firstLevel.removeLast());
+            tempValue = getQueued(key);
+            if (tempValue != null) {
+                stats.secondLevel.hits.increment();
+                return tempValue;
+            }
+        }
+
+        if (tempValue == null) {
+            tempValue = get(secondLevel, stats.secondLevel, key);
+            if (tempValue != null) {
+                promote(key);
+            }
+        }
+        return tempValue;
+    }
+
+    /**
+     * Requests the levels as {@link #find(Object)} does without recording the request and promoting the element
+     */
+    private Object findUncounted(Object key) {
+        Object value = window == null ? null : window.get(key);
+        if (value == null) {
+            value = firstLevel.get(key);
+        }
+        if (value == null) {
+            value = getQueued(key);
+        }
+        if (value == null) {
+            value = secondLevel.get(key);
+        }
+        return value;
+    }
+
+    /**
+     * Moves the element found in the second level to the first level if it is the first element
+     * of the second level, the last element of the first level is queued for the second level instead
+     */
+    private void promote(Object key) {
+        try {
+            secondLevelLock.lock();
+            if (secondLevel.indexOf(key) != 0) {
+                return;
+            }
+            CacheObject shiftedElement = secondLevel.removeFirst();
+            if (weigh(shiftedElement) > firstLevelMaxWeight) {
+                secondLevel.addFirst(shiftedElement);
+                return;
+            }
+            try {
+                lock.lock();
+                // the key may have been added again while the second level was read
+                if (firstLevel.indexOf(key) >= 0) {
+                    return;
+                }
+                if (firstLevel.size() > 0) {
+                    queue(firstLevel.removeLast(), stats.firstLevel);
+                }
                 firstLevel.addLast(shiftedElement);
                 firstLevel.get(shiftedElement.getKey());
+                stats.secondLevel.promotions.increment();
+                trimFirstLevel();
+            } finally {
+                lock.unlock();
             }
+        } finally {
+            secondLevelLock.unlock();
+        }
+        drain();
+    }
+
+    /**
+     * Returns the value or loads it on a miss and adds it to this cache,
+     * threads missing the same key at the same time wait for one load
+     *
+     * @param key    - key
+     * @param loader - function loading the value by key, null value is returned but not added
+     * @return value by key
+     */
+    public Object get(Object key, Function<Object, Object> loader) {
+        Object value = get(key);
+        if (value != null) {
+            return value;
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight == null) {
+            if (!completeIfLoaded(key, future)) {
+                load(key, loader, future);
+            }
+            inFlight = future;
+        }
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            // exception of the loader is rethrown as is if it is unchecked
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
         }
-        return tempValue;
+    }
+
+    /**
+     * Returns the value or loads it on a miss by {@link ForkJoinPool#commonPool()}
+     *
+     * @param key    - key
+     * @param loader - function loading the value by key, null value is returned but not added
+     * @return future of the value, shared by all callers missing the same key while it is loading
+     */
+    public CompletableFuture<Object> getAsync(Object key, Function<Object, Object> loader) {
+        return getAsync(key, loader, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns the value or loads it on a miss by the executor
+     *
+     * @param key      - key
+     * @param loader   - function loading the value by key, null value is returned but not added
+     * @param executor - executor of the loader
+     * @return future of the value, shared by all callers missing the same key while it is loading
+     */
+    public CompletableFuture<Object> getAsync(Object key, Function<Object, Object> loader, Executor executor) {
+        Object value = get(key);
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            return inFlight;
+        }
+        if (completeIfLoaded(key, future)) {
+            return future;
+        }
+        try {
+            executor.execute(() -> load(key, loader, future));
+        } catch (RuntimeException e) {
+            loading.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future;
     }
 
     /**
@@ -115,37 +480,747 @@ public class TwoLevelCache extends Cache {
      */
     @Override
     public LinkedList removeNotActual() {
-        firstLevel.removeNotActual();
-        secondLevel.removeNotActual();
-        if (secondLevel.size() > 0) {
-            shift();
+        try {
+            secondLevelLock.lock();
+            firstLevel.removeNotActual();
+            secondLevel.removeNotActual();
+            if (window != null) {
+                window.removeNotActual();
+            }
+            if (secondLevel.size() > 0) {
+                shift();
+            }
+        } finally {
+            secondLevelLock.unlock();
         }
+        drain();
         return null;
     }
 
     /**
+     * Enables refresh after write by {@link ForkJoinPool#commonPool()}
+     *
+     * @param refreshInterval - time after adding in milliseconds since which the element is reloaded when found
+     * @param loader          - function loading the value by key
+     * @see #refreshAfterWrite(long, Function, Executor)
+     */
+    public void refreshAfterWrite(long refreshInterval, Function<Object, Object> loader) {
+        refreshAfterWrite(refreshInterval, loader, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Enables refresh after write: element found more than the interval after it was added is reloaded
+     * by the executor while the old value is returned, so requested keys are reloaded before they expire.
+     * One reload of the key runs at a time and it is shared with {@link #get(Object, Function)}.
+     * Elements added before the call are not reloaded until they are added again.
+     *
+     * @param refreshInterval - time after adding in milliseconds since which the element is reloaded when found
+     * @param loader          - function loading the value by key, null value or exception keep the old value
+     *                        until the next interval
+     * @param executor        - executor of the loader
+     */
+    public void refreshAfterWrite(long refreshInterval, Function<Object, Object> loader, Executor executor) {
+        if (refreshInterval < 1) {
+            throw new IllegalArgumentException("Refresh interval must be positive");
+        }
+        try {
+            lock.lock();
+            this.refreshInterval = refreshInterval;
+            this.refreshLoader = loader;
+            this.refreshExecutor = executor;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return counters and latencies of the levels
+     */
+    public CacheStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Waits until elements queued by write-behind are written to the second level
+     */
+    public void flush() {
+        try {
+            lock.lock();
+            while (writing) {
+                writeQueueDrained.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes queued elements to the second level and stops the background writer,
+     * after that elements are demoted synchronously
+     */
+    public void close() {
+        try {
+            lock.lock();
+            flush();
+            if (writer != null) {
+                writer.shutdown();
+                writer = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes element by key from all levels
+     *
+     * @param key - key
+     * @return removed value or null if this cache does not contain actual element
+     */
+    @Override
+    public Object remove(Object key) {
+        try {
+            secondLevelLock.lock();
+            Object value;
+            Object windowValue = null;
+            try {
+                lock.lock();
+                writeTimes.remove(key);
+                value = firstLevel.remove(key);
+                CacheObject queuedElement = queued.remove(key);
+                if (value == null && queuedElement != null
+                        && queuedElement.getEndOfLife() >= System.currentTimeMillis()) {
+                    value = queuedElement.getValue();
+                }
+                if (window != null) {
+                    windowValue = window.remove(key);
+                }
+            } finally {
+                lock.unlock();
+            }
+            Object secondValue = secondLevel.remove(key);
+            if (value == null) {
+                value = secondValue;
+            }
+            return value == null ? windowValue : value;
+        } finally {
+            secondLevelLock.unlock();
+        }
+    }
+
+    /**
+     * Finds values of several keys, every level is requested once only for keys not found in previous levels.
+     * Found elements are not promoted between levels.
+     *
+     * @param keys - keys
+     * @return found values by keys in the order of keys, missing keys are absent
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map getAll(Collection keys) {
+        Map<Object, Object> found = new HashMap<>();
+        List<Object> remaining = new ArrayList<Object>(keys);
+        if (admission != null) {
+            for (Object key : remaining) {
+                admission.record(key);
+            }
+            remaining = getAll(window, stats.window, remaining, found);
+        }
+        remaining = getAll(firstLevel, stats.firstLevel, remaining, found);
+        List<Object> notQueued = new ArrayList<>();
+        for (Object key : remaining) {
+            Object value = getQueued(key);
+            if (value == null) {
+                notQueued.add(key);
+            } else {
+                found.put(key, value);
+                stats.secondLevel.hits.increment();
+            }
+        }
+        getAll(secondLevel, stats.secondLevel, notQueued, found);
+        Map<Object, Object> values = new LinkedHashMap<>();
+        for (Object key : (Collection<Object>) keys) {
+            Object value = found.get(key);
+            if (value != null) {
+                values.put(key, value);
+                refreshIfStale(key);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Adds several elements as {@link #add(Object, Object)} does, but elements displaced from the first level
+     * are written to the second level by one call of it, so a second level in a file is rewritten once
+     *
+     * @param entries - keys and values
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void putAll(Map entries) {
+        if (admission != null || writer != null) {
+            super.putAll(entries);
+            return;
+        }
+        for (Object entry : entries.entrySet()) {
+            Map.Entry<Object, Object> keyValue = (Map.Entry<Object, Object>) entry;
+            long weight = weigh(keyValue.getKey(), keyValue.getValue());
+            written(keyValue.getKey());
+            if (weight > firstLevelMaxWeight) {
+                addOverweight(keyValue.getKey(), keyValue.getValue(), null, weight);
+                continue;
+            }
+            try {
+                lock.lock();
+                while (!fitsFirstLevel(weight) && firstLevel.size() > 0) {
+                    queue(firstLevel.removeLast(), stats.firstLevel);
+                }
+                long start = System.nanoTime();
+                add(firstLevel, keyValue.getKey(), keyValue.getValue(), null, weight);
+                stats.firstLevel.putLatency.record(System.nanoTime() - start);
+            } finally {
+                lock.unlock();
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Removes elements of several keys, every level is requested once
+     *
+     * @param keys - keys
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void removeAll(Collection keys) {
+        try {
+            secondLevelLock.lock();
+            try {
+                lock.lock();
+                writeTimes.keySet().removeAll(keys);
+                firstLevel.removeAll(keys);
+                queued.keySet().removeAll(keys);
+                if (window != null) {
+                    window.removeAll(keys);
+                }
+            } finally {
+                lock.unlock();
+            }
+            secondLevel.removeAll(keys);
+        } finally {
+            secondLevelLock.unlock();
+        }
+    }
+
+    /**
+     * Elements of the window are indexed after the second level
+     *
      * @param key - key of the element
      * @return index of the value or -1 if this cache does not contain the element
      */
     @Override
     public int indexOf(Object key) {
-        if (firstLevel.indexOf(key) >= 0) {
-            return firstLevel.indexOf(key);
-        } else if (secondLevel.indexOf(key) >= 0) {
-            return secondLevel.indexOf(key) + firstLevelMaxSize;
+        int firstLevelOffset = weigher == null ? firstLevelMaxSize : firstLevel.size();
+        int index = firstLevel.indexOf(key);
+        if (index >= 0) {
+            return index;
         }
-        return -1;
+        index = secondLevel.indexOf(key);
+        if (index >= 0) {
+            return index + firstLevelOffset;
+        }
+        index = window == null ? -1 : window.indexOf(key);
+        return index >= 0 ? index + firstLevelOffset + secondLevelMaxSize : -1;
     }
 
     /**
-     * Shifts elements from second level to first if possible
+     * Shifts elements from second level to first if possible, must be called under the lock of the second level
      */
     private void shift() {
         int shiftRange = firstLevelMaxSize - firstLevel.size();
-        for (int i = 1; i < shiftRange; i++) {
+        for (int i = 1; i < shiftRange && weightOf(firstLevel) < firstLevelMaxWeight; i++) {
             if (secondLevel.size() > 0) {
-                firstLevel.addLast(secondLevel.removeFirst());
+                CacheObject element = secondLevel.removeFirst();
+                try {
+                    lock.lock();
+                    if (firstLevel.indexOf(element.getKey()) < 0) {
+                        firstLevel.addLast(element);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+        try {
+            lock.lock();
+            trimFirstLevel();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues element displaced from the first level or the window for the second level,
+     * must be called under the lock. Queued elements are written by the background writer
+     * or by {@link #drain()} after the lock is released.
+     *
+     * @param element - displaced element
+     * @param from    - statistics of the level the element is displaced from
+     */
+    private void queue(CacheObject element, LevelStats from) {
+        writeQueue.add(new Demotion(element, from));
+        queued.put(element.getKey(), element);
+        if (writer != null && !writing) {
+            writing = true;
+            writer.execute(this::write);
+        }
+    }
+
+    /**
+     * @return value of queued actual element or null
+     */
+    private Object getQueued(Object key) {
+        CacheObject element = queued.get(key);
+        if (element == null || element.getEndOfLife() < System.currentTimeMillis()) {
+            return null;
+        }
+        return element.getValue();
+    }
+
+    /**
+     * Writes batches of queued elements to the second level until the queue is empty.
+     * The second level is written without the lock, so it doesn't stop requests to the first level;
+     * queued elements stay visible by get until their batch is written.
+     */
+    private void write() {
+        while (true) {
+            try {
+                secondLevelLock.lock();
+                List<Demotion> batch;
+                try {
+                    lock.lock();
+                    if (writeQueue.isEmpty()) {
+                        writing = false;
+                        writeQueueDrained.signalAll();
+                        return;
+                    }
+                    batch = takeBatch();
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    writeBatch(batch);
+                } catch (RuntimeException e) {
+                    System.err.println("Error while writing to second level");
+                    e.printStackTrace();
+                }
+                forgetWritten(batch);
+            } finally {
+                secondLevelLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes elements queued by the calling thread or by other threads to the second level,
+     * with write-behind they are written by the background writer instead
+     */
+    private void drain() {
+        if (writer != null) {
+            return;
+        }
+        try {
+            secondLevelLock.lock();
+            while (true) {
+                List<Demotion> batch;
+                try {
+                    lock.lock();
+                    if (writeQueue.isEmpty()) {
+                        return;
+                    }
+                    batch = takeBatch();
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    writeBatch(batch);
+                } finally {
+                    forgetWritten(batch);
+                }
+            }
+        } finally {
+            secondLevelLock.unlock();
+        }
+    }
+
+    /**
+     * @return queued elements, must be called under the lock
+     */
+    private List<Demotion> takeBatch() {
+        List<Demotion> batch = new ArrayList<>(writeQueue);
+        writeQueue.clear();
+        return batch;
+    }
+
+    /**
+     * Writes demoted elements to the beginning of the second level by one call of it and evicts
+     * the last elements of the second level which don't fit, must be called under the lock of the second level.
+     * With admission every element is compared to the last element of the second level instead.
+     */
+    @SuppressWarnings("unchecked")
+    private void writeBatch(List<Demotion> batch) {
+        List<CacheObject> demoted = new ArrayList<>();
+        for (Demotion demotion : batch) {
+            if (weigh(demotion.element) > secondLevelMaxWeight) {
+                evict(demotion.element, demotion.from);
+            } else if (admission != null) {
+                demote(demotion.element, demotion.from);
+            } else {
+                demotion.from.demotions.increment();
+                demoted.add(demotion.element);
+            }
+        }
+        if (demoted.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<CacheObject> evicted = secondLevel.addAllFirst(demoted, secondLevelMaxSize);
+        while (weightOf(secondLevel) > secondLevelMaxWeight && secondLevel.size() > 0) {
+            evicted.add(secondLevel.removeLast());
+        }
+        stats.secondLevel.putLatency.record(System.nanoTime() - start);
+        for (CacheObject element : evicted) {
+            evict(element, stats.secondLevel);
+        }
+    }
+
+    /**
+     * Forgets written elements, element removed from this cache while its batch was written
+     * is removed from the second level
+     */
+    private void forgetWritten(List<Demotion> batch) {
+        try {
+            lock.lock();
+            for (Demotion demotion : batch) {
+                Object key = demotion.element.getKey();
+                if (!queued.remove(key, demotion.element) && !queued.containsKey(key)) {
+                    secondLevel.remove(key);
+                }
+            }
+            writeQueueNotFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds element heavier than the first level right to the end of the second level
+     * and removes the old value of the key from the first level
+     */
+    private void addOverweight(Object key, Object value, CacheObject element, long weight) {
+        try {
+            secondLevelLock.lock();
+            drain();
+            try {
+                lock.lock();
+                firstLevel.remove(key);
+            } finally {
+                lock.unlock();
+            }
+            if (weight > secondLevelMaxWeight) {
+                secondLevel.remove(key);
+                return;
+            }
+            while (!fitsSecondLevel(weight) && secondLevel.size() > 0) {
+                evict(secondLevel.removeLast(), stats.secondLevel);
+            }
+            long start = System.nanoTime();
+            add(secondLevel, key, value, element, weight);
+            stats.secondLevel.putLatency.record(System.nanoTime() - start);
+        } finally {
+            secondLevelLock.unlock();
+        }
+    }
+
+    /**
+     * Queues the last elements of the first level while it is heavier than its max weight,
+     * the first level can get heavier only when elements come from the second level
+     */
+    private void trimFirstLevel() {
+        while (weightOf(firstLevel) > firstLevelMaxWeight && firstLevel.size() > 1) {
+            queue(firstLevel.removeLast(), stats.firstLevel);
+        }
+    }
+
+    /**
+     * @param weight - weight of the new element
+     * @return true if the first level has room for the new element
+     */
+    private boolean fitsFirstLevel(long weight) {
+        return firstLevel.size() < firstLevelMaxSize && weightOf(firstLevel) + weight <= firstLevelMaxWeight;
+    }
+
+    /**
+     * @param weight - weight of the new element
+     * @return true if the second level has room for the new element
+     */
+    private boolean fitsSecondLevel(long weight) {
+        return secondLevel.size() < secondLevelMaxSize && weightOf(secondLevel) + weight <= secondLevelMaxWeight;
+    }
+
+    @SuppressWarnings("unchecked")
+    private long weigh(Object key, Object value) {
+        return weigher == null ? 0 : weigher.weigh(key, value);
+    }
+
+    private long weigh(CacheObject element) {
+        return weigher == null ? 0 : ((WeightedCache) firstLevel).weigh(element);
+    }
+
+    private static long weightOf(Cache level) {
+        return level instanceof WeightedCache ? ((WeightedCache) level).getWeight() : 0;
+    }
+
+    /**
+     * Adds element to the level, element with its own storage time carries the weight to the level
+     */
+    @SuppressWarnings("unchecked")
+    private static void add(Cache level, Object key, Object value, CacheObject element, long weight) {
+        if (element != null) {
+            element.setWeight(weight);
+            level.addLast(element);
+        } else if (level instanceof WeightedCache) {
+            ((WeightedCache) level).put(key, value, weight);
+        } else {
+            level.add(key, value);
+        }
+    }
+
+    /**
+     * Adds element to the window, displaced element of the window tries to get to the first level
+     *
+     * @param key     - key
+     * @param value   - value
+     * @param element - element with its own storage time or null
+     */
+    private void addToWindow(Object key, Object value, CacheObject element) {
+        CacheObject candidate = window.size() < windowMaxSize ? null : window.removeLast();
+        long start = System.nanoTime();
+        add(window, key, value, element, 0);
+        stats.window.putLatency.record(System.nanoTime() - start);
+        if (candidate == null) {
+            return;
+        }
+        if (firstLevel.size() < firstLevelMaxSize) {
+            addToFirstLevel(candidate);
+            stats.window.promotions.increment();
+            return;
+        }
+        CacheObject victim = firstLevel.removeLast();
+        if (admission.admit(candidate.getKey(), victim.getKey())) {
+            addToFirstLevel(candidate);
+            stats.window.promotions.increment();
+            queue(victim, stats.firstLevel);
+        } else {
+            firstLevel.addLast(victim);
+            queue(candidate, stats.window);
+        }
+    }
+
+    /**
+     * Moves element to the second level if it is not full or admission policy prefers it
+     * to the last element of the second level, otherwise the element is dropped.
+     * Must be called under the lock of the second level.
+     *
+     * @param element - element displaced from the first level or the window
+     * @param from    - statistics of the level the element is displaced from
+     */
+    private void demote(CacheObject element, LevelStats from) {
+        if (secondLevel.size() < secondLevelMaxSize) {
+            addToSecondLevel(element);
+            from.demotions.increment();
+            return;
+        }
+        CacheObject victim = secondLevel.removeLast();
+        if (admission.admit(element.getKey(), victim.getKey())) {
+            addToSecondLevel(element);
+            from.demotions.increment();
+            evict(victim, stats.secondLevel);
+        } else {
+            secondLevel.addLast(victim);
+            evict(element, from);
+        }
+    }
+
+    /**
+     * Remembers time of adding the key if refresh after write is enabled
+     */
+    private void written(Object key) {
+        if (refreshInterval > 0) {
+            writeTimes.put(key, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Starts reloading of the found key if it was added more than the refresh interval ago
+     * and it is not loading already
+     */
+    private void refreshIfStale(Object key) {
+        Long writeTime = writeTimes.get(key);
+        if (writeTime == null || System.currentTimeMillis() - writeTime < refreshInterval) {
+            return;
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        if (loading.putIfAbsent(key, future) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> refresh(key, future));
+        } catch (RuntimeException e) {
+            loading.remove(key, future);
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Reloads the key, failed reload is retried after the next refresh interval
+     */
+    private void refresh(Object key, CompletableFuture<Object> future) {
+        load(key, refreshLoader, future);
+        if (future.isCompletedExceptionally() || future.getNow(null) == null) {
+            writeTimes.computeIfPresent(key, (k, writeTime) -> System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Load of another caller may have completed between the miss and registering of the future,
+     * so the cache is requested again before the loader is called. The miss is already counted,
+     * so the request is not recorded by the admission policy and statistics.
+     *
+     * @return true if the future is completed by the cached value
+     */
+    private boolean completeIfLoaded(Object key, CompletableFuture<Object> future) {
+        Object value = findUncounted(key);
+        if (value == null) {
+            return false;
+        }
+        loading.remove(key, future);
+        future.complete(value);
+        return true;
+    }
+
+    /**
+     * Calls the loader, adds loaded value and completes the future of waiting callers
+     */
+    private void load(Object key, Function<Object, Object> loader, CompletableFuture<Object> future) {
+        try {
+            Object value = loader.apply(key);
+            if (value != null) {
+                add(key, value);
             }
+            future.complete(value);
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    private void addToFirstLevel(CacheObject element) {
+        long start = System.nanoTime();
+        firstLevel.addLast(element);
+        stats.firstLevel.putLatency.record(System.nanoTime() - start);
+    }
+
+    private void addToSecondLevel(CacheObject element) {
+        long start = System.nanoTime();
+        secondLevel.addFirst(element);
+        stats.secondLevel.putLatency.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Requests the level and records the result and the latency
+     */
+    @SuppressWarnings("unchecked")
+    static Object get(Cache level, LevelStats levelStats, Object key) {
+        long start = System.nanoTime();
+        Object value = level.get(key);
+        levelStats.getLatency.record(System.nanoTime() - start);
+        if (value == null) {
+            levelStats.misses.increment();
+        } else {
+            levelStats.hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Requests the level for several keys, records hits, misses and the latency
+     *
+     * @return keys not found in the level
+     */
+    @SuppressWarnings("unchecked")
+    static List<Object> getAll(Cache level, LevelStats levelStats, List<Object> keys, Map<Object, Object> found) {
+        if (keys.isEmpty()) {
+            return keys;
+        }
+        long start = System.nanoTime();
+        Map<Object, Object> values = level.getAll(keys);
+        levelStats.getLatency.record(System.nanoTime() - start);
+        levelStats.hits.add(values.size());
+        levelStats.misses.add(keys.size() - values.size());
+        found.putAll(values);
+        List<Object> remaining = new ArrayList<>();
+        for (Object key : keys) {
+            if (!values.containsKey(key)) {
+                remaining.add(key);
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Counts the element dropped from this cache and passes it to listeners
+     */
+    @SuppressWarnings("unchecked")
+    private void evict(CacheObject element, LevelStats from) {
+        from.evictions.increment();
+        writeTimes.remove(element.getKey());
+        notifyRemoval(element, RemovalCause.EVICTED);
+    }
+
+    /**
+     * Reports compression and Bloom filters of the levels by {@link CacheStats}
+     */
+    private void watchLevels() {
+        stats.firstLevel.compression = firstLevel.getCompressionStats();
+        stats.secondLevel.compression = secondLevel.getCompressionStats();
+        stats.firstLevel.filter = firstLevel.getFilterStats();
+        stats.secondLevel.filter = secondLevel.getFilterStats();
+    }
+
+    /**
+     * Counts elements removed by the level itself and passes them to listeners of this cache
+     */
+    @SuppressWarnings("unchecked")
+    private void listen(Cache level, boolean second) {
+        level.addRemovalListener((element, cause) -> {
+            (second ? stats.secondLevel : stats.firstLevel).recordRemoval(cause);
+            writeTimes.remove(element.getKey());
+            notifyRemoval(element, cause);
+        });
+    }
+
+    /**
+     * Element displaced from the first level or the window and waiting to be written to the second level
+     */
+    private static class Demotion {
+        private final CacheObject element;
+        private final LevelStats from;
+
+        private Demotion(CacheObject element, LevelStats from) {
+            this.element = element;
+            this.from = from;
         }
     }
 }
@@ -0,0 +1,19 @@
+package ru.home.rodionov.cache;
+
+/**
+ * Weight of the element for caches limited by total weight instead of elements count.
+ * Built-in implementation is {@link SerializedWeigher}.
+ *
+ * @param <K> - type of keys
+ * @param <V> - type of values
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * @param key   - key
+     * @param value - value
+     * @return weight of the element, usually its size in bytes, must not be negative
+     */
+    long weigh(K key, V value);
+}
@@ -0,0 +1,222 @@
+package ru.home.rodionov.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Level of {@link TwoLevelCache} limited by weight: wraps any {@link Cache} and sums weights of its elements.
+ * Weight of every key is kept until the element leaves the level, including elements removed by the level itself,
+ * so the weigher is called once for the element coming to the level and removed elements carry their weight
+ * to the next level. Changes of the level are ordered by {@link TwoLevelCache}, weights are kept under own lock,
+ * because the level may report expired elements while it is read without the locks of {@link TwoLevelCache}.
+ */
+class WeightedCache extends Cache {
+    private Cache level;
+    private Weigher weigher;
+    private LevelStats stats;
+    private Map<Object, Long> weights = new HashMap<>();
+    private long weight;
+    private ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * @param level   - any implementation of {@link Cache}
+     * @param weigher - weigher of elements
+     * @param stats   - statistics of the level, its weight is kept up to date
+     */
+    @SuppressWarnings("unchecked")
+    WeightedCache(Cache level, Weigher weigher, LevelStats stats) {
+        this.level = level;
+        this.weigher = weigher;
+        this.stats = stats;
+        level.addRemovalListener((element, cause) -> {
+            leave(element);
+            notifyRemoval(element, cause);
+        });
+    }
+
+    /**
+     * @return sum of weights of elements in this level
+     */
+    long getWeight() {
+        try {
+            lock.lock();
+            return weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param element - element
+     * @return weight carried by the element or weight given by the weigher
+     */
+    @SuppressWarnings("unchecked")
+    long weigh(CacheObject element) {
+        if (element.getWeight() == 0) {
+            element.setWeight(weigher.weigh(element.getKey(), element.getValue()));
+        }
+        return element.getWeight();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void add(Object key, Object value) {
+        put(key, value, weigher.weigh(key, value));
+    }
+
+    /**
+     * @param key    - key
+     * @param value  - value
+     * @param weight - weight of the element given by the weigher
+     */
+    @SuppressWarnings("unchecked")
+    void put(Object key, Object value, long weight) {
+        level.add(key, value);
+        enter(key, weight);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void addFirst(CacheObject element) {
+        level.addFirst(element);
+        enter(element.getKey(), weigh(element));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void addLast(CacheObject element) {
+        level.addLast(element);
+        enter(element.getKey(), weigh(element));
+    }
+
+    @Override
+    void clear() {
+        level.clear();
+        try {
+            lock.lock();
+            weights.clear();
+            weight = 0;
+            stats.weight.set(0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    CacheObject removeFirst() {
+        CacheObject element = level.removeFirst();
+        leave(element);
+        return element;
+    }
+
+    @Override
+    CacheObject removeLast() {
+        CacheObject element = level.removeLast();
+        leave(element);
+        return element;
+    }
+
+    @Override
+    int size() {
+        return level.size();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Object get(Object key) {
+        return level.get(key);
+    }
+
+    @Override
+    LinkedList removeNotActual() {
+        return level.removeNotActual();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    int indexOf(Object key) {
+        return level.indexOf(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Object remove(Object key) {
+        Object value = level.remove(key);
+        leave(key);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map getAll(Collection keys) {
+        return level.getAll(keys);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void removeAll(Collection keys) {
+        level.removeAll(keys);
+        for (Object key : keys) {
+            leave(key);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    List addAllFirst(List elements, int maxSize) {
+        List<CacheObject> removed = level.addAllFirst(elements, maxSize);
+        for (CacheObject element : (List<CacheObject>) elements) {
+            enter(element.getKey(), weigh(element));
+        }
+        for (CacheObject element : removed) {
+            leave(element);
+        }
+        return removed;
+    }
+
+    @Override
+    CompressionStats getCompressionStats() {
+        return level.getCompressionStats();
+    }
+
+    @Override
+    BloomFilterStats getFilterStats() {
+        return level.getFilterStats();
+    }
+
+    private void enter(Object key, long elementWeight) {
+        try {
+            lock.lock();
+            Long replaced = weights.put(key, elementWeight);
+            weight += replaced == null ? elementWeight : elementWeight - replaced;
+            stats.weight.set(weight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void leave(CacheObject element) {
+        Long removed = leave(element.getKey());
+        if (removed != null) {
+            element.setWeight(removed);
+        }
+    }
+
+    private Long leave(Object key) {
+        try {
+            lock.lock();
+            Long removed = weights.remove(key);
+            if (removed != null) {
+                weight -= removed;
+                stats.weight.set(weight);
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
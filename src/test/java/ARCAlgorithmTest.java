@@ -0,0 +1,89 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.ARCAlgorithm;
+import ru.home.rodionov.cache.FileCache;
+import ru.home.rodionov.cache.IndexedRAMCache;
+import ru.home.rodionov.cache.LRUAlgorithm;
+import ru.home.rodionov.cache.RAMCache;
+import ru.home.rodionov.cache.TwoLevelCache;
+
+import java.io.File;
+import java.io.IOException;
+
+public class ARCAlgorithmTest {
+    private static final int ONE_SECOND = 1000;
+
+    @Test
+    public void testRecentElementIsDisplacedInIndexedRamCache() {
+        ARCAlgorithm arc = new ARCAlgorithm(4);
+        IndexedRAMCache rc = new IndexedRAMCache(arc, ONE_SECOND);
+        for (int i = 0; i < 4; i++) {
+            rc.add("key_" + i, "value_" + i);
+        }
+        rc.get("key_1");
+        Assert.assertEquals("Found element is not first", 0, rc.indexOf("key_1"));
+        Assert.assertEquals("Least recently used element seen once is not displaced",
+                "key_0", rc.removeLast().getKey());
+
+        rc.add("key_0", "value_0");
+        Assert.assertEquals("Target is not increased by recent ghost", 1, arc.getRecentTarget());
+        Assert.assertEquals("Wrong displaced element", "key_2", rc.removeLast().getKey());
+        Assert.assertEquals("Frequent element is not displaced when recent ones fit the target",
+                "key_1", rc.removeLast().getKey());
+    }
+
+    @Test
+    public void testRecentElementIsDisplacedInRamCache() {
+        ARCAlgorithm arc = new ARCAlgorithm(4);
+        RAMCache rc = new RAMCache(arc, ONE_SECOND);
+        for (int i = 0; i < 4; i++) {
+            rc.add("key_" + i, "value_" + i);
+        }
+        rc.get("key_1");
+        Assert.assertEquals("Found element is not first", 0, rc.indexOf("key_1"));
+        Assert.assertEquals("Least recently used element seen once is not displaced",
+                "key_0", rc.removeLast().getKey());
+        Assert.assertEquals("Element is lost by displacement", 3, rc.size());
+
+        rc.add("key_0", "value_0");
+        Assert.assertEquals("Target is not increased by recent ghost", 1, arc.getRecentTarget());
+        Assert.assertEquals("Wrong displaced element", "key_2", rc.removeLast().getKey());
+        Assert.assertEquals("Frequent element is not displaced when recent ones fit the target",
+                "key_1", rc.removeLast().getKey());
+    }
+
+    @Test
+    public void testFileCacheRejectsArc() throws IOException {
+        File file = File.createTempFile("arc", ".fc");
+        file.deleteOnExit();
+        try {
+            new FileCache(file.getPath(), new ARCAlgorithm(4), ONE_SECOND);
+            Assert.fail("ARC is accepted by FileCache");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("Wrong exception", "ARCAlgorithm is not supported by FileCache", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testFrequentElementsSurviveScanInTwoLevelCache() {
+        ARCAlgorithm arc = new ARCAlgorithm(4);
+        TwoLevelCache tlc = new TwoLevelCache(new IndexedRAMCache(arc, ONE_SECOND * 60),
+                new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60), 4, 100);
+        tlc.add("hot_0", "value");
+        tlc.add("hot_1", "value");
+        tlc.get("hot_0");
+        tlc.get("hot_1");
+        for (int i = 0; i < 20; i++) {
+            tlc.add("scan_" + i, "value");
+        }
+        Assert.assertTrue("Frequent element is demoted by scan", tlc.indexOf("hot_0") < 4);
+        Assert.assertTrue("Frequent element is demoted by scan", tlc.indexOf("hot_1") < 4);
+        Assert.assertEquals("Wrong last demoted element", 4, tlc.indexOf("scan_17"));
+
+        tlc.get("scan_17");
+        Assert.assertEquals("Element is not promoted", 0, tlc.indexOf("scan_17"));
+        Assert.assertEquals("Target is not increased by promotion of demoted element", 1, arc.getRecentTarget());
+        Assert.assertTrue("Frequent element is demoted by promotion", tlc.indexOf("hot_0") < 4);
+        Assert.assertTrue("Frequent element is demoted by promotion", tlc.indexOf("hot_1") < 4);
+    }
+}
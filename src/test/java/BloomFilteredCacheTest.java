@@ -0,0 +1,88 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.BloomFilterStats;
+import ru.home.rodionov.cache.BloomFilteredCache;
+import ru.home.rodionov.cache.FileCache;
+import ru.home.rodionov.cache.IndexedRAMCache;
+import ru.home.rodionov.cache.LRUAlgorithm;
+import ru.home.rodionov.cache.TwoLevelCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BloomFilteredCacheTest {
+    private static final int ONE_SECOND = 1000;
+
+    @Test
+    public void testDefiniteMissesSkipLevel() {
+        AtomicInteger gets = new AtomicInteger();
+        IndexedRAMCache level = new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60) {
+            @Override
+            public Object get(Object key) {
+                gets.incrementAndGet();
+                return super.get(key);
+            }
+        };
+        BloomFilteredCache cache = new BloomFilteredCache(level, 100, 0.01);
+        for (int i = 0; i < 100; i++) {
+            cache.add("key_" + i, "value_" + i);
+        }
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("Present key is hidden", "value_" + i, cache.get("key_" + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertNull("Absent key is found", cache.get("absent_" + i));
+        }
+        BloomFilterStats.Snapshot stats = cache.getFilterSnapshot();
+        Assert.assertEquals("Skipped misses touched the level", 100 + stats.getFalsePositives(), gets.get());
+        Assert.assertEquals("Wrong skipped count", 1000 - stats.getFalsePositives(), stats.getSkipped());
+        Assert.assertTrue("Too many false positives", stats.getFalsePositiveRate() < 0.05);
+    }
+
+    @Test
+    public void testFilterFollowsRemovalsAndExpirations() throws InterruptedException {
+        IndexedRAMCache level = new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60);
+        BloomFilteredCache cache = new BloomFilteredCache(level, 100, 0.01);
+        cache.add("removed", "value");
+        cache.add("short", "value", ONE_SECOND / 2);
+        cache.add("kept", "value");
+        Assert.assertEquals("Wrong removed value", "value", cache.remove("removed"));
+        Thread.sleep(ONE_SECOND);
+        Assert.assertEquals("Expired element is not removed", 1, cache.size());
+
+        long skipped = cache.getFilterSnapshot().getSkipped();
+        Assert.assertNull(cache.get("removed"));
+        Assert.assertNull(cache.get("short"));
+        Assert.assertEquals("Wrong value", "value", cache.get("kept"));
+        Assert.assertEquals("Removed keys are still counted", skipped + 2, cache.getFilterSnapshot().getSkipped());
+        Map values = cache.getAll(Arrays.asList("removed", "kept", "short"));
+        Assert.assertEquals("Wrong batch result", 1, values.size());
+    }
+
+    @Test
+    public void testSecondLevelReportsFilter() throws IOException {
+        File file = File.createTempFile("filtered", ".fc");
+        file.deleteOnExit();
+        FileCache fc = new FileCache(file.getPath(), new LRUAlgorithm(), ONE_SECOND * 60);
+        fc.add("recovered", "value");
+        TwoLevelCache tlc = new TwoLevelCache(new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60),
+                new BloomFilteredCache(fc, 100, 0.01), 2, 10);
+        for (int i = 0; i < 6; i++) {
+            tlc.add("key_" + i, "value_" + i);
+        }
+        Assert.assertEquals("Element of the level is not counted", "value", tlc.get("recovered"));
+        for (int i = 0; i < 6; i++) {
+            Assert.assertEquals("Wrong value", "value_" + i, tlc.get("key_" + i));
+        }
+        Assert.assertNull(tlc.get("absent"));
+        Map<String, Long> counters = tlc.getStats().getCounters();
+        Assert.assertTrue("Skipped misses are not reported", counters.get("secondLevel.filter.skipped") > 0);
+        Assert.assertFalse("First level reports filter", counters.containsKey("firstLevel.filter.skipped"));
+        BloomFilterStats.Snapshot filter = tlc.getStats().snapshot().getSecondLevel().getFilter();
+        Assert.assertEquals("Wrong false positive rate", (double) filter.getFalsePositives()
+                / (filter.getFalsePositives() + filter.getSkipped()), filter.getFalsePositiveRate(), 1e-9);
+    }
+}
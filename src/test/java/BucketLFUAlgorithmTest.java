@@ -0,0 +1,57 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.BucketLFUAlgorithm;
+import ru.home.rodionov.cache.IndexedRAMCache;
+import ru.home.rodionov.cache.RAMCache;
+
+public class BucketLFUAlgorithmTest {
+    private static final int ONE_SECOND = 1000;
+
+    @Test
+    public void testLeastFrequentlyUsedIsLastInIndexedRamCache() {
+        IndexedRAMCache rc = new IndexedRAMCache(new BucketLFUAlgorithm(), ONE_SECOND);
+        for (int i = 0; i < 5; i++) {
+            rc.add("key_" + i, "value_" + i);
+        }
+        rc.get("key_3");
+        rc.get("key_3");
+        rc.get("key_1");
+        Assert.assertEquals("Most frequently used element is not first", 0, rc.indexOf("key_3"));
+        Assert.assertEquals("Element is not shifted by frequency", 1, rc.indexOf("key_1"));
+        Assert.assertEquals("Oldest least frequently used element is not last",
+                "key_0", rc.removeLast().getKey());
+        Assert.assertEquals("Newest least frequently used element is not after used ones",
+                2, rc.indexOf("key_4"));
+    }
+
+    @Test
+    public void testAgingInIndexedRamCache() {
+        IndexedRAMCache rc = new IndexedRAMCache(new BucketLFUAlgorithm(4), ONE_SECOND);
+        for (int i = 0; i < 3; i++) {
+            rc.add("key_" + i, "value_" + i);
+        }
+        rc.get("key_0");
+        rc.get("key_0");
+        rc.get("key_0");
+        rc.get("key_1");
+        rc.get("key_2");
+        Assert.assertEquals("Counters are not halved", 0, rc.indexOf("key_2"));
+        Assert.assertEquals("Order is broken by aging", 1, rc.indexOf("key_0"));
+        rc.clear();
+        Assert.assertEquals("Cache is not cleared", 0, rc.size());
+    }
+
+    @Test
+    public void testLeastFrequentlyUsedIsLastInRamCache() {
+        RAMCache rc = new RAMCache(new BucketLFUAlgorithm(), ONE_SECOND);
+        for (int i = 0; i < 5; i++) {
+            rc.add("key_" + i, "value_" + i);
+        }
+        rc.get("key_3");
+        rc.get("key_3");
+        rc.get("key_1");
+        Assert.assertEquals("Most frequently used element is not first", 0, rc.indexOf("key_3"));
+        Assert.assertEquals("Element is not shifted by frequency", 1, rc.indexOf("key_1"));
+        Assert.assertEquals("Least frequently used element is not last", "key_4", rc.removeLast().getKey());
+    }
+}
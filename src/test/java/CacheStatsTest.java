@@ -0,0 +1,76 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.CacheStats;
+import ru.home.rodionov.cache.IndexedRAMCache;
+import ru.home.rodionov.cache.LRUAlgorithm;
+import ru.home.rodionov.cache.RemovalCause;
+import ru.home.rodionov.cache.TwoLevelCache;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class CacheStatsTest {
+    private static final int ONE_SECOND = 1000;
+
+    @Test
+    public void testLevelCounters() {
+        TwoLevelCache tlc = new TwoLevelCache(new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60),
+                new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60), 5, 5);
+        List<Object> evicted = new ArrayList<>();
+        tlc.addRemovalListener((element, cause) -> evicted.add(element.getKey()));
+        for (int i = 0; i < 12; i++) {
+            tlc.add("key_" + i, "value_" + i);
+        }
+        tlc.get("key_11");
+        tlc.get("key_8");
+        tlc.get("missing");
+        CacheStats.Snapshot snapshot = tlc.getStats().snapshot();
+        Assert.assertEquals("Wrong first level hits", 1, snapshot.getFirstLevel().getHits());
+        Assert.assertEquals("Wrong second level hits", 1, snapshot.getSecondLevel().getHits());
+        Assert.assertEquals("Wrong misses", 1, snapshot.getMisses());
+        Assert.assertEquals("Wrong promotions", 1, snapshot.getSecondLevel().getPromotions());
+        Assert.assertEquals("Wrong demotions", 8, snapshot.getFirstLevel().getDemotions());
+        Assert.assertEquals("Wrong evictions", 2, snapshot.getSecondLevel().getEvictions());
+        Assert.assertEquals("Evicted elements are not passed to listener", 2, evicted.size());
+        Assert.assertEquals("Latencies are not recorded", 3, snapshot.getFirstLevel().getGetLatency().getCount());
+        Assert.assertEquals("Wrong hit rate", 2.0 / 3, snapshot.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void testExpirationsAreCounted() throws InterruptedException {
+        TwoLevelCache tlc = new TwoLevelCache(new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND / 10),
+                new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND / 10), 5, 5);
+        List<RemovalCause> causes = new ArrayList<>();
+        tlc.addRemovalListener((element, cause) -> causes.add(cause));
+        for (int i = 0; i < 5; i++) {
+            tlc.add("key_" + i, "value_" + i);
+        }
+        Thread.sleep(ONE_SECOND / 5);
+        Assert.assertEquals("Expired elements are not removed", 0, tlc.size());
+        Assert.assertEquals("Wrong expirations", 5, tlc.getStats().snapshot().getFirstLevel().getExpirations());
+        Assert.assertEquals("Expired elements are not passed to listener", 5, causes.size());
+        Assert.assertEquals("Wrong removal cause", RemovalCause.EXPIRED, causes.get(0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMBeanExposesCounters() throws Exception {
+        TwoLevelCache tlc = new TwoLevelCache(new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60),
+                new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60), 5, 5);
+        tlc.add("key", "value");
+        tlc.get("key");
+        ObjectName name = tlc.getStats().registerMBean("stats-test");
+        try {
+            Assert.assertEquals("Wrong hit rate", 1.0,
+                    (Double) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "HitRate"), 1e-9);
+            Map<String, Long> counters = tlc.getStats().getCounters();
+            Assert.assertEquals("Wrong counter", Long.valueOf(1), counters.get("firstLevel.hits"));
+            Assert.assertTrue("Latencies are not exposed", tlc.getStats().getLatencies().containsKey("firstLevel.get.p99"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.ClockCache;
+
+public class ClockCacheTest {
+    private static final int ONE_SECOND = 1000;
+
+    @Test
+    public void testReferencedElementsGetSecondChance() {
+        ClockCache cc = new ClockCache(ONE_SECOND * 60, 4);
+        for (int i = 0; i < 4; i++) {
+            cc.add("key_" + i, "value_" + i);
+        }
+        cc.get("key_0");
+        cc.get("key_2");
+        cc.add("key_4", "value_4");
+        Assert.assertNull("Not referenced element is not displaced", cc.get("key_1"));
+        cc.add("key_5", "value_5");
+        Assert.assertNull("Not referenced element is not displaced", cc.get("key_3"));
+        Assert.assertEquals("Referenced element is displaced", "value_0", cc.get("key_0"));
+        Assert.assertEquals("Referenced element is displaced", "value_2", cc.get("key_2"));
+        Assert.assertEquals("Wrong size", 4, cc.size());
+        Assert.assertEquals("Last element is not chosen by the hand", "key_4", cc.removeLast().getKey());
+        Assert.assertEquals("Wrong size after removing", 3, cc.size());
+    }
+
+    @Test
+    public void testHotElementsSurviveScanInClockPro() {
+        ClockCache clock = new ClockCache(ONE_SECOND * 60, 10);
+        ClockCache clockPro = new ClockCache(ONE_SECOND * 60, 10, true);
+        for (ClockCache cc : new ClockCache[]{clock, clockPro}) {
+            for (int i = 0; i < 4; i++) {
+                cc.add("hot_" + i, "value");
+            }
+            for (int round = 0; round < 3; round++) {
+                for (int i = 0; i < 4; i++) {
+                    cc.get("hot_" + i);
+                }
+                for (int i = 0; i < 10; i++) {
+                    cc.add("scan_" + round + "_" + i, "value");
+                }
+            }
+            for (int i = 0; i < 100; i++) {
+                cc.add("scan_" + i, "value");
+            }
+        }
+        Assert.assertNull("Scan doesn't displace elements from CLOCK", clock.get("hot_0"));
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals("Hot element is displaced by scan", "value", clockPro.get("hot_" + i));
+        }
+        Assert.assertEquals("Wrong size", 10, clockPro.size());
+    }
+
+    @Test
+    public void testExpiredElementsAreRemoved() throws InterruptedException {
+        ClockCache cc = new ClockCache(ONE_SECOND / 10, 4);
+        cc.add("key_0", "value_0");
+        cc.add("key_1", "value_1");
+        Thread.sleep(ONE_SECOND / 5);
+        Assert.assertNull("Expired element is found", cc.get("key_0"));
+        Assert.assertEquals("Expired elements are not removed", 0, cc.size());
+        Assert.assertEquals("Removed element is indexed", -1, cc.indexOf("key_1"));
+    }
+}
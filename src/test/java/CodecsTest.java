@@ -0,0 +1,66 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.Codec;
+import ru.home.rodionov.cache.Codecs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CodecsTest {
+
+    @Test
+    public void testBuiltInCodecs() throws IOException {
+        Assert.assertEquals("value", roundTrip(Codecs.STRING, "value"));
+        Assert.assertArrayEquals(new byte[]{1, 2, 3}, roundTrip(Codecs.BYTES, new byte[]{1, 2, 3}));
+        Assert.assertEquals(Long.valueOf(Long.MIN_VALUE), roundTrip(Codecs.LONG, Long.MIN_VALUE));
+        Assert.assertEquals(Integer.valueOf(42), roundTrip(Codecs.INTEGER, 42));
+        Assert.assertEquals(Double.valueOf(0.5), roundTrip(Codecs.DOUBLE, 0.5));
+        Assert.assertEquals(Character.valueOf('x'), roundTrip(Codecs.CHARACTER, 'x'));
+        Assert.assertEquals(Boolean.TRUE, roundTrip(Codecs.BOOLEAN, true));
+    }
+
+    @Test
+    public void testCompositeCodecs() throws IOException {
+        List<String> list = Arrays.asList("a", "b", "c");
+        Assert.assertEquals(list, roundTrip(Codecs.list(Codecs.STRING), list));
+        Map<String, Long> map = new LinkedHashMap<>();
+        map.put("one", 1L);
+        map.put("two", 2L);
+        Assert.assertEquals(map, roundTrip(Codecs.map(Codecs.STRING, Codecs.LONG), map));
+    }
+
+    @Test
+    public void testDefaultCodecFallsBackToSerialization() throws IOException {
+        Assert.assertNull(roundTrip(Codecs.DEFAULT, null));
+        Assert.assertEquals("value", roundTrip(Codecs.DEFAULT, "value"));
+        Assert.assertEquals(Long.valueOf(7L), roundTrip(Codecs.DEFAULT, 7L));
+        Assert.assertEquals(new BigDecimal("1.5"), roundTrip(Codecs.DEFAULT, new BigDecimal("1.5")));
+        Assert.assertTrue("Built-in codec is not smaller than serialization",
+                encode(Codecs.DEFAULT, "value").length < encode(Codecs.SERIALIZABLE, "value").length);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T roundTrip(Codec<? super T> codec, T value) throws IOException {
+        byte[] bytes = encode(codec, value);
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+        T result = (T) codec.read(input);
+        Assert.assertEquals("Not all bytes are read", -1, input.read());
+        return result;
+    }
+
+    private static <T> byte[] encode(Codec<? super T> codec, T value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        codec.write(value, output);
+        output.flush();
+        return bytes.toByteArray();
+    }
+}
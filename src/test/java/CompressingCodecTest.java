@@ -0,0 +1,92 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.Codecs;
+import ru.home.rodionov.cache.CompressingCodec;
+import ru.home.rodionov.cache.CompressionStats;
+import ru.home.rodionov.cache.FileCache;
+import ru.home.rodionov.cache.IndexedRAMCache;
+import ru.home.rodionov.cache.LRUAlgorithm;
+import ru.home.rodionov.cache.TwoLevelCache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+public class CompressingCodecTest {
+    private static final int ONE_SECOND = 1000;
+
+    @Test
+    public void testLargeValuesAreCompressed() throws IOException {
+        CompressingCodec<String> codec = new CompressingCodec<>(Codecs.STRING, Deflater.BEST_SPEED, 64);
+        String large = json(100);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        codec.write(large, out);
+        codec.write("small", out);
+        out.flush();
+        Assert.assertTrue("Value is not compressed", bytes.size() < large.length() / 2);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        Assert.assertEquals("Wrong decompressed value", large, codec.read(in));
+        Assert.assertEquals("Wrong raw value", "small", codec.read(in));
+
+        CompressionStats.Snapshot stats = codec.getStats().snapshot();
+        Assert.assertEquals("Wrong compressed count", 1, stats.getCompressedValues());
+        Assert.assertEquals("Value under threshold is compressed", 1, stats.getRawValues());
+        Assert.assertTrue("Wrong ratio", stats.getRatio() > 2);
+    }
+
+    @Test
+    public void testSecondLevelReportsCompression() throws IOException {
+        File file = File.createTempFile("compressed", ".fc");
+        file.deleteOnExit();
+        FileCache fc = new FileCache(file.getPath(), new LRUAlgorithm(), ONE_SECOND * 60,
+                Codecs.DEFAULT, new CompressingCodec<>(Codecs.DEFAULT));
+        TwoLevelCache tlc = new TwoLevelCache(new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60), fc, 2, 10);
+        for (int i = 0; i < 6; i++) {
+            tlc.add("key_" + i, json(50 + i));
+        }
+        Assert.assertEquals("Values are not demoted", 4, fc.size());
+        for (int i = 0; i < 6; i++) {
+            Assert.assertEquals("Wrong value", json(50 + i), tlc.get("key_" + i));
+        }
+        Assert.assertTrue("File is not smaller than values", file.length() < json(50).length() * 2);
+        Map<String, Long> counters = tlc.getStats().getCounters();
+        Assert.assertTrue("Compression is not reported", counters.get("secondLevel.compression.rawBytes")
+                > 2 * counters.get("secondLevel.compression.storedBytes"));
+        Assert.assertFalse("First level reports compression", counters.containsKey("firstLevel.compression.rawBytes"));
+        Assert.assertNull(tlc.getStats().snapshot().getFirstLevel().getCompression());
+    }
+
+    @Test
+    public void testValuesAreCompressedOnceByFileCache() throws IOException {
+        File file = File.createTempFile("compressed-once", ".fc");
+        file.deleteOnExit();
+        CompressingCodec<Object> codec = new CompressingCodec<>(Codecs.DEFAULT);
+        FileCache fc = new FileCache(file.getPath(), new LRUAlgorithm(), ONE_SECOND * 60, Codecs.DEFAULT, codec);
+        for (int i = 0; i < 5; i++) {
+            fc.add("key_" + i, json(50 + i));
+        }
+        for (int n = 0; n < 10; n++) {
+            for (int i = 0; i < 5; i++) {
+                Assert.assertEquals("Wrong value", json(50 + i), fc.get("key_" + i));
+            }
+        }
+        fc.remove("key_0");
+        CompressionStats.Snapshot stats = codec.getStats().snapshot();
+        Assert.assertEquals("Values are compressed again by rewrites", 5, stats.getCompressedValues());
+        Assert.assertEquals("Values are encoded again by rewrites", 0, stats.getRawValues());
+    }
+
+    private static String json(int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            json.append("{\"id\":").append(i).append(",\"name\":\"element\",\"active\":true},");
+        }
+        return json.append("{}]").toString();
+    }
+}
@@ -0,0 +1,91 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.ConcurrentRAMCache;
+import ru.home.rodionov.cache.LRUAlgorithm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ConcurrentRAMCacheTest {
+    private static final int ONE_SECOND = 1000;
+
+    @Test
+    public void testGetAndRemove() {
+        ConcurrentRAMCache rc = new ConcurrentRAMCache(LRUAlgorithm::new, ONE_SECOND, 4);
+        for (int i = 0; i < 20; i++) {
+            rc.add("key_" + i, "value_" + i);
+        }
+        Assert.assertEquals("Wrong value by key", "value_5", rc.get("key_5"));
+        Assert.assertEquals("Wrong size", 20, rc.size());
+        for (int i = 0; i < 20; i++) {
+            rc.removeLast();
+        }
+        Assert.assertEquals("Cache is not empty", 0, rc.size());
+    }
+
+    @Test
+    public void testSegmentsShareMaxSize() {
+        ConcurrentRAMCache rc = new ConcurrentRAMCache(LRUAlgorithm::new, ONE_SECOND, 4, 40);
+        for (int i = 0; i < 1000; i++) {
+            rc.add("key_" + i, "value_" + i);
+        }
+        Assert.assertTrue("Cache exceeds max size", rc.size() <= 40);
+    }
+
+    @Test
+    public void testAddedElementSurvivesInFullCache() {
+        ConcurrentRAMCache rc = new ConcurrentRAMCache(LRUAlgorithm::new, ONE_SECOND * 60, 1, 3);
+        for (int i = 0; i < 5; i++) {
+            rc.add("key_" + i, "value_" + i);
+            Assert.assertEquals("Added element is displaced", "value_" + i, rc.get("key_" + i));
+        }
+        Assert.assertEquals("Wrong size", 3, rc.size());
+    }
+
+    @Test
+    public void testBufferedHitsKeepRecency() {
+        ConcurrentRAMCache rc = new ConcurrentRAMCache(LRUAlgorithm::new, ONE_SECOND, 1, 3);
+        rc.add("key_0", "value_0");
+        rc.add("key_1", "value_1");
+        rc.add("key_2", "value_2");
+        Assert.assertEquals("Wrong value by key", "value_0", rc.get("key_0"));
+        rc.add("key_3", "value_3");
+        Assert.assertEquals("Recently read element was evicted", "value_0", rc.get("key_0"));
+        Assert.assertEquals("Added element was evicted", "value_3", rc.get("key_3"));
+        Assert.assertEquals("Wrong size", 3, rc.size());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws InterruptedException {
+        ConcurrentRAMCache rc = new ConcurrentRAMCache(LRUAlgorithm::new, ONE_SECOND, 8, 100);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int seed = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 10000; i++) {
+                        String key = "key_" + ((i * 31 + seed) % 200);
+                        if (i % 3 == 0) {
+                            rc.add(key, "value");
+                        } else if (i % 101 == 0) {
+                            rc.removeNotActual();
+                        } else {
+                            rc.get(key);
+                        }
+                    }
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertNull("Concurrent access failed", error.get());
+        Assert.assertTrue("Cache exceeds max size", rc.size() <= 100);
+    }
+}
@@ -1,11 +1,19 @@
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import ru.home.rodionov.cache.CacheObject;
+import ru.home.rodionov.cache.Codecs;
 import ru.home.rodionov.cache.FileCache;
 import ru.home.rodionov.cache.LRUAlgorithm;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class FileCacheTest {
     private static final int ONE_SECOND = 1000;
@@ -14,8 +22,10 @@ public class FileCacheTest {
     private static List<Object> values;
 
     @BeforeClass
-    public static void setUp() {
-        fc = new FileCache("C:\\Users\\FaiFlay\\Cache.fc\\", new LRUAlgorithm(), ONE_SECOND);
+    public static void setUp() throws IOException {
+        File file = File.createTempFile("cache", ".fc");
+        file.deleteOnExit();
+        fc = new FileCache(file.getPath(), new LRUAlgorithm(), ONE_SECOND);
         keys = new ArrayList<>();
         values = new ArrayList<>();
         for (int i = 0; i < 20; i++) {
@@ -33,13 +43,93 @@ public class FileCacheTest {
         Assert.assertEquals("Element is not shifted to first position", 0, fc.indexOf(keys.get(5)));
     }
 
+    @Test
+    public void testBufferedReadsInFileCache() throws IOException {
+        File file = File.createTempFile("buffered", ".fc");
+        file.deleteOnExit();
+        FileCache buffered = new FileCache(file.getPath(), new LRUAlgorithm(), ONE_SECOND, true);
+        for (int i = 0; i < keys.size(); i++) {
+            buffered.add(keys.get(i), values.get(i));
+        }
+        Assert.assertEquals("Wrong value by key", values.get(5), buffered.get(keys.get(5)));
+        Assert.assertEquals("Buffered hit is not applied", 0, buffered.indexOf(keys.get(5)));
+    }
+
+    @Test
+    public void testCodecsInFileCache() throws IOException {
+        File file = File.createTempFile("codecs", ".fc");
+        file.deleteOnExit();
+        FileCache encoded = new FileCache(file.getPath(), new LRUAlgorithm(), ONE_SECOND, Codecs.STRING, Codecs.STRING);
+        for (int i = 0; i < keys.size(); i++) {
+            encoded.add(keys.get(i), values.get(i));
+        }
+        Assert.assertEquals("Wrong value by key", values.get(5), encoded.get(keys.get(5)));
+        Assert.assertEquals("Element is not shifted to first position", 0, encoded.indexOf(keys.get(5)));
+    }
+
+    @Test
+    public void testBatchOperationsInFileCache() throws IOException {
+        File file = File.createTempFile("batch", ".fc");
+        file.deleteOnExit();
+        FileCache batch = new FileCache(file.getPath(), new LRUAlgorithm(), ONE_SECOND);
+        Map<Object, Object> entries = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            entries.put(keys.get(i), values.get(i));
+        }
+        batch.putAll(entries);
+        Assert.assertEquals("Wrong size", keys.size(), batch.size());
+        Assert.assertEquals("Order of added elements is not kept", keys.size() - 1, batch.indexOf(keys.get(keys.size() - 1)));
+        Map<Object, Object> found = batch.getAll(Arrays.asList(keys.get(3), "missing", keys.get(7)));
+        Assert.assertEquals("Wrong values by keys", 2, found.size());
+        Assert.assertEquals("Wrong value by key", values.get(7), found.get(keys.get(7)));
+        Assert.assertEquals("Found element is not shifted", 0, batch.indexOf(keys.get(7)));
+        batch.removeAll(keys.subList(0, 5));
+        Assert.assertEquals("Elements are not removed", keys.size() - 5, batch.size());
+        Assert.assertNull("Removed element is found", batch.get(keys.get(3)));
+        Assert.assertEquals("Wrong removed value", values.get(7), batch.remove(keys.get(7)));
+        Assert.assertNull("Removed element is found", batch.get(keys.get(7)));
+    }
+
+    @Test
+    public void testRecoveryOfExistingFile() throws IOException {
+        File file = File.createTempFile("recovery", ".fc");
+        file.deleteOnExit();
+        FileCache written = new FileCache(file.getPath(), new LRUAlgorithm(), ONE_SECOND * 60);
+        for (int i = 0; i < 5; i++) {
+            written.add(keys.get(i), values.get(i));
+        }
+        written.addFirst(new CacheObject<>("expired", "value", -ONE_SECOND));
+        FileCache recovered = new FileCache(file.getPath(), new LRUAlgorithm(), ONE_SECOND * 60);
+        Assert.assertEquals("Wrong recovered count", 5, recovered.getRecoveredCount());
+        Assert.assertEquals("Expired element is not dropped", 1, recovered.getDroppedCount());
+        Assert.assertEquals("Wrong size", 5, recovered.size());
+        Assert.assertEquals("Order is not recovered", 4, recovered.indexOf(keys.get(4)));
+        Assert.assertEquals("Wrong value by key", values.get(2), recovered.get(keys.get(2)));
+        Assert.assertNull("Expired element is recovered", recovered.get("expired"));
+        FileCache cleared = new FileCache(file.getPath(), new LRUAlgorithm(), ONE_SECOND * 60, 0);
+        Assert.assertEquals("Cache is recovered without time for recovery", 0, cleared.size());
+    }
+
+    @Test
+    public void testDamagedFileIsCleared() throws IOException {
+        File file = File.createTempFile("damaged", ".fc");
+        file.deleteOnExit();
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        }
+        FileCache damaged = new FileCache(file.getPath(), new LRUAlgorithm(), ONE_SECOND);
+        Assert.assertEquals("Damaged file is not cleared", 0, damaged.size());
+        damaged.add(keys.get(0), values.get(0));
+        Assert.assertEquals("Wrong value by key", values.get(0), damaged.get(keys.get(0)));
+    }
+
     @Test
     public void testCacheInvalidation() throws InterruptedException {
         for (int i = 0; i < keys.size(); i++) {
             fc.add(keys.get(i), values.get(i));
         }
         int initialSize = fc.size();
-        Thread.sleep(ONE_SECOND);
+        Thread.sleep(ONE_SECOND + ONE_SECOND / 10);
         Assert.assertTrue("Cache invalidation hasn't worked successfully", fc.size() < initialSize);
     }
 
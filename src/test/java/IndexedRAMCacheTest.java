@@ -0,0 +1,92 @@
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import ru.home.rodionov.cache.CacheObject;
+import ru.home.rodionov.cache.IndexedRAMCache;
+import ru.home.rodionov.cache.LFUAlgorithm;
+import ru.home.rodionov.cache.LRUAlgorithm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class IndexedRAMCacheTest {
+    private static final int ONE_SECOND = 1000;
+    private static List<Object> keys;
+    private static List<Object> values;
+
+    @BeforeClass
+    public static void setUp() {
+        keys = new ArrayList<>();
+        values = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            keys.add(new String("key_" + i));
+            values.add(new String("value_" + i));
+        }
+    }
+
+    @Test
+    public void testLRUAlgorithmInIndexedRamCache() {
+        IndexedRAMCache rc = new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND);
+        for (int i = 0; i < keys.size(); i++) {
+            rc.add(keys.get(i), values.get(i));
+        }
+        Assert.assertEquals("Wrong value by key", values.get(5), rc.get(keys.get(5)));
+        Assert.assertEquals("Element is not shifted to first position", 0, rc.indexOf(keys.get(5)));
+    }
+
+    @Test
+    public void testLFUAlgorithmInIndexedRamCache() {
+        IndexedRAMCache rc = new IndexedRAMCache(new LFUAlgorithm(), ONE_SECOND);
+        for (int i = 0; i < keys.size(); i++) {
+            rc.add(keys.get(i), values.get(i));
+        }
+        rc.get(keys.get(5));
+        Assert.assertEquals("Element is not shifted to previous position", 4, rc.indexOf(keys.get(5)));
+    }
+
+    @Test
+    public void testBufferedReadsAreAppliedByWrite() {
+        IndexedRAMCache rc = new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND, true);
+        for (int i = 0; i < keys.size(); i++) {
+            rc.add(keys.get(i), values.get(i));
+        }
+        Assert.assertEquals("Wrong value by key", values.get(5), rc.get(keys.get(5)));
+        rc.add(keys.get(0), values.get(0));
+        Assert.assertEquals("Buffered hit is not applied", 0, rc.indexOf(keys.get(5)));
+    }
+
+    @Test
+    public void testSameKeyReplacesElement() {
+        IndexedRAMCache rc = new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND);
+        rc.add(keys.get(0), values.get(0));
+        rc.add(keys.get(0), values.get(1));
+        Assert.assertEquals("Element is not replaced", 1, rc.size());
+        Assert.assertEquals("Element is not replaced", values.get(1), rc.get(keys.get(0)));
+    }
+
+    @Test
+    public void testCacheInvalidation() throws InterruptedException {
+        IndexedRAMCache rc = new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND);
+        for (int i = 0; i < keys.size(); i++) {
+            rc.add(keys.get(i), values.get(i));
+        }
+        int initialSize = rc.size();
+        Thread.sleep(ONE_SECOND + ONE_SECOND / 10);
+        Assert.assertTrue("Cache invalidation hasn't worked successfully", rc.size() < initialSize);
+        Assert.assertNull("Expired element is returned", rc.get(keys.get(0)));
+    }
+
+    @Test
+    public void testElementsExpireByOwnEndOfLife() throws InterruptedException {
+        IndexedRAMCache rc = new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND);
+        for (int i = 0; i < keys.size(); i++) {
+            long TTL = i % 2 == 0 ? ONE_SECOND * 3 / 2 : ONE_SECOND * 60;
+            rc.addLast(new CacheObject(keys.get(i), values.get(i), TTL));
+        }
+        Thread.sleep(ONE_SECOND * 3 / 2 + ONE_SECOND / 10);
+        Assert.assertEquals("Expired elements are not removed", keys.size() / 2, rc.size());
+        Assert.assertNull("Expired element is returned", rc.get(keys.get(0)));
+        Assert.assertEquals("Actual element is removed", values.get(1), rc.get(keys.get(1)));
+    }
+
+}
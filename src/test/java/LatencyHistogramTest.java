@@ -0,0 +1,24 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.LatencyHistogram;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        Assert.assertEquals("Wrong count", 1000, snapshot.getCount());
+        Assert.assertEquals("Wrong mean", 500500, snapshot.getMean(), 1e-6);
+        long median = snapshot.getPercentile(50);
+        Assert.assertTrue("Median is out of bucket error", median >= 500000 && median < 500000 * 1.25);
+        long p99 = snapshot.getPercentile(99);
+        Assert.assertTrue("99th percentile is out of bucket error", p99 >= 990000 && p99 < 990000 * 1.25);
+        Assert.assertTrue("Wrong max", snapshot.getMax() >= 1000000);
+        histogram.reset();
+        Assert.assertEquals("Histogram is not reset", 0, histogram.snapshot().getCount());
+    }
+}
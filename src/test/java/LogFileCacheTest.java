@@ -0,0 +1,122 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.CacheObject;
+import ru.home.rodionov.cache.LRUAlgorithm;
+import ru.home.rodionov.cache.LogFileCache;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+public class LogFileCacheTest {
+    private static final int ONE_SECOND = 1000;
+    private static final int HEADER_SIZE = 21;
+
+    @Test
+    public void testLRUAlgorithmInLogFileCache() throws Exception {
+        LogFileCache lc = new LogFileCache(newDirectory(), new LRUAlgorithm(), ONE_SECOND);
+        for (int i = 0; i < 20; i++) {
+            lc.add("key_" + i, "value_" + i);
+        }
+        Assert.assertEquals("Wrong value by key", "value_5", lc.get("key_5"));
+        Assert.assertEquals("Element is not shifted to first position", 0, lc.indexOf("key_5"));
+        Assert.assertEquals("Wrong removed element", "value_5", lc.removeFirst().getValue());
+        Assert.assertEquals("Wrong removed element", "value_19", lc.removeLast().getValue());
+        Assert.assertNull("Removed element is found", lc.get("key_5"));
+        lc.close();
+    }
+
+    @Test
+    public void testCompactionReclaimsDeadRecords() throws Exception {
+        LogFileCache lc = new LogFileCache(newDirectory(), new LRUAlgorithm(), ONE_SECOND * 60, 4096, 0);
+        for (int n = 0; n < 20; n++) {
+            for (int i = 0; i < 10; i++) {
+                lc.add("key_" + i, "value_" + i + "_" + n);
+            }
+        }
+        long before = lc.getDiskSize();
+        lc.compact();
+        Assert.assertTrue("Dead records are not reclaimed", lc.getDiskSize() < before);
+        Assert.assertEquals("Live elements are lost by compaction", 10, lc.size());
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals("Wrong value after compaction", "value_" + i + "_19", lc.get("key_" + i));
+        }
+        lc.close();
+    }
+
+    @Test
+    public void testCacheInvalidation() throws Exception {
+        LogFileCache lc = new LogFileCache(newDirectory(), new LRUAlgorithm(), ONE_SECOND);
+        for (int i = 0; i < 20; i++) {
+            lc.add("key_" + i, "value_" + i);
+        }
+        int initialSize = lc.size();
+        Thread.sleep(ONE_SECOND + ONE_SECOND / 10);
+        Assert.assertTrue("Cache invalidation hasn't worked successfully", lc.size() < initialSize);
+        lc.clear();
+        Assert.assertEquals("Cache is not cleared", 0, lc.getDiskSize());
+        lc.close();
+    }
+
+    @Test
+    public void testElementsExpireByOwnEndOfLife() throws Exception {
+        LogFileCache lc = new LogFileCache(newDirectory(), new LRUAlgorithm(), ONE_SECOND);
+        for (int i = 0; i < 20; i++) {
+            long TTL = i % 2 == 0 ? ONE_SECOND / 20 : ONE_SECOND * 60;
+            lc.addLast(new CacheObject("key_" + i, "value_" + i, TTL));
+        }
+        Thread.sleep(ONE_SECOND / 10);
+        Assert.assertEquals("Expired elements are not removed", 10, lc.size());
+        Assert.assertNull("Expired element is returned", lc.get("key_0"));
+        Assert.assertEquals("Actual element is removed", "value_1", lc.get("key_1"));
+        lc.close();
+    }
+
+    @Test
+    public void testLogIsReplayedOnOpen() throws Exception {
+        String directory = newDirectory();
+        LogFileCache lc = new LogFileCache(directory, new LRUAlgorithm(), ONE_SECOND * 60, 4096, 0);
+        for (int i = 0; i < 100; i++) {
+            lc.add("key_" + i, "value_" + i);
+        }
+        lc.add("key_1", "updated");
+        lc.remove("key_2");
+        lc.addLast(new CacheObject("short", "value", ONE_SECOND / 20));
+        lc.compact();
+        lc.close();
+        Thread.sleep(ONE_SECOND / 10);
+
+        lc = new LogFileCache(directory, new LRUAlgorithm(), ONE_SECOND * 60, 4096, 0);
+        Assert.assertEquals("Wrong size after replay", 99, lc.size());
+        Assert.assertEquals("Wrong value after replay", "value_0", lc.get("key_0"));
+        Assert.assertEquals("Later record is not replayed", "updated", lc.get("key_1"));
+        Assert.assertNull("Removed element is replayed", lc.get("key_2"));
+        Assert.assertNull("Expired element is replayed", lc.get("short"));
+        lc.close();
+    }
+
+    @Test
+    public void testDamagedRecordIsMiss() throws Exception {
+        String directory = newDirectory();
+        LogFileCache lc = new LogFileCache(directory, new LRUAlgorithm(), ONE_SECOND * 60);
+        for (int i = 0; i < 3; i++) {
+            lc.add("key_" + i, "value_" + i);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(new File(directory, "segment-0.log"), "rw")) {
+            file.seek(HEADER_SIZE + 1);
+            int damaged = file.read() ^ 0xff;
+            file.seek(HEADER_SIZE + 1);
+            file.write(damaged);
+        }
+        Assert.assertNull("Damaged record is returned", lc.get("key_0"));
+        Assert.assertEquals("Damaged element is not dropped", 2, lc.size());
+        Assert.assertEquals("Wrong value", "value_1", lc.get("key_1"));
+        lc.close();
+    }
+
+    private static String newDirectory() throws Exception {
+        File directory = Files.createTempDirectory("log-cache").toFile();
+        directory.deleteOnExit();
+        return directory.getPath();
+    }
+}
@@ -0,0 +1,96 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.FileCache;
+import ru.home.rodionov.cache.LRUAlgorithm;
+import ru.home.rodionov.cache.LongKeyCache;
+import ru.home.rodionov.cache.TwoLevelCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class LongKeyCacheTest {
+    private static final int ONE_SECOND = 1000;
+
+    @Test
+    public void testLRUOrderInLongKeyCache() {
+        LongKeyCache lc = new LongKeyCache(ONE_SECOND, 100);
+        for (int i = 0; i < 20; i++) {
+            lc.add(i, "value_" + i);
+        }
+        Assert.assertEquals("Wrong value by key", "value_5", lc.get(5));
+        Assert.assertEquals("Element is not shifted to first position", 0, lc.indexOf(5L));
+        Assert.assertEquals("Wrong removed element", "value_5", lc.removeFirst().getValue());
+        Assert.assertEquals("Wrong removed element", 19L, lc.removeLast().getKey());
+        Assert.assertNull("Removed element is found", lc.get(5));
+        lc.add(0, "value_0_new");
+        Assert.assertEquals("Element is not replaced", 18, lc.size());
+        Assert.assertEquals("Element is not replaced", "value_0_new", lc.get(Long.valueOf(0)));
+    }
+
+    @Test
+    public void testMaxSizeIsKept() {
+        LongKeyCache lc = new LongKeyCache(ONE_SECOND * 60, 10);
+        List<Object> evicted = new ArrayList<>();
+        lc.addRemovalListener((element, cause) -> evicted.add(element.getKey()));
+        for (int i = 0; i < 15; i++) {
+            lc.add(i, "value_" + i);
+        }
+        Assert.assertEquals("Wrong size", 10, lc.size());
+        Assert.assertEquals("Evicted elements are not passed to listener", 5, evicted.size());
+        for (Object key : evicted) {
+            Assert.assertNull("Evicted element is found", lc.get((Long) key));
+        }
+    }
+
+    @Test
+    public void testIndexAgreesWithMap() {
+        LongKeyCache lc = new LongKeyCache(ONE_SECOND * 60, 1 << 16);
+        Map<Long, Object> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(5000) * 1024L;
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals("Wrong removed value", expected.remove(key), lc.remove(key));
+            } else {
+                lc.add(key, Integer.valueOf(i));
+                expected.put(key, i);
+            }
+        }
+        Assert.assertEquals("Wrong size", expected.size(), lc.size());
+        for (Map.Entry<Long, Object> entry : expected.entrySet()) {
+            Assert.assertEquals("Wrong value by key", entry.getValue(), lc.get((long) entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testLongKeyCacheAsFirstLevel() throws IOException {
+        File file = File.createTempFile("long-key", ".fc");
+        file.deleteOnExit();
+        TwoLevelCache tlc = new TwoLevelCache(new LongKeyCache(ONE_SECOND * 60, 10),
+                new FileCache(file.getPath(), new LRUAlgorithm(), ONE_SECOND * 60), 10, 10);
+        for (long i = 0; i < 20; i++) {
+            tlc.add(i, "value_" + i);
+        }
+        Assert.assertEquals("Wrong size", 20, tlc.size());
+        for (long i = 0; i < 20; i++) {
+            Assert.assertEquals("Wrong value by key", "value_" + i, tlc.get(i));
+        }
+    }
+
+    @Test
+    public void testCacheInvalidation() throws InterruptedException {
+        LongKeyCache lc = new LongKeyCache(ONE_SECOND, 100);
+        for (int i = 0; i < 20; i++) {
+            lc.add(i, "value_" + i);
+        }
+        int initialSize = lc.size();
+        Thread.sleep(ONE_SECOND + ONE_SECOND / 10);
+        Assert.assertTrue("Cache invalidation hasn't worked successfully", lc.size() < initialSize);
+        Assert.assertNull("Expired element is returned", lc.get(0));
+    }
+}
@@ -0,0 +1,87 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.IndexedRAMCache;
+import ru.home.rodionov.cache.LRUAlgorithm;
+import ru.home.rodionov.cache.MappedFileCache;
+import ru.home.rodionov.cache.TwoLevelCache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MappedFileCacheTest {
+    private static final int ONE_SECOND = 1000;
+
+    @Test
+    public void testLRUAlgorithmInMappedFileCache() throws Exception {
+        MappedFileCache mc = new MappedFileCache(newFile(), new LRUAlgorithm(), ONE_SECOND);
+        for (int i = 0; i < 20; i++) {
+            mc.add("key_" + i, "value_" + i);
+        }
+        Assert.assertEquals("Wrong value by key", "value_5", mc.get("key_5"));
+        Assert.assertEquals("Element is not shifted to first position", 0, mc.indexOf("key_5"));
+        Assert.assertEquals("Wrong removed element", "value_19", mc.removeLast().getValue());
+        mc.close();
+    }
+
+    @Test
+    public void testPagesAreReused() throws Exception {
+        MappedFileCache mc = new MappedFileCache(newFile(), new LRUAlgorithm(), ONE_SECOND * 60, 512, 4);
+        for (int n = 0; n < 50; n++) {
+            for (int i = 0; i < 10; i++) {
+                mc.add("key_" + i, "value_" + i + "_" + n + (n % 2 == 0 ? "" : "_longer_value"));
+            }
+        }
+        Assert.assertEquals("Wrong size", 10, mc.size());
+        Assert.assertEquals("Wrong updated value", "value_3_49_longer_value", mc.get("key_3"));
+        for (int n = 0; n < 200; n++) {
+            mc.add("churn_" + n, "value_" + n);
+            mc.removeFirst();
+        }
+        Assert.assertEquals("Pages are not reused", 512 * 4, mc.getMappedSize());
+        mc.clear();
+        Assert.assertEquals("File is not unmapped", 0, mc.getMappedSize());
+        Assert.assertNull("Cleared element is found", mc.get("key_3"));
+        mc.close();
+    }
+
+    @Test
+    public void testCacheInvalidation() throws Exception {
+        MappedFileCache mc = new MappedFileCache(newFile(), new LRUAlgorithm(), ONE_SECOND);
+        for (int i = 0; i < 20; i++) {
+            mc.add("key_" + i, "value_" + i);
+        }
+        int initialSize = mc.size();
+        Thread.sleep(ONE_SECOND + ONE_SECOND / 10);
+        Assert.assertTrue("Cache invalidation hasn't worked successfully", mc.size() < initialSize);
+        mc.close();
+    }
+
+    @Test
+    public void testElementLargerThanPageIsEvicted() throws Exception {
+        MappedFileCache mc = new MappedFileCache(newFile(), new LRUAlgorithm(), ONE_SECOND * 60, 512, 4);
+        TwoLevelCache tlc = new TwoLevelCache(new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60), mc, 1, 10);
+        List<Object> evicted = new ArrayList<>();
+        tlc.addRemovalListener((element, cause) -> evicted.add(element.getKey() + ":" + cause));
+        char[] large = new char[2048];
+        Arrays.fill(large, 'x');
+        tlc.add("large", new String(large));
+        tlc.add("key_0", "value_0");
+        tlc.add("key_1", "value_1");
+        Assert.assertEquals("Large element is not evicted", Arrays.asList("large:EVICTED"), evicted);
+        Assert.assertNull("Large element is found", tlc.get("large"));
+        Assert.assertEquals("Wrong value", "value_0", tlc.get("key_0"));
+
+        mc.add("key_2", "value_2");
+        mc.add("key_2", new String(large));
+        Assert.assertNull("Outdated element is found", mc.get("key_2"));
+        mc.close();
+    }
+
+    private static String newFile() throws Exception {
+        File file = File.createTempFile("mapped-cache", ".mfc");
+        file.deleteOnExit();
+        return file.getPath();
+    }
+}
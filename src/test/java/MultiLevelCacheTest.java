@@ -0,0 +1,153 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.Cache;
+import ru.home.rodionov.cache.DemotionPolicy;
+import ru.home.rodionov.cache.IndexedRAMCache;
+import ru.home.rodionov.cache.LRUAlgorithm;
+import ru.home.rodionov.cache.MultiLevelCache;
+import ru.home.rodionov.cache.PromotionPolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class MultiLevelCacheTest {
+    private static final int ONE_SECOND = 1000;
+
+    @Test
+    public void testDemotionsCascade() {
+        MultiLevelCache mlc = newCache(PromotionPolicy.toFirstLevel(), DemotionPolicy.nextLevel());
+        List<Object> evicted = new ArrayList<>();
+        mlc.addRemovalListener((element, cause) -> evicted.add(element.getKey()));
+        for (int i = 0; i < 12; i++) {
+            mlc.add("key_" + i, "value_" + i);
+        }
+        Assert.assertEquals("Levels are not filled", 9, mlc.size());
+        Assert.assertEquals("Wrong demotions from first level", 10, mlc.getLevelStats(0).snapshot().getDemotions());
+        Assert.assertEquals("Wrong demotions from second level", 7, mlc.getLevelStats(1).snapshot().getDemotions());
+        Assert.assertEquals("Wrong evictions", 3, mlc.getLevelStats(2).snapshot().getEvictions());
+        Assert.assertEquals("Evicted elements are not passed to listener", 3, evicted.size());
+        for (Object key : evicted) {
+            Assert.assertNull("Evicted element is found", mlc.get(key));
+        }
+    }
+
+    @Test
+    public void testLookupStopsAtFirstLevelHavingElement() {
+        MultiLevelCache mlc = newCache(PromotionPolicy.toFirstLevel(), DemotionPolicy.nextLevel());
+        for (int i = 0; i < 9; i++) {
+            mlc.add("key_" + i, "value_" + i);
+        }
+        Object key = keyOfLevel(mlc, 2);
+        Assert.assertNotNull("Element is not found in the last level", mlc.get(key));
+        Assert.assertEquals("Element is not promoted to first level", 0, mlc.indexOf(key));
+        Assert.assertEquals("Wrong promotions", 1, mlc.getLevelStats(2).snapshot().getPromotions());
+        Assert.assertEquals("Levels are requested after the hit", 1, mlc.getLevelStats(2).snapshot().getHits());
+        mlc.get(key);
+        Assert.assertEquals("Lower level is requested after the hit", 1, mlc.getLevelStats(1).snapshot().getMisses());
+        Assert.assertEquals("Element is lost", 9, mlc.size());
+    }
+
+    @Test
+    public void testPromotionAndDemotionPolicies() {
+        MultiLevelCache mlc = newCache(PromotionPolicy.oneLevelUp(), DemotionPolicy.drop());
+        for (int i = 0; i < 5; i++) {
+            mlc.add("key_" + i, "value_" + i);
+        }
+        Assert.assertEquals("Displaced elements are not dropped", 2, mlc.size());
+        Assert.assertEquals("Wrong evictions", 3, mlc.getLevelStats(0).snapshot().getEvictions());
+
+        mlc = newCache(PromotionPolicy.oneLevelUp(), DemotionPolicy.nextLevel());
+        for (int i = 0; i < 9; i++) {
+            mlc.add("key_" + i, "value_" + i);
+        }
+        Object key = keyOfLevel(mlc, 2);
+        mlc.get(key);
+        Assert.assertEquals("Element is not promoted one level up", 2, mlc.indexOf(key));
+        mlc.get(key);
+        Assert.assertEquals("Element is not promoted to first level", 0, mlc.indexOf(key));
+    }
+
+    @Test
+    public void testFirstLevelHitDoesNotWaitForLastLevel() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IndexedRAMCache lastLevel = new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60) {
+            @Override
+            public Object get(Object key) {
+                if ("slow".equals(key)) {
+                    reading.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.get(key);
+            }
+        };
+        MultiLevelCache mlc = new MultiLevelCache(Arrays.<Cache>asList(
+                new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60),
+                new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60), lastLevel), new int[]{2, 3, 4});
+        mlc.add("key", "value");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Object> slow = executor.submit(() -> mlc.get("slow"));
+        Assert.assertTrue(reading.await(ONE_SECOND * 5, TimeUnit.MILLISECONDS));
+        CompletableFuture<Object> hit = CompletableFuture.supplyAsync(() -> mlc.get("key"));
+        Assert.assertEquals("Hit waits for the last level", "value", hit.get(ONE_SECOND * 5, TimeUnit.MILLISECONDS));
+        mlc.add("other", "value");
+        release.countDown();
+        Assert.assertNull(slow.get(ONE_SECOND * 5, TimeUnit.MILLISECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testConcurrentMovesKeepElements() throws Exception {
+        MultiLevelCache mlc = newCache(PromotionPolicy.toFirstLevel(), DemotionPolicy.nextLevel());
+        for (int i = 0; i < 9; i++) {
+            mlc.add("key_" + i, "value_" + i);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int seed = t;
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    String key = "key_" + ((i * 7 + seed) % 9);
+                    Assert.assertEquals("Element is missed while moved", "value_" + key.substring(4), mlc.get(key));
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+        Assert.assertEquals("Element is lost", 9, mlc.size());
+    }
+
+    private static MultiLevelCache newCache(PromotionPolicy promotion, DemotionPolicy demotion) {
+        List<Cache> levels = Arrays.<Cache>asList(new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60),
+                new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60),
+                new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60));
+        return new MultiLevelCache(levels, new int[]{2, 3, 4}, promotion, demotion);
+    }
+
+    /**
+     * @return key of the first element of the level with sizes 2, 3 and 4
+     */
+    private static Object keyOfLevel(MultiLevelCache mlc, int level) {
+        int index = level == 0 ? 0 : level == 1 ? 2 : 5;
+        for (int i = 0; i < 12; i++) {
+            if (mlc.indexOf("key_" + i) == index) {
+                return "key_" + i;
+            }
+        }
+        throw new AssertionError("Level " + level + " is empty");
+    }
+}
@@ -0,0 +1,72 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.Codecs;
+import ru.home.rodionov.cache.IndexedRAMCache;
+import ru.home.rodionov.cache.LRUAlgorithm;
+import ru.home.rodionov.cache.OffHeapCache;
+import ru.home.rodionov.cache.TwoLevelCache;
+
+public class OffHeapCacheTest {
+    private static final int ONE_SECOND = 1000;
+
+    @Test
+    public void testLRUOrderInOffHeapCache() {
+        OffHeapCache oc = new OffHeapCache(1 << 20, ONE_SECOND);
+        for (int i = 0; i < 20; i++) {
+            oc.add("key_" + i, "value_" + i);
+        }
+        Assert.assertEquals("Wrong value by key", "value_5", oc.get("key_5"));
+        Assert.assertEquals("Element is not shifted to first position", 0, oc.indexOf("key_5"));
+        Assert.assertEquals("Wrong removed element", "value_5", oc.removeFirst().getValue());
+        Assert.assertEquals("Wrong removed element", "value_19", oc.removeLast().getValue());
+        Assert.assertNull("Removed element is found", oc.get("key_5"));
+        oc.add("key_0", "value_0_new");
+        Assert.assertEquals("Element is not replaced", 18, oc.size());
+        Assert.assertEquals("Element is not replaced", "value_0_new", oc.get("key_0"));
+        oc.close();
+    }
+
+    @Test
+    public void testByteBudgetIsKept() {
+        OffHeapCache oc = new OffHeapCache(1 << 14, ONE_SECOND * 60, Codecs.INTEGER, Codecs.BYTES);
+        for (int i = 0; i < 1000; i++) {
+            oc.add(i, new byte[100]);
+        }
+        Assert.assertTrue("Elements over the budget are kept", oc.size() < 1000);
+        Assert.assertTrue("Slabs over the budget are allocated", oc.getOffHeapSize() <= (1 << 14) + 1024 * 8);
+        for (int i = 0; i < 100; i++) {
+            oc.add(-i, new byte[1000]);
+        }
+        Assert.assertEquals("Slab is not reused for another size class", 1000, ((byte[]) oc.get(-99)).length);
+        oc.clear();
+        Assert.assertEquals("Cache is not cleared", 0, oc.size());
+        Assert.assertNull("Cleared element is found", oc.get(-99));
+        oc.close();
+    }
+
+    @Test
+    public void testOffHeapCacheAsFirstLevel() {
+        TwoLevelCache tlc = new TwoLevelCache(new OffHeapCache(1 << 20, ONE_SECOND * 60),
+                new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60), 10, 10);
+        for (int i = 0; i < 20; i++) {
+            tlc.add("key_" + i, "value_" + i);
+        }
+        Assert.assertEquals("Wrong size", 20, tlc.size());
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals("Wrong value by key", "value_" + i, tlc.get("key_" + i));
+        }
+    }
+
+    @Test
+    public void testCacheInvalidation() throws InterruptedException {
+        OffHeapCache oc = new OffHeapCache(1 << 20, ONE_SECOND);
+        for (int i = 0; i < 20; i++) {
+            oc.add("key_" + i, "value_" + i);
+        }
+        int initialSize = oc.size();
+        Thread.sleep(ONE_SECOND + ONE_SECOND / 10);
+        Assert.assertTrue("Cache invalidation hasn't worked successfully", oc.size() < initialSize);
+        Assert.assertNull("Expired element is returned", oc.get("key_0"));
+        oc.close();
+    }
+}
@@ -39,7 +39,7 @@ public class RAMCacheTest {
             rc.add(keys.get(i), values.get(i));
         }
         int initialSize = rc.size();
-        Thread.sleep(ONE_SECOND);
+        Thread.sleep(ONE_SECOND + ONE_SECOND / 10);
         Assert.assertTrue("Cache invalidation hasn't worked successfully", rc.size() < initialSize);
     }
 
@@ -0,0 +1,83 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.Cache;
+import ru.home.rodionov.cache.IndexedRAMCache;
+import ru.home.rodionov.cache.LRUAlgorithm;
+import ru.home.rodionov.cache.ShardedFileCache;
+import ru.home.rodionov.cache.TwoLevelCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ShardedFileCacheTest {
+    private static final int ONE_SECOND = 1000;
+
+    @Test
+    public void testShardsAreSpreadOverDirectories() throws Exception {
+        File first = directory("first");
+        File second = directory("second");
+        ShardedFileCache sfc = new ShardedFileCache(Arrays.asList(first.getPath(), second.getPath()), 4,
+                LRUAlgorithm::new, ONE_SECOND * 60, Integer.MAX_VALUE);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < 25; i++) {
+                    sfc.add("key_" + thread + "_" + i, "value_" + i);
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+        Assert.assertEquals("Elements are lost", 100, sfc.size());
+        Assert.assertEquals("Wrong value", "value_7", sfc.get("key_2_7"));
+        Assert.assertTrue("Shards are not placed in first directory", new File(first, "shard-0.fc").length() > 0);
+        Assert.assertTrue("Shards are not placed in second directory", new File(second, "shard-1.fc").length() > 0);
+        sfc.clear();
+        Assert.assertEquals("Cache is not cleared", 0, sfc.size());
+    }
+
+    @Test
+    public void testCloseStopsOwnThreadsOnly() throws Exception {
+        ShardedFileCache sfc = new ShardedFileCache(Arrays.asList(directory("closed").getPath()), 4,
+                LRUAlgorithm::new, ONE_SECOND * 60, Integer.MAX_VALUE);
+        List<Object> keys = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            sfc.add("key_" + i, "value_" + i);
+            keys.add("key_" + i);
+        }
+        Assert.assertEquals("Values are lost in shards", 20, sfc.getAll(keys).size());
+        sfc.close();
+        Assert.assertEquals("Batch request fails after close", 20, sfc.getAll(keys).size());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ShardedFileCache shared = new ShardedFileCache(Arrays.<Cache>asList(
+                new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND), new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND)),
+                Integer.MAX_VALUE, executor);
+        shared.close();
+        Assert.assertFalse("Executor of the caller is stopped", executor.isShutdown());
+        executor.shutdown();
+    }
+
+    private static File directory(String name) throws IOException {
+        File directory = Files.createTempDirectory(name).toFile();
+        directory.deleteOnExit();
+        for (int i = 0; i < 4; i++) {
+            new File(directory, "shard-" + i + ".fc").deleteOnExit();
+        }
+        return directory;
+    }
+}
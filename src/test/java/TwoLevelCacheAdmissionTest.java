@@ -0,0 +1,38 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.IndexedRAMCache;
+import ru.home.rodionov.cache.LRUAlgorithm;
+import ru.home.rodionov.cache.TinyLFUAdmission;
+import ru.home.rodionov.cache.TwoLevelCache;
+
+public class TwoLevelCacheAdmissionTest {
+    private static final int ONE_MINUTE = 60 * 1000;
+
+    @Test
+    public void testScanDoesNotFlushFrequentlyUsedElements() {
+        TwoLevelCache twc = new TwoLevelCache(
+                new IndexedRAMCache(new LRUAlgorithm(), ONE_MINUTE),
+                new IndexedRAMCache(new LRUAlgorithm(), ONE_MINUTE), 3, 3,
+                new IndexedRAMCache(new LRUAlgorithm(), ONE_MINUTE), 1,
+                new TinyLFUAdmission(7));
+        fillAndScan(twc);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals("Frequently used element is flushed by scan", "value_" + i, twc.get("key_" + i));
+        }
+        Assert.assertEquals("Cache exceeds its size", 7, twc.size());
+    }
+
+    private void fillAndScan(TwoLevelCache twc) {
+        for (int i = 0; i < 3; i++) {
+            twc.add("key_" + i, "value_" + i);
+        }
+        for (int n = 0; n < 5; n++) {
+            for (int i = 0; i < 3; i++) {
+                twc.get("key_" + i);
+            }
+        }
+        for (int i = 0; i < 20; i++) {
+            twc.add("scan_" + i, "value_" + i);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.CacheStats;
+import ru.home.rodionov.cache.FileCache;
+import ru.home.rodionov.cache.LRUAlgorithm;
+import ru.home.rodionov.cache.RAMCache;
+import ru.home.rodionov.cache.RemovalCause;
+import ru.home.rodionov.cache.TwoLevelCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TwoLevelCacheBatchTest {
+    private static final int ONE_SECOND = 1000;
+
+    private static TwoLevelCache createCache(int firstLevelSize, int secondLevelSize) throws IOException {
+        File file = File.createTempFile("two-level-batch", ".fc");
+        file.deleteOnExit();
+        return new TwoLevelCache(new RAMCache(new LRUAlgorithm(), ONE_SECOND * 60),
+                new FileCache(file.getPath(), new LRUAlgorithm(), ONE_SECOND * 60), firstLevelSize, secondLevelSize);
+    }
+
+    @Test
+    public void testPutAllDemotesToSecondLevel() throws IOException {
+        TwoLevelCache tlc = createCache(10, 5);
+        List<Object> evicted = new ArrayList<>();
+        tlc.addRemovalListener((element, cause) -> {
+            if (cause == RemovalCause.EVICTED) {
+                evicted.add(element.getKey());
+            }
+        });
+        Map<Object, Object> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            entries.put("key_" + i, "value_" + i);
+        }
+        tlc.putAll(entries);
+        Assert.assertEquals("Wrong size", 15, tlc.size());
+        Assert.assertEquals("Evicted elements are not passed to listener", 5, evicted.size());
+        CacheStats.Snapshot stats = tlc.getStats().snapshot();
+        Assert.assertEquals("Wrong demotions", 10, stats.getFirstLevel().getDemotions());
+        Assert.assertEquals("Wrong evictions", 5, stats.getSecondLevel().getEvictions());
+        Assert.assertEquals("Wrong values by keys", 15, tlc.getAll(entries.keySet()).size());
+        for (Object key : evicted) {
+            Assert.assertNull("Evicted element is found", tlc.get(key));
+        }
+    }
+
+    @Test
+    public void testGetAllAndRemoveAllOverBothLevels() throws IOException {
+        TwoLevelCache tlc = createCache(5, 10);
+        for (int i = 0; i < 10; i++) {
+            tlc.add("key_" + i, "value_" + i);
+        }
+        List<Object> keys = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            keys.add("key_" + i);
+        }
+        keys.add("missing");
+        Map<Object, Object> found = tlc.getAll(keys);
+        Assert.assertEquals("Wrong values by keys", 10, found.size());
+        Assert.assertEquals("Order of keys is not kept", keys.subList(0, 10), new ArrayList<>(found.keySet()));
+        CacheStats.Snapshot stats = tlc.getStats().snapshot();
+        Assert.assertEquals("Wrong hits of first level", 5, stats.getFirstLevel().getHits());
+        Assert.assertEquals("Wrong hits of second level", 5, stats.getSecondLevel().getHits());
+        Assert.assertEquals("Wrong misses", 1, stats.getMisses());
+        tlc.removeAll(Arrays.asList("key_0", "key_9"));
+        Assert.assertEquals("Elements are not removed", 8, tlc.size());
+        Assert.assertEquals("Wrong removed value", "value_5", tlc.remove("key_5"));
+        Assert.assertNull("Removed element is found", tlc.get("key_5"));
+    }
+}
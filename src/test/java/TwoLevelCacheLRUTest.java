@@ -6,6 +6,8 @@ import ru.home.rodionov.cache.LRUAlgorithm;
 import ru.home.rodionov.cache.RAMCache;
 import ru.home.rodionov.cache.TwoLevelCache;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,8 +18,10 @@ public class TwoLevelCacheLRUTest {
     private static List<Object> values;
 
     @BeforeClass
-    public static void setUp() {
-        String filepath = "C:\\Users\\FaiFlay\\Cache.fc";
+    public static void setUp() throws IOException {
+        File file = File.createTempFile("two-level", ".fc");
+        file.deleteOnExit();
+        String filepath = file.getPath();
         RAMCache rc = new RAMCache(new LRUAlgorithm(), ONE_SECOND);
         FileCache fc = new FileCache(filepath, new LRUAlgorithm(), ONE_SECOND);
         twc = new TwoLevelCache(rc, fc, 10, 10);
@@ -53,7 +57,7 @@ public class TwoLevelCacheLRUTest {
             twc.add(keys.get(i), values.get(i));
         }
         int initialSize = twc.size();
-        Thread.sleep(ONE_SECOND);
+        Thread.sleep(ONE_SECOND + ONE_SECOND / 10);
         Assert.assertTrue("Cache invalidation hasn't worked successfully", twc.size() < initialSize);
     }
 
@@ -0,0 +1,174 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.CacheStats;
+import ru.home.rodionov.cache.IndexedRAMCache;
+import ru.home.rodionov.cache.LRUAlgorithm;
+import ru.home.rodionov.cache.TwoLevelCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TwoLevelCacheLoadingTest {
+    private static final int ONE_SECOND = 1000;
+
+    @Test
+    public void testConcurrentMissesShareOneLoad() throws Exception {
+        TwoLevelCache tlc = newCache();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return tlc.get("key", key -> {
+                    loads.incrementAndGet();
+                    sleep(ONE_SECOND / 5);
+                    return "value";
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<Object> result : results) {
+            Assert.assertEquals("Wrong loaded value", "value", result.get(ONE_SECOND * 5, TimeUnit.MILLISECONDS));
+        }
+        executor.shutdown();
+        Assert.assertEquals("Loader is called more than once", 1, loads.get());
+        Assert.assertEquals("Loaded value is not added", "value", tlc.get("key"));
+    }
+
+    @Test
+    public void testAsyncLoadIsShared() throws Exception {
+        TwoLevelCache tlc = newCache();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<Object> first = tlc.getAsync("key", key -> {
+            loads.incrementAndGet();
+            await(release);
+            return "value";
+        });
+        CompletableFuture<Object> second = tlc.getAsync("key", key -> {
+            loads.incrementAndGet();
+            return "other";
+        });
+        Assert.assertSame("Future of in-flight load is not shared", first, second);
+        release.countDown();
+        Assert.assertEquals("Wrong loaded value", "value", second.get(ONE_SECOND * 5, TimeUnit.MILLISECONDS));
+        Assert.assertEquals("Loader is called more than once", 1, loads.get());
+        Assert.assertEquals("Hit is not returned at once", "value", tlc.getAsync("key", key -> "other").getNow(null));
+    }
+
+    @Test
+    public void testLoadedMissIsCountedOnce() {
+        TwoLevelCache tlc = newCache();
+        Assert.assertEquals("Wrong value", "value", tlc.get("key", key -> "value"));
+        Assert.assertEquals("Wrong value", "value", tlc.getAsync("other", key -> "value").join());
+        CacheStats.Snapshot stats = tlc.getStats().snapshot();
+        Assert.assertEquals("Miss of first level is counted again", 2, stats.getFirstLevel().getMisses());
+        Assert.assertEquals("Miss of second level is counted again", 2, stats.getSecondLevel().getMisses());
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() {
+        TwoLevelCache tlc = newCache();
+        try {
+            tlc.get("key", key -> {
+                throw new IllegalStateException("backend is down");
+            });
+            Assert.fail("Exception of the loader is lost");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("Wrong exception", "backend is down", e.getMessage());
+        }
+        Assert.assertEquals("Load is not retried", "value", tlc.get("key", key -> "value"));
+    }
+
+    @Test
+    public void testPerEntryTTL() {
+        TwoLevelCache tlc = newCache();
+        tlc.add("short", "value", ONE_SECOND);
+        tlc.add("long", "value");
+        Assert.assertEquals("Element with own TTL is not found", "value", tlc.get("short"));
+        sleep(ONE_SECOND + 200);
+        Assert.assertNull("Element outlived its own TTL", tlc.get("short"));
+        Assert.assertEquals("Element with default TTL is expired", "value", tlc.get("long"));
+    }
+
+    @Test
+    public void testRefreshAfterWrite() throws Exception {
+        TwoLevelCache tlc = newCache();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaded = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        tlc.refreshAfterWrite(ONE_SECOND / 2, key -> {
+            loads.incrementAndGet();
+            loaded.countDown();
+            return "fresh";
+        }, executor);
+        tlc.add("key", "stale");
+        Assert.assertEquals("Value is reloaded before the interval", "stale", tlc.get("key"));
+        Assert.assertEquals("Loader is called before the interval", 0, loads.get());
+        sleep(ONE_SECOND);
+        Assert.assertEquals("Stale value is not returned while reloading", "stale", tlc.get("key"));
+        Assert.assertTrue("Value is not reloaded", loaded.await(ONE_SECOND * 5, TimeUnit.MILLISECONDS));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(ONE_SECOND * 5, TimeUnit.MILLISECONDS));
+        Assert.assertEquals("Reloaded value is not stored", "fresh", tlc.get("key"));
+        Assert.assertEquals("Loader is called more than once", 1, loads.get());
+    }
+
+    @Test
+    public void testFirstLevelHitDoesNotWaitForSecondLevel() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IndexedRAMCache secondLevel = new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60) {
+            @Override
+            public Object get(Object key) {
+                if ("slow".equals(key)) {
+                    reading.countDown();
+                    await(release);
+                }
+                return super.get(key);
+            }
+        };
+        TwoLevelCache tlc = new TwoLevelCache(new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60),
+                secondLevel, 10, 10);
+        tlc.add("key", "value");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Object> slow = executor.submit(() -> tlc.get("slow"));
+        Assert.assertTrue(reading.await(ONE_SECOND * 5, TimeUnit.MILLISECONDS));
+        CompletableFuture<Object> hit = CompletableFuture.supplyAsync(() -> tlc.get("key"));
+        Assert.assertEquals("Hit waits for the second level", "value", hit.get(ONE_SECOND * 5, TimeUnit.MILLISECONDS));
+        tlc.add("other", "value");
+        release.countDown();
+        Assert.assertNull(slow.get(ONE_SECOND * 5, TimeUnit.MILLISECONDS));
+        executor.shutdown();
+    }
+
+    private static TwoLevelCache newCache() {
+        return new TwoLevelCache(new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60),
+                new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60), 10, 10);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.CacheStats;
+import ru.home.rodionov.cache.IndexedRAMCache;
+import ru.home.rodionov.cache.LRUAlgorithm;
+import ru.home.rodionov.cache.RAMCache;
+import ru.home.rodionov.cache.SerializedWeigher;
+import ru.home.rodionov.cache.TwoLevelCache;
+import ru.home.rodionov.cache.Weigher;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class TwoLevelCacheWeightTest {
+    private static final int ONE_SECOND = 1000;
+    private static final Weigher<Object, byte[]> LENGTH = (key, value) -> value.length;
+
+    private static TwoLevelCache createCache() {
+        return new TwoLevelCache(new RAMCache(new LRUAlgorithm(), ONE_SECOND * 60),
+                new IndexedRAMCache(new LRUAlgorithm(), ONE_SECOND * 60), 1000L, 3000L, LENGTH);
+    }
+
+    @Test
+    public void testLevelsAreKeptUnderMaxWeight() {
+        TwoLevelCache tlc = createCache();
+        for (int i = 0; i < 10; i++) {
+            tlc.add(i, new byte[300]);
+        }
+        CacheStats.Snapshot stats = tlc.getStats().snapshot();
+        Assert.assertEquals("Wrong weight of first level", 900, stats.getFirstLevel().getWeight());
+        Assert.assertEquals("Wrong weight of second level", 2100, stats.getSecondLevel().getWeight());
+        Assert.assertEquals("Wrong size", 10, tlc.size());
+        for (int i = 10; i < 30; i++) {
+            tlc.add(i, new byte[100 + i * 10]);
+            stats = tlc.getStats().snapshot();
+            Assert.assertTrue("First level is heavier than max weight", stats.getFirstLevel().getWeight() <= 1000);
+            Assert.assertTrue("Second level is heavier than max weight", stats.getSecondLevel().getWeight() <= 3000);
+        }
+        Assert.assertTrue("Nothing is evicted", stats.getSecondLevel().getEvictions() > 0);
+        Assert.assertEquals("Counters don't report weight", Long.valueOf(stats.getSecondLevel().getWeight()),
+                tlc.getStats().getCounters().get("secondLevel.weight"));
+        tlc.clear();
+        Assert.assertEquals("Weight is not cleared", 0, tlc.getStats().snapshot().getFirstLevel().getWeight());
+    }
+
+    @Test
+    public void testOverweightElements() {
+        TwoLevelCache tlc = createCache();
+        tlc.add("small", new byte[100]);
+        tlc.add("large", new byte[2000]);
+        Assert.assertEquals("Large element is not added to second level", 2000,
+                tlc.getStats().snapshot().getSecondLevel().getWeight());
+        Assert.assertEquals("Wrong value by key", 2000, ((byte[]) tlc.get("large")).length);
+        tlc.add("huge", new byte[5000]);
+        Assert.assertNull("Element heavier than both levels is added", tlc.get("huge"));
+        tlc.add("small", new byte[5000]);
+        Assert.assertNull("Old value of replaced element is kept", tlc.get("small"));
+        Assert.assertEquals("Wrong weight of first level", 0, tlc.getStats().snapshot().getFirstLevel().getWeight());
+    }
+
+    @Test
+    public void testPutAllKeepsMaxWeight() {
+        TwoLevelCache tlc = createCache();
+        Map<Object, Object> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            entries.put(i, new byte[250]);
+        }
+        tlc.putAll(entries);
+        CacheStats.Snapshot stats = tlc.getStats().snapshot();
+        Assert.assertEquals("Wrong weight of first level", 1000, stats.getFirstLevel().getWeight());
+        Assert.assertEquals("Wrong weight of second level", 3000, stats.getSecondLevel().getWeight());
+        Assert.assertEquals("Wrong evictions", 4, stats.getSecondLevel().getEvictions());
+        Assert.assertEquals("Wrong size", 16, tlc.size());
+    }
+
+    @Test
+    public void testSerializedWeigher() {
+        SerializedWeigher weigher = new SerializedWeigher();
+        Assert.assertTrue("Value is not weighed", weigher.weigh("key", new byte[100]) > 100);
+        Assert.assertTrue("Weight doesn't grow with value", weigher.weigh("key", "value") < weigher.weigh("key", "longer value"));
+    }
+}
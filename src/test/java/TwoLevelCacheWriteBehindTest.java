@@ -0,0 +1,64 @@
+import org.junit.Assert;
+import org.junit.Test;
+import ru.home.rodionov.cache.FileCache;
+import ru.home.rodionov.cache.LRUAlgorithm;
+import ru.home.rodionov.cache.RAMCache;
+import ru.home.rodionov.cache.TwoLevelCache;
+
+import java.io.File;
+import java.io.IOException;
+
+public class TwoLevelCacheWriteBehindTest {
+    private static final int ONE_SECOND = 1000;
+
+    private static TwoLevelCache createCache(int writeQueueCapacity) throws IOException {
+        File file = File.createTempFile("write-behind", ".fc");
+        file.deleteOnExit();
+        return new TwoLevelCache(new RAMCache(new LRUAlgorithm(), ONE_SECOND * 60),
+                new FileCache(file.getPath(), new LRUAlgorithm(), ONE_SECOND * 60), 5, 100, writeQueueCapacity);
+    }
+
+    @Test
+    public void testQueuedElementsAreFound() throws IOException {
+        TwoLevelCache tlc = createCache(10);
+        for (int i = 0; i < 50; i++) {
+            tlc.add("key_" + i, "value_" + i);
+            Assert.assertEquals("Queued element is not found", "value_" + i, tlc.get("key_" + i));
+        }
+        tlc.flush();
+        Assert.assertEquals("Wrong size", 50, tlc.size());
+        for (int i = 0; i < 50; i++) {
+            Assert.assertEquals("Written element is not found", "value_" + i, tlc.get("key_" + i));
+        }
+        Assert.assertTrue("Nothing is demoted", tlc.getStats().snapshot().getFirstLevel().getDemotions() >= 45);
+        tlc.close();
+    }
+
+    @Test
+    public void testFullQueueSlowsAddingDown() throws IOException {
+        TwoLevelCache tlc = createCache(1);
+        for (int i = 0; i < 100; i++) {
+            tlc.add("key_" + i, "value_" + i);
+        }
+        tlc.close();
+        Assert.assertEquals("Wrong size", 100, tlc.size());
+        Assert.assertEquals("Wrong value by key", "value_50", tlc.get("key_50"));
+    }
+
+    @Test
+    public void testRemovedElementsAreNotWritten() throws IOException {
+        TwoLevelCache tlc = createCache(10);
+        for (int i = 0; i < 30; i++) {
+            tlc.add("key_" + i, "value_" + i);
+        }
+        for (int i = 0; i < 30; i++) {
+            Assert.assertEquals("Wrong removed value", "value_" + i, tlc.remove("key_" + i));
+        }
+        tlc.flush();
+        Assert.assertEquals("Removed elements are written", 0, tlc.size());
+        for (int i = 0; i < 30; i++) {
+            Assert.assertNull("Removed element is found", tlc.get("key_" + i));
+        }
+        tlc.close();
+    }
+}